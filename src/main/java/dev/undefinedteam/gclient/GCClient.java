@@ -4,12 +4,7 @@ import dev.undefinedteam.gclient.assets.AssetsManager;
 import dev.undefinedteam.gclient.codec.*;
 import dev.undefinedteam.gclient.packets.NetworkPacketsManager;
 import dev.undefinedteam.gclient.packets.Packet;
-import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.channel.Channel;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
@@ -27,21 +22,16 @@ import java.util.function.BiConsumer;
 public class GCClient {
     public final Logger LOGGER = LogManager.getLogger("GCClient");
 
-    public Bootstrap bootstrap;
-
     private final NetworkPacketsManager packetsManager;
 
     public static GCClient INSTANCE;
 
-    private final EventLoopGroup group;
+    public final GCConnection connection;
 
     GCUser session;
 
     BiConsumer<GCUser, Packet> listener;
 
-    public boolean connecting;
-    public Channel connectChannel;
-
     public static GCClient get() {
         if (INSTANCE == null) {
             new GCClient();
@@ -57,7 +47,7 @@ public class GCClient {
     public GCClient() {
         INSTANCE = this;
         packetsManager = new NetworkPacketsManager();
-        group = new NioEventLoopGroup();
+        connection = new GCConnection(LOGGER);
     }
 
     public void init() throws IOException {
@@ -67,23 +57,11 @@ public class GCClient {
 
 
     public void connect() {
-        new Thread(() -> {
-            try {
-                if (connecting) {
-                    if (connectChannel != null) {
-                        connectChannel.close().awaitUninterruptibly();
-                        this.connectChannel = null;
-                    }
-                    connecting = false;
-                }
-                var f = getBootstrap().connect("hecker.lol", 7788);
-                this.connectChannel = f.channel();
-                connecting = true;
-                f.syncUninterruptibly();
-            } catch (Exception e) {
-                throw new RuntimeException("irc死了");
-            }
-        },"aefadgdfhf").start();
+        connection.start();
+    }
+
+    public void disconnect() {
+        connection.stop();
     }
 
     @NativeObfuscation.Inline
@@ -111,34 +89,8 @@ public class GCClient {
         }
     }
 
-    private GCUser lastSession;
-
-
-    @NativeObfuscation.Inline
-    public Bootstrap getBootstrap() {
-        if (this.session != null) {
-            this.session.channel.close().awaitUninterruptibly();
-        }
-        this.bootstrap = new Bootstrap().group(group).channel(NioSocketChannel.class).handler(new ChannelInitializer<SocketChannel>() {
-            protected void initChannel(SocketChannel channel) {
-                try {
-                    channel.config().setOption(ChannelOption.TCP_NODELAY, true);
-                } catch (ChannelException ignored) {
-                }
-
-                channel.pipeline()
-                    .addLast("timeout", new ReadTimeoutHandler(30))
-                    .addLast("splitter", new FrameDecoder())
-                    .addLast("prepender", new LengthFieldPrepender())
-                    .addLast("encoder", new PacketEncoder(true))
-                    .addLast("decoder", new PacketDecoder(true))
-                    .addLast("packet_handler", lastSession = new GCUser());
-            }
-        });
-        return this.bootstrap;
-    }
-
     public void tick() {
+        GCUser.handlers().drainClient();
         if (session != null) {
             session.tick();
         }
@@ -0,0 +1,284 @@
+package dev.undefinedteam.gclient;
+
+import dev.undefinedteam.gclient.codec.FrameDecoder;
+import dev.undefinedteam.gclient.codec.LengthFieldPrepender;
+import dev.undefinedteam.gclient.codec.PacketDecoder;
+import dev.undefinedteam.gclient.codec.PacketEncoder;
+import dev.undefinedteam.gensh1n.system.ClientConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.apache.logging.log4j.Logger;
+import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
+import tech.skidonion.obfuscator.annotations.StringEncryption;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Owns the GChat transport: one event loop group (epoll on Linux, NIO elsewhere), one bootstrap,
+ * and an asynchronous connect loop that backs off exponentially with jitter between attempts.
+ * Nothing here blocks the caller, connects and closes complete on the event loop.
+ */
+@StringEncryption
+@ControlFlowObfuscation
+public class GCConnection {
+    public static final String HOST = "hecker.lol";
+    public static final int PORT = 7788;
+    private static final int CONNECT_TIMEOUT = 10_000;
+    private static final long MAX_BACKOFF = 5 * 60_000L;
+    private static final long DEFAULT_BACKOFF = 5_000L;
+    /**
+     * A session has to survive this long before the backoff starts from scratch again
+     */
+    private static final long STABLE_AFTER = 30_000L;
+
+    public enum State {
+        IDLE,
+        CONNECTING,
+        CONNECTED,
+        BACKOFF
+    }
+
+    private final Logger log;
+    private final EventLoopGroup group;
+    private final Class<? extends SocketChannel> channelType;
+    private final Bootstrap bootstrap;
+
+    private String host = HOST;
+    private int port = PORT;
+    private State state = State.IDLE;
+    private boolean enabled;
+    private Channel channel;
+    private ScheduledFuture<?> retry;
+    private int failures;
+    /**
+     * Set by {@link #reconnect()}, the next attempt goes out without waiting
+     */
+    private boolean skipBackoff;
+    private long attemptStart;
+    private long connectedAt;
+    private long nextAttemptAt;
+
+    private long attempts;
+    private long connects;
+    private long failed;
+    private long disconnects;
+    private long lastConnectMillis;
+    private long totalConnectMillis;
+    private long uptimeMillis;
+
+    public GCConnection(Logger log) {
+        this.log = log;
+        var threads = new DefaultThreadFactory("GChat-IO", true);
+        if (Epoll.isAvailable()) {
+            this.group = new EpollEventLoopGroup(1, threads);
+            this.channelType = EpollSocketChannel.class;
+        } else {
+            this.group = new NioEventLoopGroup(1, threads);
+            this.channelType = NioSocketChannel.class;
+        }
+
+        this.bootstrap = new Bootstrap()
+            .group(group)
+            .channel(channelType)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT)
+            .handler(new ChannelInitializer<SocketChannel>() {
+                protected void initChannel(SocketChannel channel) {
+                    try {
+                        channel.config().setOption(ChannelOption.TCP_NODELAY, true);
+                    } catch (ChannelException ignored) {
+                    }
+
+                    channel.attr(PacketMetrics.KEY).set(PacketMetrics.GLOBAL);
+                    channel.pipeline()
+                        .addLast("timeout", new ReadTimeoutHandler(30))
+                        .addLast("splitter", new FrameDecoder())
+                        .addLast("prepender", new LengthFieldPrepender())
+                        .addLast("encoder", new PacketEncoder(true))
+                        .addLast("decoder", new PacketDecoder(true))
+                        .addLast("packet_handler", new GCUser());
+                }
+            });
+        log.info("GChat transport: {}", channelType.getSimpleName());
+    }
+
+    /**
+     * Connects now unless a connection or a scheduled retry is already on its way, then keeps reconnecting.
+     */
+    public synchronized void start() {
+        enabled = true;
+        if (state == State.IDLE) {
+            connect();
+        }
+    }
+
+    /**
+     * Skips the remaining backoff and reconnects right away, closing the current session first. Later failures back
+     * off from the base delay again.
+     */
+    public synchronized void reconnect() {
+        enabled = true;
+        failures = 0;
+        nextAttemptAt = 0L;
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+
+        if (channel != null && channel.isOpen()) {
+            skipBackoff = true;
+            // the close listener schedules the next attempt
+            channel.close();
+        } else if (state == State.CONNECTING) {
+            // a failure of the attempt on its way is retried right away
+            skipBackoff = true;
+        } else {
+            state = State.IDLE;
+            connect();
+        }
+    }
+
+    /**
+     * Stops reconnecting and closes the session without waiting for it.
+     */
+    public synchronized void stop() {
+        enabled = false;
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        if (state == State.BACKOFF) {
+            state = State.IDLE;
+        }
+    }
+
+    /**
+     * Points later connects somewhere else, e.g. the embedded test server. Takes effect on the next attempt.
+     */
+    public synchronized void address(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public synchronized String address() {
+        return host + ":" + port;
+    }
+
+    public EventLoopGroup group() {
+        return this.group;
+    }
+
+    public synchronized State state() {
+        return this.state;
+    }
+
+    private synchronized void connect() {
+        retry = null;
+        if (!enabled || state == State.CONNECTING || state == State.CONNECTED) return;
+
+        state = State.CONNECTING;
+        attempts++;
+        attemptStart = System.currentTimeMillis();
+
+        var future = bootstrap.connect(host, port);
+        channel = future.channel();
+        future.addListener((ChannelFutureListener) f -> onConnect(f));
+    }
+
+    private synchronized void onConnect(ChannelFuture future) {
+        if (!future.isSuccess()) {
+            failed++;
+            channel = null;
+            log.warn("GChat connect failed: {}", future.cause() == null ? "cancelled" : future.cause().getMessage());
+            backoff();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        skipBackoff = false;
+        connects++;
+        lastConnectMillis = now - attemptStart;
+        totalConnectMillis += lastConnectMillis;
+        connectedAt = now;
+        state = State.CONNECTED;
+        log.info("GChat connected in {}ms (attempt {})", lastConnectMillis, failures + 1);
+
+        var connected = future.channel();
+        connected.closeFuture().addListener((ChannelFutureListener) f -> onClosed(connected));
+        if (!enabled) {
+            connected.close();
+        }
+    }
+
+    private synchronized void onClosed(Channel closed) {
+        if (closed != channel) return;
+
+        long alive = System.currentTimeMillis() - connectedAt;
+        disconnects++;
+        uptimeMillis += alive;
+        channel = null;
+        if (alive >= STABLE_AFTER) {
+            failures = 0;
+        }
+        log.info("GChat disconnected after {}ms", alive);
+        backoff();
+    }
+
+    private void backoff() {
+        if (!enabled) {
+            state = State.IDLE;
+            return;
+        }
+        if (skipBackoff) {
+            skipBackoff = false;
+            failures = 0;
+            state = State.IDLE;
+            connect();
+            return;
+        }
+
+        long base = baseDelay();
+        long delay = Math.min(MAX_BACKOFF, base << Math.min(failures, 16));
+        // equal jitter, so a server restart does not get every client back in the same second
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        failures++;
+
+        state = State.BACKOFF;
+        nextAttemptAt = System.currentTimeMillis() + delay;
+        retry = group.next().schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        log.info("GChat reconnecting in {}ms", delay);
+    }
+
+    private static long baseDelay() {
+        var config = ClientConfig.get();
+        return config == null ? DEFAULT_BACKOFF : config.reconnectDelay.get();
+    }
+
+    public synchronized Stats stats() {
+        long now = System.currentTimeMillis();
+        return new Stats(
+            state, channelType.getSimpleName(), failures,
+            attempts, connects, failed, disconnects,
+            lastConnectMillis, connects == 0 ? 0 : totalConnectMillis / connects,
+            uptimeMillis + (state == State.CONNECTED ? now - connectedAt : 0),
+            state == State.BACKOFF ? Math.max(0, nextAttemptAt - now) : 0
+        );
+    }
+
+    public record Stats(State state, String transport, int consecutiveFailures,
+                        long attempts, long connects, long failed, long disconnects,
+                        long lastConnectMillis, long avgConnectMillis, long uptimeMillis, long retryInMillis) {
+    }
+}
@@ -2,6 +2,7 @@ package dev.undefinedteam.gclient;
 
 import com.mojang.authlib.GameProfile;
 import com.mojang.blaze3d.systems.RenderSystem;
+import dev.undefinedteam.gclient.assets.AssetDownloader;
 import dev.undefinedteam.gclient.assets.AssetsManager;
 import dev.undefinedteam.gclient.codec.CompressionDecoder;
 import dev.undefinedteam.gclient.data.AssetData;
@@ -12,29 +13,33 @@ import dev.undefinedteam.gclient.packets.c2s.login.ReqChatC2S;
 import dev.undefinedteam.gclient.packets.c2s.play.DisconnectC2S;
 import dev.undefinedteam.gclient.packets.c2s.play.IGNChangeC2S;
 import dev.undefinedteam.gclient.packets.c2s.play.PongC2S;
-import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceC2S;
 import dev.undefinedteam.gclient.packets.c2s.verify.HandshakeC2S;
 import dev.undefinedteam.gclient.packets.c2s.verify.RegisterC2S;
 import dev.undefinedteam.gclient.packets.c2s.verify.ReqClientC2S;
 import dev.undefinedteam.gclient.packets.s2c.login.UserInfoS2C;
 import dev.undefinedteam.gclient.packets.s2c.play.*;
+import dev.undefinedteam.gclient.packets.s2c.resource.ResourceChunkS2C;
 import dev.undefinedteam.gclient.packets.s2c.resource.ResourceDataS2C;
 import dev.undefinedteam.gclient.packets.s2c.resource.ResourceListS2C;
 import dev.undefinedteam.gclient.packets.s2c.verify.ExpireDataS2C;
 import dev.undefinedteam.gclient.packets.s2c.verify.RegisterStatusS2C;
 import dev.undefinedteam.gclient.text.Style;
 import dev.undefinedteam.gclient.text.Text;
+import dev.undefinedteam.gensh1n.system.TextReplacements;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import net.minecraft.client.MinecraftClient;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.Logger;
+
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
 import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
 import static dev.undefinedteam.gclient.GCClient.setupCompression;
+import static dev.undefinedteam.gclient.PacketHandlers.Dispatch.*;
 import static dev.undefinedteam.gclient.GChat.LOG_PREFIX;
 
 @StringEncryption
@@ -52,6 +57,7 @@ public class GCUser extends SimpleChannelInboundHandler<Packet> {
     public long expireTime = System.currentTimeMillis();
 
     public UserList users = new UserList();
+    public final AssetDownloader downloader = new AssetDownloader(this, AssetsManager.INSTANCE);
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
@@ -74,107 +80,151 @@ public class GCUser extends SimpleChannelInboundHandler<Packet> {
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
         super.channelInactive(ctx);
+        downloader.close();
         GCClient.INSTANCE.session = null;
     }
 
     public static boolean init;
 
+    private static final PacketHandlers HANDLERS = new PacketHandlers()
+        .on(PingS2C.class, INLINE, GCUser::onPing)
+        .on(ExpireDataS2C.class, INLINE, GCUser::onExpire)
+        .on(RegisterStatusS2C.class, INLINE, GCUser::onRegisterStatus)
+        .on(UserInfoS2C.class, WORKER, GCUser::onUserInfo)
+        .on(ResourceListS2C.class, WORKER, GCUser::onResourceList)
+        .on(ResourceDataS2C.class, WORKER, GCUser::onResourceData)
+        .on(ResourceChunkS2C.class, WORKER, GCUser::onResourceChunk)
+        .on(OnlineUsersS2C.class, CLIENT, GCUser::onOnlineUsers)
+        .on(MessageS2C.class, CLIENT, GCUser::onMessage)
+        .on(DisconnectS2C.class, CLIENT, GCUser::onDisconnect)
+        .on(ChatMessageS2C.class, CLIENT, GCUser::onChatMessage);
+
+    public static PacketHandlers handlers() {
+        return HANDLERS;
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Packet packet) throws Exception {
-        var mc = MinecraftClient.getInstance();
-
         if (GCClient.get().session() == null) {
             GCClient.get().session = this;
         } else if (GCClient.get().session() != this) {
-            this.channel.close().awaitUninterruptibly();
+            if (packet instanceof ResourceChunkS2C chunk) chunk.release();
+            this.channel.close();
+            return;
+        }
+
+        HANDLERS.dispatch(this, packet, GCUser::forwardToListener);
+    }
+
+    private void forwardToListener(Packet packet) {
+        if (GCClient.INSTANCE.listener != null) {
+            GCClient.INSTANCE.listener.accept(this, packet);
         }
+    }
 
-        if (packet instanceof UserInfoS2C userInfoS2C) {
-            this.mUserInfo = userInfoS2C.data;
-            var missingAssets = AssetsManager.INSTANCE.missingData;
-            String[] missings = new String[missingAssets.size()];
-            for (int i = 0; i < missings.length; i++) {
-                missings[i] = missingAssets.get(i).location;
+    private void onPing(PingS2C s2c) {
+        long time = System.currentTimeMillis();
+        this.ping = time - s2c.ping;
+        send(new PongC2S(time));
+    }
+
+    private void onUserInfo(UserInfoS2C userInfoS2C) {
+        this.mUserInfo = userInfoS2C.data;
+        for (AssetData missing : AssetsManager.INSTANCE.missing()) {
+            downloader.enqueue(missing.location, missing.md5Hex);
+        }
+    }
+
+    private void onRegisterStatus(RegisterStatusS2C statusS2C) {
+        if (statusS2C.code == 200) {
+            String name = GChat.INSTANCE.username;
+            String passwd = GChat.INSTANCE.passwd;
+            if (name != null && passwd != null && !name.isEmpty() && !passwd.isEmpty()) {
+                loginInChat(name, passwd);
             }
+        }
+    }
+
+    private void onOnlineUsers(OnlineUsersS2C onlineUsersS2C) {
+        this.users.users.clear();
+        this.users.users.addAll(onlineUsersS2C.online.users);
+        TextReplacements.refresh();
+    }
 
-            send(new ReqResourceC2S(missings));
-        } else if (packet instanceof OnlineUsersS2C onlineUsersS2C) {
-            this.users.users.clear();
-            this.users.users.addAll(onlineUsersS2C.online.users);
-        } else if (packet instanceof ExpireDataS2C expireDataS2C) {
-            onExpire(expireDataS2C);
-        } else if (packet instanceof PingS2C s2c) {
-            long time = System.currentTimeMillis();
-            this.ping = time - s2c.ping;
-            send(new PongC2S(time));
-        } else if (packet instanceof ResourceListS2C res) {
-            for (AssetData assetDatum : res.assets.assetData) {
-                LOG.info("Receive Res: {}", assetDatum.location);
-                if (AssetsManager.INSTANCE.find(assetDatum.location) == null) {
-                    send(new ReqResourceC2S(assetDatum.location));
-                }
+    private void onResourceList(ResourceListS2C res) {
+        for (AssetData assetDatum : res.assets.assetData) {
+            LOG.info("Receive Res: {}", assetDatum.location);
+            if (AssetsManager.INSTANCE.find(assetDatum.location) == null) {
+                downloader.enqueue(assetDatum.location, assetDatum.md5Hex);
             }
-        } else if (packet instanceof ResourceDataS2C dataS2C) {
-            LOG.info("Download Res: {} md5: {},{} bytes", dataS2C.location, dataS2C.md5, dataS2C.data.length);
-            AssetsManager.INSTANCE.add(dataS2C.location, dataS2C.md5, dataS2C.data);
-        } else if (packet instanceof MessageS2C p) {
+        }
+    }
+
+    private void onResourceData(ResourceDataS2C dataS2C) {
+        LOG.info("Download Res: {} md5: {},{} bytes", dataS2C.location, dataS2C.md5, dataS2C.data.length);
+        AssetsManager.INSTANCE.add(dataS2C.location, dataS2C.md5, dataS2C.data);
+        downloader.onWhole(dataS2C.location);
+    }
+
+    private void onResourceChunk(ResourceChunkS2C chunk) {
+        try {
+            downloader.onChunk(chunk);
+        } finally {
+            chunk.release();
+        }
+    }
+
+    private void onMessage(MessageS2C p) {
+        var mc = MinecraftClient.getInstance();
+        var text = LOG_PREFIX.copy();
+        text.append(Text.of(" [").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY)))
+            .append(p.title)
+            .append(Text.of("]: ").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY)))
+            .append(p.message);
+        if (mc != null && mc.player != null && mc.world != null) {
+            sendMessage(mc, text);
+        } else LOG.info(text);
+    }
+
+    private void onDisconnect(DisconnectS2C p) {
+        var mc = MinecraftClient.getInstance();
+        //netHandler.sendMessage("{}[{}Lemon{}Chat{}]{} Disconnect: {}", ChatFormatting.GRAY, ChatFormatting.YELLOW, ChatFormatting.GREEN, ChatFormatting.GRAY, ChatFormatting.RESET, p.reason);
+        if (mc != null && mc.player != null && mc.world != null) {
             var text = LOG_PREFIX.copy();
-            text.append(Text.of(" [").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY)))
-                .append(p.title)
-                .append(Text.of("]: ").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY)))
-                .append(p.message);
-            if (mc != null && mc.player != null && mc.world != null) {
-                sendMessage(mc, text);
-            } else LOG.info(text);
-        } else if (packet instanceof DisconnectS2C p) {
-            //netHandler.sendMessage("{}[{}Lemon{}Chat{}]{} Disconnect: {}", ChatFormatting.GRAY, ChatFormatting.YELLOW, ChatFormatting.GREEN, ChatFormatting.GRAY, ChatFormatting.RESET, p.reason);
-            if (mc != null && mc.player != null && mc.world != null) {
-                var text = LOG_PREFIX.copy();
-                text.append(Text.of(" Disconnect: ").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY)));
-                text.append(p.reason).setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
-                sendMessage(mc, text);
-            } else LOG.info("Disconnect: " + p.reason);
-        } else if (packet instanceof ChatMessageS2C p) {
-            Text msg = LOG_PREFIX.copy().append(" ");
-            var sender = p.sender;
-
-            if (!p.isCommand) {
-                var l = Text.of("[").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
-                var r = Text.of("]").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
-                var name = Text.of(sender.group).setStyle(Style.EMPTY.withFormatting(sender.name_color.formatting));
-
-                msg.append(l).append(name).append(r);
-
-                if (sender.mNameTag != null) {
-                    var l1 = Text.of("[").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
-                    var r1 = Text.of("]").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
-                    var tag = Text.of(sender.mNameTag).setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
-                    msg.append(l1).append(tag).append(r1);
-                }
-
-                var nick = Text.of(" " + sender.mNickName + ": ").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
-                msg.append(nick);
-            }
+            text.append(Text.of(" Disconnect: ").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY)));
+            text.append(p.reason).setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
+            sendMessage(mc, text);
+        } else LOG.info("Disconnect: " + p.reason);
+    }
+
+    private void onChatMessage(ChatMessageS2C p) {
+        var mc = MinecraftClient.getInstance();
+        Text msg = LOG_PREFIX.copy().append(" ");
+        var sender = p.sender;
+
+        if (!p.isCommand) {
+            var l = Text.of("[").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
+            var r = Text.of("]").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
+            var name = Text.of(sender.group).setStyle(Style.EMPTY.withFormatting(sender.name_color.formatting));
+
+            msg.append(l).append(name).append(r);
 
-            msg.append(p.message);
-
-            if (mc != null && mc.player != null && mc.world != null) {
-                sendMessage(mc, msg);
-            } else LOG.info(msg);
-        } else if (packet instanceof RegisterStatusS2C statusS2C) {
-            if (statusS2C.code == 200) {
-                String name = GChat.INSTANCE.username;
-                String passwd = GChat.INSTANCE.passwd;
-                if (name != null && passwd != null && !name.isEmpty() && !passwd.isEmpty()) {
-                    loginInChat(name, passwd);
-                }
+            if (sender.mNameTag != null) {
+                var l1 = Text.of("[").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
+                var r1 = Text.of("]").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
+                var tag = Text.of(sender.mNameTag).setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
+                msg.append(l1).append(tag).append(r1);
             }
-        } else if(packet instanceof CustomPayloadS2C payload) {
-        }
 
-        if (GCClient.INSTANCE.listener != null) {
-            GCClient.INSTANCE.listener.accept(this, packet);
+            var nick = Text.of(" " + sender.mNickName + ": ").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY));
+            msg.append(nick);
         }
+
+        msg.append(p.message);
+
+        if (mc != null && mc.player != null && mc.world != null) {
+            sendMessage(mc, msg);
+        } else LOG.info(msg);
     }
 
     public void sendMessage(MinecraftClient mc, Text text, Object... args) {
@@ -241,6 +291,7 @@ public class GCUser extends SimpleChannelInboundHandler<Packet> {
     }
 
     public void tick() {
+        downloader.tick();
         if (this.channel != null) {
             this.channel.flush();
         }
@@ -279,9 +330,9 @@ public class GCUser extends SimpleChannelInboundHandler<Packet> {
     public void disconnect(String reason, Object... args) {
         reason = getReplaced(reason, args);
         if (this.channel.isOpen()) {
-            this.send(new DisconnectC2S(reason));
             LOG.info("Disconnect: {}", reason);
-            this.channel.close().awaitUninterruptibly();
+            // close once the goodbye is flushed, callers are usually on the client thread
+            this.channel.writeAndFlush(new DisconnectC2S(reason)).addListener(ChannelFutureListener.CLOSE);
         }
     }
 
@@ -7,9 +7,7 @@ import dev.undefinedteam.gclient.assets.AssetsManager;
 import dev.undefinedteam.gclient.data.GsonUtils;
 import dev.undefinedteam.gclient.text.Style;
 import dev.undefinedteam.gclient.text.Text;
-import dev.undefinedteam.gensh1n.system.ClientConfig;
-import dev.undefinedteam.gensh1n.utils.chat.ChatUtils;
-import dev.undefinedteam.gensh1n.utils.network.NetPayload;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
 import org.apache.commons.codec.binary.Base64;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
 import tech.skidonion.obfuscator.annotations.NativeObfuscation;
@@ -43,13 +41,10 @@ public class GChat {
 
     public String username, passwd;
 
-    public Timer timer = new Timer();
-    private final AsyncWorkerThread worker = new AsyncWorkerThread();
-    public final Executor executor = worker::submit;
+    public final Executor executor = PriorityExecutor.SHARED.executor(PriorityExecutor.Priority.NORMAL);
 
     public GChat() {
         INSTANCE = this;
-        worker.start();
         if (!FOLDER.exists()) FOLDER.mkdirs();
 
         try {
@@ -80,17 +75,6 @@ public class GChat {
         }
     }
 
-
-    public void reconnectCheck() {
-        if (success) {
-            if (GCClient.INSTANCE.session() == null && ClientConfig.get() != null && timer.check(ClientConfig.get().reconnectDelay.get())) {
-                GCClient.get().connect();
-                NetPayload.pre(() -> ChatUtils.info("尝试重新连接GChat"));
-                timer.reset();
-            }
-        }
-    }
-
     public void save() throws IOException {
         AssetsManager.INSTANCE.save();
         saveUser();
@@ -0,0 +1,189 @@
+package dev.undefinedteam.gclient;
+
+import dev.undefinedteam.gclient.packets.Packet;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Packet handlers keyed by packet class. Each handler declares where it runs so the
+ * event loop only does the cheap work and keeps decoding (and answering pings) under load.
+ */
+public class PacketHandlers {
+    public enum Dispatch {
+        /**
+         * On the netty event loop, for cheap handlers that must not wait (ping/pong)
+         */
+        INLINE,
+        /**
+         * On the shared worker pool, in arrival order (disk and asset work)
+         */
+        WORKER,
+        /**
+         * Batched onto the client thread, drained once per tick (chat, MinecraftClient access)
+         */
+        CLIENT
+    }
+
+    @FunctionalInterface
+    public interface Handler<T extends Packet> {
+        void handle(GCUser session, T packet) throws Exception;
+    }
+
+    private record Entry(Dispatch dispatch, Handler<Packet> handler) {
+    }
+
+    private static final Entry NONE = new Entry(Dispatch.INLINE, null);
+
+    private final Map<Class<?>, Entry> entries = new IdentityHashMap<>();
+    private final ClassValue<Entry> table = new ClassValue<>() {
+        @Override
+        protected Entry computeValue(Class<?> type) {
+            synchronized (entries) {
+                return entries.getOrDefault(type, NONE);
+            }
+        }
+    };
+
+    private final Queue<Runnable> clientQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> workerQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean workerScheduled = new AtomicBoolean();
+    /**
+     * Tasks queued for the worker or the client thread that have not finished, {@link #awaitIdle} waits for none
+     */
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Object idle = new Object();
+    private final Executor worker;
+
+    public PacketHandlers(Executor worker) {
+        this.worker = worker;
+    }
+
+    public PacketHandlers() {
+        this(PriorityExecutor.SHARED.executor(PriorityExecutor.Priority.NORMAL));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends Packet> PacketHandlers on(Class<T> type, Dispatch dispatch, Handler<? super T> handler) {
+        synchronized (entries) {
+            entries.put(type, new Entry(dispatch, (Handler<Packet>) handler));
+        }
+        table.remove(type);
+        return this;
+    }
+
+    public Dispatch dispatchOf(Class<? extends Packet> type) {
+        return table.get(type).dispatch;
+    }
+
+    /**
+     * Runs the handler for the packet where it asked to run, then {@code after} on the same thread.
+     */
+    public void dispatch(GCUser session, Packet packet, Handler<Packet> after) {
+        var entry = table.get(packet.getClass());
+        var metrics = session == null || session.channel == null ? null : PacketMetrics.of(session.channel);
+        long queued = metrics == null ? 0 : System.nanoTime();
+        Runnable task = () -> {
+            long start = metrics == null ? 0 : System.nanoTime();
+            try {
+                if (entry.handler != null) {
+                    entry.handler.handle(session, packet);
+                }
+                if (after != null) {
+                    after.handle(session, packet);
+                }
+            } catch (Throwable t) {
+                GCUser.LOG.error("Failed to handle {}", packet.getClass().getSimpleName(), t);
+            }
+            if (metrics != null) {
+                long end = System.nanoTime();
+                metrics.entry(packet.getClass()).handled(start - queued, end - start);
+            }
+        };
+
+        switch (entry.dispatch) {
+            case INLINE -> task.run();
+            case WORKER -> {
+                workerQueue.add(counted(task));
+                scheduleWorker();
+            }
+            case CLIENT -> clientQueue.add(counted(task));
+        }
+    }
+
+    /**
+     * Runs everything queued for the client thread. Called once per tick.
+     */
+    public void drainClient() {
+        // only what was queued before this tick, a flood spills into the next one
+        int pending = clientQueue.size();
+        Runnable task;
+        while (pending-- > 0 && (task = clientQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    public int pendingClient() {
+        return clientQueue.size();
+    }
+
+    public int pendingWorker() {
+        return workerQueue.size();
+    }
+
+    /**
+     * Blocks until every task queued for the worker and the client thread has run.
+     *
+     * @return false if that took longer than the timeout
+     */
+    public boolean awaitIdle(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (idle) {
+            while (outstanding.get() > 0) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) return false;
+                idle.wait(left);
+            }
+        }
+        return true;
+    }
+
+    private Runnable counted(Runnable task) {
+        outstanding.incrementAndGet();
+        return () -> {
+            try {
+                task.run();
+            } finally {
+                if (outstanding.decrementAndGet() == 0) {
+                    synchronized (idle) {
+                        idle.notifyAll();
+                    }
+                }
+            }
+        };
+    }
+
+    private void scheduleWorker() {
+        if (workerScheduled.compareAndSet(false, true)) {
+            worker.execute(this::drainWorker);
+        }
+    }
+
+    private void drainWorker() {
+        Runnable task;
+        while ((task = workerQueue.poll()) != null) {
+            task.run();
+        }
+        workerScheduled.set(false);
+        // a task may have been queued after the last poll but before the flag was cleared
+        if (!workerQueue.isEmpty()) {
+            scheduleWorker();
+        }
+    }
+}
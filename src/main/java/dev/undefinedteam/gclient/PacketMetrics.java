@@ -0,0 +1,262 @@
+package dev.undefinedteam.gclient;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per packet class traffic and timing for the GChat link. Only channels carrying the {@link #KEY}
+ * attribute are recorded, so benchmarks and embedded pipelines stay out of the numbers.
+ */
+public class PacketMetrics {
+    public static final PacketMetrics GLOBAL = new PacketMetrics();
+    public static final AttributeKey<PacketMetrics> KEY = AttributeKey.valueOf("gchat_metrics");
+    /**
+     * Size of the frame currently travelling through the pipeline as it was on the wire
+     */
+    private static final AttributeKey<int[]> FRAME = AttributeKey.valueOf("gchat_frame");
+    /**
+     * Packet class of the message being encoded, so the frame stages can attribute the wire size
+     */
+    private static final AttributeKey<Entry> OUTBOUND = AttributeKey.valueOf("gchat_outbound");
+
+    private final ConcurrentHashMap<Class<?>, Entry> registered = new ConcurrentHashMap<>();
+    private final ClassValue<Entry> entries = new ClassValue<>() {
+        @Override
+        protected Entry computeValue(Class<?> type) {
+            return registered.computeIfAbsent(type, Entry::new);
+        }
+    };
+
+    private volatile long created = System.nanoTime();
+
+    public static PacketMetrics of(Channel channel) {
+        return channel.attr(KEY).get();
+    }
+
+    public Entry entry(Class<?> type) {
+        return entries.get(type);
+    }
+
+    /**
+     * Remembers the on-wire size of the frame the decoders are about to process.
+     */
+    public static void frame(Channel channel, int wireBytes) {
+        var frame = channel.attr(FRAME).get();
+        if (frame == null) {
+            frame = new int[1];
+            channel.attr(FRAME).set(frame);
+        }
+        frame[0] = wireBytes;
+    }
+
+    /**
+     * @return the on-wire size recorded by {@link #frame}, or -1 if none is pending
+     */
+    public static int takeFrame(Channel channel) {
+        var frame = channel.attr(FRAME).get();
+        if (frame == null) return -1;
+        int size = frame[0];
+        frame[0] = -1;
+        return size;
+    }
+
+    public static void outbound(Channel channel, Entry entry) {
+        channel.attr(OUTBOUND).set(entry);
+    }
+
+    /**
+     * Attributes a finished outbound frame to the packet recorded by {@link #outbound}.
+     */
+    public static void sent(Channel channel, int wireBytes) {
+        if (!channel.hasAttr(OUTBOUND)) return;
+        var entry = channel.attr(OUTBOUND).getAndSet(null);
+        if (entry != null) entry.sent(wireBytes);
+    }
+
+    public List<Snapshot> snapshot() {
+        var list = new ArrayList<Snapshot>(registered.size());
+        for (Entry entry : registered.values()) {
+            list.add(entry.snapshot());
+        }
+        list.sort(Comparator.comparingLong((Snapshot s) -> s.inWire + s.outWire).reversed());
+        return list;
+    }
+
+    /**
+     * Handler latency over all packet classes.
+     */
+    public Histogram handlerLatency() {
+        var total = new Histogram();
+        for (Entry entry : registered.values()) {
+            total.add(entry.handlerLatency);
+        }
+        return total;
+    }
+
+    public long uptimeNanos() {
+        return System.nanoTime() - created;
+    }
+
+    public void reset() {
+        registered.values().forEach(Entry::reset);
+        created = System.nanoTime();
+    }
+
+    public static class Entry {
+        public final Class<?> type;
+
+        private final LongAdder inCount = new LongAdder();
+        private final LongAdder inWire = new LongAdder();
+        private final LongAdder inRaw = new LongAdder();
+        private final LongAdder decodeNanos = new LongAdder();
+        private final AtomicLong maxDecodeNanos = new AtomicLong();
+
+        private final LongAdder outCount = new LongAdder();
+        private final LongAdder outWire = new LongAdder();
+        private final LongAdder outRaw = new LongAdder();
+
+        private final LongAdder handled = new LongAdder();
+        private final LongAdder queueNanos = new LongAdder();
+        private final LongAdder handlerNanos = new LongAdder();
+        private final AtomicLong maxHandlerNanos = new AtomicLong();
+        public final Histogram handlerLatency = new Histogram();
+
+        Entry(Class<?> type) {
+            this.type = type;
+        }
+
+        public void decoded(int wire, int raw, long nanos) {
+            inCount.increment();
+            inWire.add(wire);
+            inRaw.add(raw);
+            decodeNanos.add(nanos);
+            maxDecodeNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public void encoded(int raw) {
+            outCount.increment();
+            outRaw.add(raw);
+        }
+
+        public void sent(int wire) {
+            outWire.add(wire);
+        }
+
+        public void handled(long queued, long nanos) {
+            handled.increment();
+            queueNanos.add(queued);
+            handlerNanos.add(nanos);
+            maxHandlerNanos.accumulateAndGet(nanos, Math::max);
+            handlerLatency.record(nanos);
+        }
+
+        public Snapshot snapshot() {
+            long in = inCount.sum();
+            long done = handled.sum();
+            return new Snapshot(type.getSimpleName(),
+                in, inWire.sum(), inRaw.sum(),
+                in == 0 ? 0 : decodeNanos.sum() / in, maxDecodeNanos.get(),
+                outCount.sum(), outWire.sum(), outRaw.sum(),
+                done, done == 0 ? 0 : queueNanos.sum() / done,
+                done == 0 ? 0 : handlerNanos.sum() / done, handlerLatency.percentile(0.99), maxHandlerNanos.get());
+        }
+
+        void reset() {
+            inCount.reset();
+            inWire.reset();
+            inRaw.reset();
+            decodeNanos.reset();
+            maxDecodeNanos.set(0);
+            outCount.reset();
+            outWire.reset();
+            outRaw.reset();
+            handled.reset();
+            queueNanos.reset();
+            handlerNanos.reset();
+            maxHandlerNanos.set(0);
+            handlerLatency.reset();
+        }
+    }
+
+    /**
+     * Lock-free log-linear histogram, four buckets per power of two so percentiles are within 25%.
+     */
+    public static class Histogram {
+        private static final int SUB = 4;
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB);
+
+        public void record(long value) {
+            buckets.incrementAndGet(index(Math.max(1, value)));
+        }
+
+        public void add(Histogram other) {
+            for (int i = 0; i < buckets.length(); i++) {
+                long count = other.buckets.get(i);
+                if (count != 0) buckets.addAndGet(i, count);
+            }
+        }
+
+        public long count() {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            return total;
+        }
+
+        /**
+         * @return the upper bound of the bucket holding the given quantile, 0 when empty
+         */
+        public long percentile(double quantile) {
+            long total = count();
+            if (total == 0) return 0;
+
+            long target = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) return upper(i);
+            }
+            return upper(buckets.length() - 1);
+        }
+
+        public void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        private static int index(long value) {
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            if (exp < 2) return (int) value;
+            return exp * SUB + (int) ((value >>> (exp - 2)) & (SUB - 1));
+        }
+
+        private static long upper(int index) {
+            if (index < 2 * SUB) return index;
+            int exp = index / SUB;
+            return ((long) (SUB + index % SUB + 1) << (exp - 2)) - 1;
+        }
+    }
+
+    public record Snapshot(String name,
+                           long inCount, long inWire, long inRaw, long avgDecodeNanos, long maxDecodeNanos,
+                           long outCount, long outWire, long outRaw,
+                           long handled, long avgQueueNanos, long avgHandlerNanos, long p99HandlerNanos, long maxHandlerNanos) {
+        @Override
+        public String toString() {
+            return String.format("%s in=%d (%dB wire/%dB raw, decode %.1f/%.1fus) out=%d (%dB wire/%dB raw) handler %.1f/%.1f/%.1fus queued %.1fus",
+                name, inCount, inWire, inRaw, avgDecodeNanos / 1000.0, maxDecodeNanos / 1000.0,
+                outCount, outWire, outRaw,
+                avgHandlerNanos / 1000.0, p99HandlerNanos / 1000.0, maxHandlerNanos / 1000.0, avgQueueNanos / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package dev.undefinedteam.gclient.assets;
+
+import dev.undefinedteam.gclient.GCUser;
+import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceC2S;
+import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceRangeC2S;
+import dev.undefinedteam.gclient.packets.s2c.resource.ResourceChunkS2C;
+import dev.undefinedteam.gensh1n.system.ClientConfig;
+import org.apache.commons.codec.binary.Hex;
+import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
+import tech.skidonion.obfuscator.annotations.StringEncryption;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Chunked asset sync for one session. Missing assets are fetched as ranges, several assets and
+ * several chunks per asset in flight, every chunk is md5 checked and written straight into
+ * {@code <md5>.part}. A {@code .part.map} sidecar records the received chunks so a reconnect resumes.
+ * <p>
+ * Servers that never answer a range request get the whole-asset {@link ReqResourceC2S} instead.
+ */
+@StringEncryption
+@ControlFlowObfuscation
+public class AssetDownloader {
+    public static final int CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_PARALLEL = 4;
+    private static final int WINDOW = 4;
+    private static final int MAX_RETRIES = 3;
+    private static final int MAP_FLUSH_INTERVAL = 16;
+    private static final long RANGE_TIMEOUT = 10_000L;
+    private static final long CHUNK_TIMEOUT = 30_000L;
+    private static final long MAP_PREAMBLE = 0x47434d50L;
+
+    private final GCUser session;
+    private final AssetsManager store;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<String[]> pending = new ArrayDeque<>();
+    private final Map<String, Transfer> active = new LinkedHashMap<>();
+    private final Set<String> legacy = new HashSet<>();
+
+    private boolean rangeSupported = true;
+    private boolean rangeConfirmed;
+    private long firstRequestAt;
+
+    public AssetDownloader(GCUser session, AssetsManager store) {
+        this.session = session;
+        this.store = store;
+    }
+
+    /**
+     * Queues the asset unless it is already on its way.
+     */
+    public void enqueue(String location, String md5) {
+        lock.lock();
+        try {
+            if (active.containsKey(location) || legacy.contains(location)) return;
+            for (String[] entry : pending) {
+                if (entry[0].equals(location)) return;
+            }
+
+            if (!rangeSupported || md5 == null || md5.isEmpty()) {
+                requestWhole(location);
+                return;
+            }
+
+            pending.add(new String[]{location, md5});
+            fill();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onChunk(ResourceChunkS2C chunk) {
+        lock.lock();
+        try {
+            var transfer = active.get(chunk.location);
+            if (transfer == null || !transfer.md5.equalsIgnoreCase(chunk.md5)) return;
+
+            rangeConfirmed = true;
+            if (!transfer.accept(chunk)) {
+                abort(transfer);
+                return;
+            }
+
+            if (transfer.complete()) {
+                active.remove(transfer.location);
+                finish(transfer);
+                fill();
+            } else {
+                transfer.fillWindow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A whole asset arrived through {@code ResourceDataS2C}, drop whatever was in flight for it.
+     */
+    public void onWhole(String location) {
+        lock.lock();
+        try {
+            legacy.remove(location);
+            var transfer = active.remove(location);
+            if (transfer != null) {
+                transfer.close();
+                transfer.discard();
+            }
+            fill();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retries stalled chunks and falls back to whole-asset requests when the server ignores ranges.
+     */
+    public void tick() {
+        // the worker may be verifying a finished asset, it is fine to look again next tick
+        if (!lock.tryLock()) return;
+        try {
+            long now = System.currentTimeMillis();
+            if (rangeSupported && !rangeConfirmed && !active.isEmpty() && now - firstRequestAt > RANGE_TIMEOUT) {
+                GCUser.LOG.info("Server does not answer range requests, downloading whole assets");
+                rangeSupported = false;
+
+                var locations = new ArrayList<String>();
+                for (Transfer transfer : active.values()) {
+                    transfer.close();
+                    locations.add(transfer.location);
+                }
+                active.clear();
+                for (String[] entry : pending) {
+                    locations.add(entry[0]);
+                }
+                pending.clear();
+
+                legacy.addAll(locations);
+                session.send(new ReqResourceC2S(locations.toArray(new String[0])));
+                return;
+            }
+
+            for (Transfer transfer : active.values()) {
+                transfer.retryStalled(now);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes resume state and closes the part files, called when the session goes away.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            for (Transfer transfer : active.values()) {
+                transfer.close();
+            }
+            active.clear();
+            pending.clear();
+            legacy.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return active.size() + legacy.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int parallel() {
+        var config = ClientConfig.get();
+        return config == null ? DEFAULT_PARALLEL : config.assetDownloads.get();
+    }
+
+    private void fill() {
+        int limit = parallel();
+        while (active.size() < limit && !pending.isEmpty()) {
+            var entry = pending.poll();
+            var transfer = new Transfer(entry[0], entry[1]);
+            try {
+                transfer.open();
+            } catch (IOException e) {
+                GCUser.LOG.error("Failed to open part file for {}", transfer.location, e);
+                transfer.close();
+                requestWhole(transfer.location);
+                continue;
+            }
+
+            if (active.isEmpty() && !rangeConfirmed) {
+                firstRequestAt = System.currentTimeMillis();
+            }
+            active.put(transfer.location, transfer);
+            transfer.fillWindow();
+        }
+    }
+
+    private void finish(Transfer transfer) {
+        try {
+            transfer.channel.force(false);
+            transfer.close();
+
+            // read rather than mapped, a mapping outlives the channel and would keep the move below from replacing the blob
+            var digest = md5();
+            var buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            try (FileChannel channel = FileChannel.open(transfer.part.toPath(), StandardOpenOption.READ)) {
+                while (channel.read(buffer.clear()) > 0) {
+                    digest.update(buffer.flip());
+                }
+            }
+            if (!Hex.encodeHexString(digest.digest()).equalsIgnoreCase(transfer.md5)) {
+                GCUser.LOG.warn("Asset {} failed verification, downloading it whole", transfer.location);
+                transfer.discard();
+                requestWhole(transfer.location);
+                return;
+            }
+
+            Files.move(transfer.part.toPath(), store.blob(transfer.md5).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(transfer.map.toPath());
+        } catch (IOException e) {
+            GCUser.LOG.error("Failed to finish {}", transfer.location, e);
+            transfer.discard();
+            requestWhole(transfer.location);
+            return;
+        }
+
+        GCUser.LOG.info("Download Res: {} md5: {},{} bytes", transfer.location, transfer.md5, transfer.total);
+        store.commit(transfer.location, transfer.md5);
+    }
+
+    private void abort(Transfer transfer) {
+        active.remove(transfer.location);
+        transfer.close();
+        transfer.discard();
+        requestWhole(transfer.location);
+        fill();
+    }
+
+    private void requestWhole(String location) {
+        if (legacy.add(location)) {
+            session.send(new ReqResourceC2S(location));
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class Transfer {
+        final String location;
+        final String md5;
+        final File part;
+        final File map;
+        final Map<Integer, Long> inflight = new HashMap<>();
+        final Map<Integer, Integer> retries = new HashMap<>();
+        final MessageDigest digest = md5();
+
+        FileChannel channel;
+        BitSet received = new BitSet();
+        long total = -1;
+        int chunks;
+        int unsaved;
+
+        Transfer(String location, String md5) {
+            this.location = location;
+            this.md5 = md5;
+            this.part = new File(store.FOLDER, md5 + ".part");
+            this.map = new File(store.FOLDER, md5 + ".part.map");
+        }
+
+        void open() throws IOException {
+            channel = FileChannel.open(part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            if (!map.exists()) return;
+
+            try (var in = new DataInputStream(Files.newInputStream(map.toPath()))) {
+                if (in.readLong() != MAP_PREAMBLE) return;
+                long size = in.readLong();
+                byte[] bits = in.readNBytes(in.readInt());
+                if (size >= 0) {
+                    setTotal(size);
+                    received = BitSet.valueOf(bits);
+                }
+            } catch (IOException e) {
+                // unreadable map, start over but keep the part file around for the writes
+                received = new BitSet();
+                total = -1;
+            }
+
+            if (total >= 0) {
+                GCUser.LOG.info("Resuming {} at {}/{} chunks", location, received.cardinality(), chunks);
+            }
+        }
+
+        void setTotal(long size) {
+            total = size;
+            chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        }
+
+        boolean complete() {
+            return total >= 0 && received.cardinality() >= chunks;
+        }
+
+        /**
+         * @return false when the asset cannot be fetched in ranges any more
+         */
+        boolean accept(ResourceChunkS2C chunk) {
+            if (total < 0) {
+                setTotal(chunk.total);
+            } else if (chunk.total != total) {
+                // the server has a different file under this md5, the part file is useless
+                return false;
+            }
+
+            if (chunk.offset % CHUNK_SIZE != 0 || chunk.offset >= Math.max(total, 1)) return true;
+            int index = (int) (chunk.offset / CHUNK_SIZE);
+            if (inflight.remove(index) == null && received.get(index)) return true;
+
+            var data = chunk.data.nioBuffer();
+            digest.reset();
+            digest.update(data.duplicate());
+            if (data.remaining() != length(index) || !Hex.encodeHexString(digest.digest()).equalsIgnoreCase(chunk.chunkMd5)) {
+                int retry = retries.merge(index, 1, Integer::sum);
+                if (retry > MAX_RETRIES) return false;
+                GCUser.LOG.warn("Chunk {} of {} is corrupt, retrying", index, location);
+                request(index);
+                return true;
+            }
+
+            try {
+                long position = chunk.offset;
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+            } catch (IOException e) {
+                GCUser.LOG.error("Failed to write chunk {} of {}", index, location, e);
+                return false;
+            }
+
+            received.set(index);
+            if (++unsaved >= MAP_FLUSH_INTERVAL) saveMap();
+            return true;
+        }
+
+        int length(int index) {
+            return (int) Math.min(CHUNK_SIZE, total - (long) index * CHUNK_SIZE);
+        }
+
+        void fillWindow() {
+            if (total < 0) {
+                // the first answer tells us the size
+                if (inflight.isEmpty()) request(0);
+                return;
+            }
+
+            for (int i = received.nextClearBit(0); i < chunks && inflight.size() < WINDOW; i = received.nextClearBit(i + 1)) {
+                if (!inflight.containsKey(i)) request(i);
+            }
+        }
+
+        void retryStalled(long now) {
+            for (var entry : inflight.entrySet()) {
+                if (now - entry.getValue() > CHUNK_TIMEOUT) {
+                    request(entry.getKey());
+                }
+            }
+        }
+
+        void request(int index) {
+            inflight.put(index, System.currentTimeMillis());
+            int length = total < 0 ? CHUNK_SIZE : length(index);
+            session.send(new ReqResourceRangeC2S(location, md5, (long) index * CHUNK_SIZE, length));
+        }
+
+        void saveMap() {
+            if (total < 0 || channel == null) return;
+            unsaved = 0;
+            try {
+                // chunks must hit the disk before the map says they did
+                channel.force(false);
+                var tmp = new File(map.getPath() + ".tmp");
+                try (var out = new DataOutputStream(Files.newOutputStream(tmp.toPath()))) {
+                    byte[] bits = received.toByteArray();
+                    out.writeLong(MAP_PREAMBLE);
+                    out.writeLong(total);
+                    out.writeInt(bits.length);
+                    out.write(bits);
+                }
+                Files.move(tmp.toPath(), map.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                GCUser.LOG.warn("Failed to save resume state for {}", location, e);
+            }
+        }
+
+        void close() {
+            if (channel == null) return;
+            if (!complete()) saveMap();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+
+        void discard() {
+            try {
+                Files.deleteIfExists(part.toPath());
+                Files.deleteIfExists(map.toPath());
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -1,116 +1,272 @@
 package dev.undefinedteam.gclient.assets;
 
+import com.google.gson.Gson;
+import dev.undefinedteam.gclient.GCClient;
+import dev.undefinedteam.gclient.GCUser;
 import dev.undefinedteam.gclient.GChat;
 import dev.undefinedteam.gclient.data.AssetData;
 import dev.undefinedteam.gclient.data.AssetsSet;
+import dev.undefinedteam.gclient.data.GsonUtils;
+import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceC2S;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
 
 import static dev.undefinedteam.gclient.GChat.GSON;
 
+/**
+ * Content-addressed asset store. Blobs live under their md5 and are memory mapped on first use,
+ * the location -> md5 index is a json snapshot plus an append-only journal that is compacted from time to time.
+ */
 @StringEncryption
 @ControlFlowObfuscation
 public class AssetsManager {
+    private static final int COMPACT_THRESHOLD = 256;
+    private static final long DEFAULT_RESIDENT_LIMIT = 64L * 1024 * 1024;
+    private static final Gson JOURNAL_GSON = GsonUtils.newBuilderNoPretty().create();
+
     public static AssetsManager INSTANCE;
     public final File FOLDER = new File(GChat.INSTANCE.FOLDER, "assets");
     public final File CFG = new File(FOLDER, "assets.json");
-    public final List<AssetData> missingData = new ArrayList<>();
+    public final File JOURNAL = new File(FOLDER, "assets.journal");
+    /**
+     * Assets whose blob is not on disk, guarded by the manager like the rest of the index
+     */
+    private final List<AssetData> missingData = new ArrayList<>();
     public AssetsSet assets;
 
+    private final Map<String, AssetData> byLocation = new HashMap<>();
+    private final LinkedHashMap<String, ByteBuffer> mapped = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> requested = new HashSet<>();
+    private long residentBytes;
+    private long residentLimit = DEFAULT_RESIDENT_LIMIT;
+    private int journalEntries;
+
     public AssetsManager() {
         INSTANCE = this;
     }
 
-    public void init() throws IOException {
+    public synchronized void init() throws IOException {
         if (!FOLDER.exists()) FOLDER.mkdirs();
 
         this.assets = new AssetsSet();
+        byLocation.clear();
         missingData.clear();
+        evictAll();
 
         if (CFG.exists()) {
-            AssetsSet assetsSet = GSON.fromJson(Files.readString(CFG.toPath(), StandardCharsets.UTF_8), AssetsSet.class);
-            this.assets.addAll(assetsSet.assetData);
-            for (AssetData assetDatum : assets.assetData) {
-                AssetData data;
-                if ((data = assetsSet.find(assetDatum.location)) != null) {
-                    assetDatum.md5Hex = data.md5Hex;
-                }
-
-                File target = new File(FOLDER, assetDatum.md5Hex);
-                if (!target.exists()) {
-                    missingData.add(assetDatum);
+            AssetsSet snapshot = GSON.fromJson(Files.readString(CFG.toPath(), StandardCharsets.UTF_8), AssetsSet.class);
+            if (snapshot != null && snapshot.assetData != null) {
+                for (AssetData assetDatum : snapshot.assetData) {
+                    if (assetDatum != null) put(assetDatum.location, assetDatum.md5Hex);
                 }
             }
+        }
 
-            CompletableFuture.runAsync(() -> {
-                for (AssetData assetDatum : assets.assetData) {
-                    if (assetDatum != null) {
-                        File target = new File(FOLDER, assetDatum.md5Hex);
-                        if (target.exists()) {
-                            try {
-                                assetDatum.data = Files.readAllBytes(target.toPath());
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
-                        }
+        journalEntries = 0;
+        boolean torn = false;
+        if (JOURNAL.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(JOURNAL.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    try {
+                        var entry = JOURNAL_GSON.fromJson(line, AssetData.class);
+                        if (entry != null && entry.location != null) put(entry.location, entry.md5Hex);
+                        journalEntries++;
+                    } catch (Exception e) {
+                        // torn tail from a crash, everything before it is still good
+                        torn = true;
+                        break;
                     }
                 }
-            }, GChat.get().executor);
-        } else save();
+            }
+        }
+
+        for (AssetData assetDatum : assets.assetData) {
+            if (!isValidMd5(assetDatum.md5Hex) || !blob(assetDatum.md5Hex).exists()) {
+                missingData.add(assetDatum);
+            }
+        }
+
+        // compacting rewrites the journal without the torn line, appending after it would hide every later entry
+        if (torn || !CFG.exists() || journalEntries >= COMPACT_THRESHOLD) compact();
     }
 
-    public void add(String location, String md5, byte[] data) {
-        var assets = find(location);
-        if (assets == null) {
-            assets = new AssetData();
-            assets.location = location;
-            assets.md5Hex = md5;
-            assets.data = data;
-            this.assets.add(assets);
-        } else {
-            assets.md5Hex = md5;
-            assets.data = data;
+    private AssetData put(String location, String md5) {
+        var asset = byLocation.get(location);
+        if (asset == null) {
+            asset = new AssetData();
+            asset.location = location;
+            this.assets.add(asset);
+            byLocation.put(location, asset);
         }
+        asset.md5Hex = md5;
+        return asset;
+    }
 
-        missingData.remove(assets);
-        saveAssets();
+    public File blob(String md5) {
+        return new File(FOLDER, md5);
     }
 
-    public void saveAssets() {
-        CompletableFuture.runAsync(() -> {
-            try {
-                save();
-                for (AssetData assetDatum : assets.assetData) {
-                    if (assetDatum != null) {
-                        File target = new File(FOLDER, assetDatum.md5Hex);
-                        if (!target.exists()) {
+    /**
+     * @return whether the md5 can name a blob, anything else could point outside the folder
+     */
+    public static boolean isValidMd5(String md5) {
+        if (md5 == null || md5.length() != 32) return false;
+        for (int i = 0; i < md5.length(); i++) {
+            if (Character.digit(md5.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
 
-                            target.createNewFile();
-                            Files.write(target.toPath(), assetDatum.data);
-                        }
-                    }
+    /**
+     * @return a copy of the assets whose blob is not on disk
+     */
+    public synchronized List<AssetData> missing() {
+        return new ArrayList<>(missingData);
+    }
+
+    public void add(String location, String md5, byte[] data) {
+        if (!isValidMd5(md5)) {
+            GCUser.LOG.warn("Ignoring asset {} with invalid md5 '{}'", location, md5);
+            return;
+        }
+
+        var target = blob(md5);
+        try {
+            if (!target.exists()) {
+                // a temp file per call, two adds of the same blob must not write into each other
+                var tmp = Files.createTempFile(FOLDER.toPath(), md5, ".tmp");
+                try {
+                    Files.write(tmp, data);
+                    Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tmp);
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
             }
-        }, GChat.get().executor);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        commit(location, md5);
+    }
+
+    /**
+     * Records a blob that is already on disk under its md5.
+     */
+    public synchronized void commit(String location, String md5) {
+        if (!isValidMd5(md5)) return;
+
+        var previous = byLocation.get(location);
+        if (previous != null && !md5.equals(previous.md5Hex)) {
+            evict(location);
+        }
+
+        var asset = put(location, md5);
+        missingData.remove(asset);
+        requested.remove(location);
+
+        try {
+            Files.writeString(JOURNAL.toPath(), JOURNAL_GSON.toJson(asset) + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (++journalEntries >= COMPACT_THRESHOLD) compact();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Maps the asset on first use. Returns null and asks the server for it when the blob is not on disk yet.
+     */
+    public synchronized ByteBuffer get(String location) {
+        var buffer = mapped.get(location);
+        if (buffer != null) return buffer.duplicate();
+
+        var asset = byLocation.get(location);
+        if (asset == null) return null;
+
+        var file = blob(asset.md5Hex);
+        if (!file.exists()) {
+            request(location);
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        mapped.put(location, buffer);
+        residentBytes += buffer.capacity();
+        trim();
+        return buffer.duplicate();
+    }
+
+    private void request(String location) {
+        var session = GCClient.INSTANCE == null ? null : GCClient.INSTANCE.session();
+        if (session != null && requested.add(location)) {
+            session.send(new ReqResourceC2S(location));
+        }
+    }
+
+    public synchronized void evict(String location) {
+        var buffer = mapped.remove(location);
+        if (buffer != null) residentBytes -= buffer.capacity();
+    }
+
+    public synchronized void evictAll() {
+        mapped.clear();
+        residentBytes = 0;
+    }
+
+    public synchronized void setResidentLimit(long bytes) {
+        this.residentLimit = bytes;
+        trim();
+    }
+
+    public synchronized long residentBytes() {
+        return residentBytes;
+    }
+
+    private void trim() {
+        var it = mapped.entrySet().iterator();
+        // keep at least the most recent mapping even if it alone is over the limit
+        while (residentBytes > residentLimit && mapped.size() > 1 && it.hasNext()) {
+            residentBytes -= it.next().getValue().capacity();
+            it.remove();
+        }
+    }
+
+    /**
+     * Rewrites the snapshot from the in-memory index and truncates the journal.
+     */
+    public synchronized void compact() throws IOException {
+        var tmp = new File(FOLDER, CFG.getName() + ".tmp");
+        Files.writeString(tmp.toPath(), GSON.toJson(this.assets), StandardCharsets.UTF_8);
+        Files.move(tmp.toPath(), CFG.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(JOURNAL.toPath());
+        journalEntries = 0;
     }
 
-    public void save() throws IOException {
-        String json = GSON.toJson(this.assets);
-        if (!CFG.exists()) CFG.createNewFile();
-        Files.writeString(CFG.toPath(), json, StandardCharsets.UTF_8);
+    public synchronized void save() throws IOException {
+        if (journalEntries > 0 || !CFG.exists()) compact();
     }
 
-    public AssetData find(String location) {
-        return assets.find(location);
+    public synchronized AssetData find(String location) {
+        return byLocation.get(location);
     }
 }
@@ -0,0 +1,206 @@
+package dev.undefinedteam.gclient.codec;
+
+import dev.undefinedteam.gclient.Formatting;
+import dev.undefinedteam.gclient.data.NameColor;
+import dev.undefinedteam.gclient.packets.NetworkPacketsManager;
+import dev.undefinedteam.gclient.packets.Packet;
+import dev.undefinedteam.gclient.packets.PacketBuf;
+import dev.undefinedteam.gclient.packets.s2c.play.ChatMessageS2C;
+import dev.undefinedteam.gclient.packets.s2c.resource.ResourceDataS2C;
+import dev.undefinedteam.gclient.text.Style;
+import dev.undefinedteam.gclient.text.Text;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.zip.Inflater;
+
+/**
+ * Measures heap allocation per inbound packet for the client decode pipeline
+ * (splitter -> decompress -> decoder), next to the copying handlers it replaced.
+ */
+public class CodecBenchmark {
+    private static final int THRESHOLD = CompressionDecoder.MAXIMUM_COMPRESSED_LENGTH;
+    private static final int WARMUP = 200;
+
+    public record Result(String path, String pipeline, int wireBytes, long bytesPerPacket, long nanosPerPacket) {
+        @Override
+        public String toString() {
+            return String.format("%s [%s] wire=%dB alloc=%dB/packet time=%.1fus/packet", path, pipeline, wireBytes, bytesPerPacket, nanosPerPacket / 1000.0);
+        }
+    }
+
+    public static List<Result> run(int iterations) {
+        if (NetworkPacketsManager.INSTANCE == null) {
+            throw new IllegalStateException("GChat packets are not registered");
+        }
+
+        var results = new ArrayList<Result>();
+        var chat = frame(chatMessage());
+        var resource = frame(resourceData(256 * 1024));
+        try {
+            results.add(measure("ChatMessageS2C", "legacy", chat, iterations, CodecBenchmark::legacyPipeline));
+            results.add(measure("ChatMessageS2C", "pooled", chat, iterations, CodecBenchmark::pipeline));
+            results.add(measure("ResourceDataS2C", "legacy", resource, iterations, CodecBenchmark::legacyPipeline));
+            results.add(measure("ResourceDataS2C", "pooled", resource, iterations, CodecBenchmark::pipeline));
+        } finally {
+            chat.release();
+            resource.release();
+        }
+        return results;
+    }
+
+    private static ChannelHandler[] pipeline() {
+        return new ChannelHandler[]{new FrameDecoder(), new CompressionDecoder(THRESHOLD, true), new PacketDecoder(true)};
+    }
+
+    private static ChannelHandler[] legacyPipeline() {
+        return new ChannelHandler[]{new LegacyFrameDecoder(), new LegacyCompressionDecoder(), new PacketDecoder(true)};
+    }
+
+    private static Result measure(String path, String name, ByteBuf wire, int iterations, Supplier<ChannelHandler[]> handlers) {
+        var channel = new EmbeddedChannel(handlers.get());
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                roundTrip(channel, wire);
+            }
+
+            var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+            long allocated = bean.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                roundTrip(channel, wire);
+            }
+            long time = System.nanoTime() - start;
+            allocated = bean.getThreadAllocatedBytes(thread) - allocated;
+
+            return new Result(path, name, wire.readableBytes(), allocated / iterations, time / iterations);
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static void roundTrip(EmbeddedChannel channel, ByteBuf wire) {
+        channel.writeInbound(wire.retainedDuplicate());
+        Packet packet = channel.readInbound();
+        if (packet == null) {
+            throw new IllegalStateException("Frame was not decoded");
+        }
+    }
+
+    private static ByteBuf chatMessage() {
+        var text = Text.of("benchmark message ").setStyle(Style.EMPTY.withFormatting(Formatting.WHITE))
+            .append(Text.of("with a sibling").setStyle(Style.EMPTY.withFormatting(Formatting.GRAY)));
+
+        var buf = new PacketBuf(Unpooled.buffer());
+        buf.writeVarInt(NetworkPacketsManager.INSTANCE.getS2CPid(ChatMessageS2C.class));
+        buf.writeString(text.toTag().toString(), 1145141);
+        buf.writeBoolean(false);
+        buf.writeString("Bench");
+        buf.writeString("");
+        buf.writeString("");
+        buf.writeString(NameColor.AQUA.toString());
+        buf.writeString("User");
+        return buf;
+    }
+
+    private static ByteBuf resourceData(int size) {
+        byte[] data = new byte[size];
+        var random = new Random(0x1145);
+        for (int i = 0; i < size; i++) {
+            // low-entropy bytes so the frame takes the deflate path with a realistic ratio
+            data[i] = (byte) (random.nextInt(16) + 'a');
+        }
+
+        var buf = new PacketBuf(Unpooled.buffer());
+        buf.writeVarInt(NetworkPacketsManager.INSTANCE.getS2CPid(ResourceDataS2C.class));
+        buf.writeString("textures/bench.png");
+        buf.writeString("00000000000000000000000000000000");
+        buf.writeByteArray(data);
+        return buf;
+    }
+
+    private static ByteBuf frame(ByteBuf payload) {
+        var channel = new EmbeddedChannel(new LengthFieldPrepender(), new CompressionEncoder(THRESHOLD));
+        try {
+            channel.writeOutbound(payload);
+            var wire = Unpooled.buffer();
+            ByteBuf part;
+            while ((part = channel.readOutbound()) != null) {
+                wire.writeBytes(part);
+                part.release();
+            }
+            return wire;
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    private static class LegacyFrameDecoder extends ByteToMessageDecoder {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            in.markReaderIndex();
+            byte[] abyte = new byte[3];
+
+            for (int i = 0; i < abyte.length; ++i) {
+                if (!in.isReadable()) {
+                    in.resetReaderIndex();
+                    return;
+                }
+
+                abyte[i] = in.readByte();
+                if (abyte[i] >= 0) {
+                    PacketBuf buf = new PacketBuf(Unpooled.wrappedBuffer(abyte));
+                    try {
+                        int varInt = buf.readVarInt();
+                        if (in.readableBytes() >= varInt) {
+                            out.add(in.readBytes(varInt));
+                            return;
+                        }
+                        in.resetReaderIndex();
+                    } finally {
+                        buf.release();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class LegacyCompressionDecoder extends ByteToMessageDecoder {
+        private final Inflater inflater = new Inflater();
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> out) throws Exception {
+            if (byteBuf.readableBytes() != 0) {
+                PacketBuf buf = new PacketBuf(byteBuf);
+                int i = buf.readVarInt();
+                if (i == 0) {
+                    out.add(buf.readBytes(buf.readableBytes()));
+                } else {
+                    byte[] abyte = new byte[buf.readableBytes()];
+                    buf.readBytes(abyte);
+                    this.inflater.setInput(abyte);
+                    byte[] abyte1 = new byte[i];
+                    this.inflater.inflate(abyte1);
+                    out.add(Unpooled.wrappedBuffer(abyte1));
+                    this.inflater.reset();
+                }
+            }
+        }
+
+        @Override
+        protected void handlerRemoved0(ChannelHandlerContext ctx) {
+            this.inflater.end();
+        }
+    }
+}
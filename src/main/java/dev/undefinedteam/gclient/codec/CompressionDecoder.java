@@ -2,15 +2,15 @@ package dev.undefinedteam.gclient.codec;
 
 import dev.undefinedteam.gclient.packets.PacketBuf;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
-import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
 
@@ -30,32 +30,60 @@ public class CompressionDecoder extends ByteToMessageDecoder {
       this.inflater = new Inflater();
    }
 
-   protected void decode(ChannelHandlerContext context, ByteBuf byteBuf, List<Object> out) throws Exception {
-      if (byteBuf.readableBytes() != 0) {
-         PacketBuf buf = new PacketBuf(byteBuf);
-         int i = buf.readVarInt();
+   protected void decode(ChannelHandlerContext context, ByteBuf in, List<Object> out) throws Exception {
+      if (in.readableBytes() != 0) {
+         int i = PacketBuf.readVarInt(in);
          if (i == 0) {
-            out.add(buf.readBytes(buf.readableBytes()));
+            out.add(in.readRetainedSlice(in.readableBytes()));
          } else {
             if (this.validateDecompressed) {
                if (i < this.threshold) {
                   throw new DecoderException("Badly compressed packet - size of " + i + " is below server threshold of " + this.threshold);
                }
 
-               if (i > 8388608) {
-                  throw new DecoderException("Badly compressed packet - size of " + i + " is larger than protocol maximum of 8388608");
+               if (i > MAXIMUM_UNCOMPRESSED_LENGTH) {
+                  throw new DecoderException("Badly compressed packet - size of " + i + " is larger than protocol maximum of " + MAXIMUM_UNCOMPRESSED_LENGTH);
                }
             }
 
-            byte[] abyte = new byte[buf.readableBytes()];
-            buf.readBytes(abyte);
-            this.inflater.setInput(abyte);
-            byte[] abyte1 = new byte[i];
-            this.inflater.inflate(abyte1);
-            out.add(Unpooled.wrappedBuffer(abyte1));
-            this.inflater.reset();
+            ByteBuf inflated = context.alloc().directBuffer(i);
+            try {
+               this.inflate(in, inflated, i);
+               out.add(inflated);
+               inflated = null;
+            } finally {
+               if (inflated != null) {
+                  inflated.release();
+               }
+               this.inflater.reset();
+            }
+         }
+      }
+   }
+
+   private void inflate(ByteBuf in, ByteBuf dst, int size) throws DataFormatException {
+      this.inflater.setInput(in.nioBuffer());
+      ByteBuffer target = dst.internalNioBuffer(0, size);
+      int start = target.position();
+
+      while (target.hasRemaining() && !this.inflater.finished()) {
+         if (this.inflater.inflate(target) == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary())) {
+            break;
          }
       }
+
+      int written = target.position() - start;
+      if (written != size) {
+         throw new DecoderException("Badly compressed packet - actual length of uncompressed payload " + written + " does not match declared size " + size);
+      }
+
+      dst.writerIndex(size);
+      in.skipBytes(in.readableBytes());
+   }
+
+   @Override
+   protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+      this.inflater.end();
    }
 
    public void setThreshold(int threshold, boolean validateDecompressed) {
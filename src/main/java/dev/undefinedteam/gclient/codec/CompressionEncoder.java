@@ -5,9 +5,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
-import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
+import java.nio.ByteBuffer;
 import java.util.zip.Deflater;
 
 
@@ -15,7 +15,7 @@ import java.util.zip.Deflater;
 @StringEncryption
 @ControlFlowObfuscation
 public class CompressionEncoder extends MessageToByteEncoder<ByteBuf> {
-   public final byte[] encodeBuf = new byte[8192];
+   private static final int MIN_DEFLATE_CHUNK = 256;
    private final Deflater deflater;
    public int threshold;
 
@@ -26,26 +26,43 @@ public class CompressionEncoder extends MessageToByteEncoder<ByteBuf> {
 
    protected void encode(ChannelHandlerContext context, ByteBuf byteBuf, ByteBuf out) {
       int readableBytes = byteBuf.readableBytes();
-      PacketBuf buf = new PacketBuf(out);
       if (readableBytes < this.threshold) {
-         buf.writeVarInt(0);
-         buf.writeBytes(byteBuf);
+         PacketBuf.writeVarInt(out, 0);
+         out.writeBytes(byteBuf);
       } else {
-         byte[] abyte = new byte[readableBytes];
-         byteBuf.readBytes(abyte);
-         buf.writeVarInt(abyte.length);
-         this.deflater.setInput(abyte, 0, readableBytes);
+         PacketBuf.writeVarInt(out, readableBytes);
+         this.deflater.setInput(byteBuf.nioBuffer());
          this.deflater.finish();
 
-         while(!this.deflater.finished()) {
-            int j = this.deflater.deflate(this.encodeBuf);
-            buf.writeBytes(this.encodeBuf, 0, j);
-         }
+         try {
+            while (!this.deflater.finished()) {
+               out.ensureWritable(Math.max(MIN_DEFLATE_CHUNK, readableBytes >> 2));
+               ByteBuffer target = out.internalNioBuffer(out.writerIndex(), out.writableBytes());
+               int start = target.position();
+               this.deflater.deflate(target);
+               out.writerIndex(out.writerIndex() + target.position() - start);
+            }
 
-         this.deflater.reset();
+            byteBuf.skipBytes(readableBytes);
+         } finally {
+            this.deflater.reset();
+         }
       }
    }
 
+   @Override
+   protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+      int readableBytes = msg.readableBytes();
+      int initial = readableBytes < this.threshold ? readableBytes : (readableBytes >> 1) + MIN_DEFLATE_CHUNK;
+      return ctx.alloc().directBuffer(initial + 5);
+   }
+
+   @Override
+   public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+      this.deflater.end();
+      super.handlerRemoved(ctx);
+   }
+
    public int getThreshold() {
       return this.threshold;
    }
@@ -1,14 +1,10 @@
 package dev.undefinedteam.gclient.codec;
 
-import dev.undefinedteam.gclient.packets.PacketBuf;
+import dev.undefinedteam.gclient.PacketMetrics;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.CorruptedFrameException;
-import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
-import tech.skidonion.obfuscator.annotations.NativeObfuscation;
-import tech.skidonion.obfuscator.annotations.StringEncryption;
 
 import java.util.List;
 
@@ -16,30 +12,29 @@ import java.util.List;
 
 
 public class FrameDecoder extends ByteToMessageDecoder {
+   private static final int MAX_BYTES = 3;
+
    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
-      in.markReaderIndex();
-      byte[] abyte = new byte[3];
+      int start = in.readerIndex();
+      int length = 0;
 
-      for(int i = 0; i < abyte.length; ++i) {
+      for(int i = 0; i < MAX_BYTES; ++i) {
          if (!in.isReadable()) {
-            in.resetReaderIndex();
+            in.readerIndex(start);
             return;
          }
 
-         abyte[i] = in.readByte();
-         if (abyte[i] >= 0) {
-            PacketBuf buf = new PacketBuf(Unpooled.wrappedBuffer(abyte));
-
-            try {
-               int varInt = buf.readVarInt();
-               if (in.readableBytes() >= varInt) {
-                  out.add(in.readBytes(varInt));
-                  return;
+         byte b = in.readByte();
+         length |= (b & 127) << i * 7;
+         if (b >= 0) {
+            if (in.readableBytes() >= length) {
+               // slice of the cumulation, released by the next decoder
+               out.add(in.readRetainedSlice(length));
+               if (PacketMetrics.of(ctx.channel()) != null) {
+                  PacketMetrics.frame(ctx.channel(), in.readerIndex() - start);
                }
-
-               in.resetReaderIndex();
-            } finally {
-               buf.release();
+            } else {
+               in.readerIndex(start);
             }
 
             return;
@@ -1,26 +1,31 @@
 package dev.undefinedteam.gclient.codec;
 
+import dev.undefinedteam.gclient.PacketMetrics;
 import dev.undefinedteam.gclient.packets.PacketBuf;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelHandler.Sharable;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+import java.util.List;
 
 @Sharable
-public class LengthFieldPrepender extends MessageToByteEncoder<ByteBuf> {
+public class LengthFieldPrepender extends MessageToMessageEncoder<ByteBuf> {
    private static final int MAX_BYTES = 3;
 
-   protected void encode(ChannelHandlerContext ctx, ByteBuf msg, ByteBuf out) {
+   protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
       int readableBytes = msg.readableBytes();
       int length = PacketBuf.getVarIntLength(readableBytes);
-      if (length > 3) {
-         throw new IllegalArgumentException("unable to fit " + readableBytes + " into 3");
+      if (length > MAX_BYTES) {
+         throw new IllegalArgumentException("unable to fit " + readableBytes + " into " + MAX_BYTES);
       } else {
-         PacketBuf buf = new PacketBuf(out);
-         buf.ensureWritable(length + readableBytes);
-         buf.writeVarInt(readableBytes);
-         buf.writeBytes(msg, msg.readerIndex(), readableBytes);
+         ByteBuf header = ctx.alloc().ioBuffer(length);
+         PacketBuf.writeVarInt(header, readableBytes);
+         // header and body go out as two buffers instead of copying the body behind the header
+         out.add(header);
+         out.add(msg.retain());
+         PacketMetrics.sent(ctx.channel(), length + readableBytes);
       }
    }
 }
@@ -1,5 +1,6 @@
 package dev.undefinedteam.gclient.codec;
 
+import dev.undefinedteam.gclient.PacketMetrics;
 import dev.undefinedteam.gclient.packets.NetworkPacketsManager;
 import dev.undefinedteam.gclient.packets.Packet;
 import dev.undefinedteam.gclient.packets.PacketBuf;
@@ -31,18 +32,24 @@ public class PacketDecoder extends ByteToMessageDecoder {
         int len = in.readableBytes();
         if (len == 0) return;
 
+        var metrics = PacketMetrics.of(ctx.channel());
+        long start = metrics == null ? 0 : System.nanoTime();
+
         PacketBuf packetByteBuf = new PacketBuf(in);
         int pid = packetByteBuf.readVarInt();
-        Class<? extends Packet> pKlass = isClient ? NetworkPacketsManager.INSTANCE.getS2C(pid) :  NetworkPacketsManager.INSTANCE.getC2S(pid);
-        if (pKlass == null) {
+        Packet packet = isClient ? NetworkPacketsManager.INSTANCE.createS2C(pid) : NetworkPacketsManager.INSTANCE.createC2S(pid);
+        if (packet == null) {
             LOGGER.error("{} Bad packet id: {}", isClient ? "[Client]" : "[Server]", pid);
             return;
         }
-        Packet packet = pKlass.getConstructor().newInstance();
         packet.buf = packetByteBuf;
         packet.read();
         //packet.buf.clear();
         packet.buf = null;
+        if (metrics != null) {
+            int wire = PacketMetrics.takeFrame(ctx.channel());
+            metrics.entry(packet.getClass()).decoded(wire < 0 ? len : wire, len, System.nanoTime() - start);
+        }
         out.add(packet);
     }
 }
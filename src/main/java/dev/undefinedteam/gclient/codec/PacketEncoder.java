@@ -1,5 +1,6 @@
 package dev.undefinedteam.gclient.codec;
 
+import dev.undefinedteam.gclient.PacketMetrics;
 import dev.undefinedteam.gclient.packets.NetworkPacketsManager;
 import dev.undefinedteam.gclient.packets.Packet;
 import dev.undefinedteam.gclient.packets.PacketBuf;
@@ -34,6 +35,7 @@ public class PacketEncoder extends MessageToByteEncoder<Packet> {
             LOGGER.error("[{}] Can't serialize unregistered packet", isClient ? "Client" : "Server");
             return;
         }
+        int start = out.writerIndex();
         PacketBuf packetByteBuf = new PacketBuf(out);
         packetByteBuf.writeVarInt(pid);
         packet.buf = packetByteBuf;
@@ -41,5 +43,12 @@ public class PacketEncoder extends MessageToByteEncoder<Packet> {
         //out.writeBytes(GEncrypt.encrypt(packet.buf));
         //packet.buf.clear();
         packet.buf = null;
+
+        var metrics = PacketMetrics.of(ctx.channel());
+        if (metrics != null) {
+            var entry = metrics.entry(packet.getClass());
+            entry.encoded(out.writerIndex() - start);
+            PacketMetrics.outbound(ctx.channel(), entry);
+        }
     }
 }
@@ -9,7 +9,5 @@ public class AssetData {
     @SerializedName("md5")
     public String md5Hex;
     @GsonIgnore
-    public byte[] data;
-    @GsonIgnore
     public Image image;
 }
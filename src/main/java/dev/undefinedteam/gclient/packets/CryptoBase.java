@@ -11,7 +11,9 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -20,6 +22,7 @@ import java.security.NoSuchAlgorithmException;
 @ControlFlowObfuscation
 public class CryptoBase {
     public static Aes aes = Aes.create();
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
 
     static {
         aes.Key = "owo6pO7aD1a8aww0".getBytes(StandardCharsets.US_ASCII);
@@ -33,6 +36,28 @@ public class CryptoBase {
         return aes.decrypt(b);
     }
 
+    /**
+     * Decrypts the remaining bytes of {@code in} into {@code out}.
+     *
+     * @return the number of plain bytes written
+     */
+    @NativeObfuscation.Inline
+    public static int decrypt(ByteBuffer in, byte[] out) throws GeneralSecurityException {
+        return aes.decrypt(in, ByteBuffer.wrap(out));
+    }
+
+    /**
+     * Per-thread buffer with room for at least {@code size} bytes, only valid until the next call on the same thread.
+     */
+    public static byte[] scratch(int size) {
+        byte[] buf = SCRATCH.get();
+        if (buf.length < size) {
+            buf = new byte[Integer.highestOneBit(size - 1) << 1];
+            SCRATCH.set(buf);
+        }
+        return buf;
+    }
+
     @NativeObfuscation.Inline
     public static byte[] encrypt(byte[] b) throws InvalidAlgorithmParameterException, NoSuchPaddingException, IllegalBlockSizeException, NoSuchAlgorithmException, BadPaddingException, IOException, InvalidKeyException {
         return aes.encrypt(b);
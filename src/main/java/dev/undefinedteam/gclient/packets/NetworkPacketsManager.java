@@ -5,9 +5,11 @@ import dev.undefinedteam.gclient.packets.c2s.play.*;
 import dev.undefinedteam.gclient.GCClient;
 import dev.undefinedteam.gclient.packets.c2s.login.ReqChatC2S;
 import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceC2S;
+import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceRangeC2S;
 import dev.undefinedteam.gclient.packets.c2s.verify.HandshakeC2S;
 import dev.undefinedteam.gclient.packets.c2s.verify.*;
 import dev.undefinedteam.gclient.packets.s2c.play.*;
+import dev.undefinedteam.gclient.packets.s2c.resource.ResourceChunkS2C;
 import dev.undefinedteam.gclient.packets.s2c.resource.ResourceDataS2C;
 import dev.undefinedteam.gclient.packets.s2c.resource.ResourceListS2C;
 import dev.undefinedteam.gclient.packets.s2c.gui.GuiDataS2C;
@@ -18,49 +20,50 @@ import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
 import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class NetworkPacketsManager {
     private final Logger LOG = GCClient.INSTANCE.LOGGER;
 
     private static final int OFFSET = 0x1145;
     public static NetworkPacketsManager INSTANCE;
-    public final HashMap<Integer, Class<? extends Packet>> s2c = new HashMap<>();
-    public final HashMap<Integer, Class<? extends Packet>> c2s = new HashMap<>();
+    public final PacketRegistry s2c = new PacketRegistry(OFFSET);
+    public final PacketRegistry c2s = new PacketRegistry(OFFSET);
 
     public NetworkPacketsManager() {
         INSTANCE = this;
     }
 
     public void init() {
-        registerC2S(HandshakeC2S.class);
-        registerC2S(ChatMessageC2S.class);
-        registerC2S(PongC2S.class);
-        registerC2S(DisconnectC2S.class);
-        registerC2S(ReqChatC2S.class);
+        // factories are only used by the embedded test server, the client only encodes these
+        registerC2S(HandshakeC2S.class, HandshakeC2S::new);
+        registerC2S(ChatMessageC2S.class, ChatMessageC2S::new);
+        registerC2S(PongC2S.class, PongC2S::new);
+        registerC2S(DisconnectC2S.class, DisconnectC2S::new);
+        registerC2S(ReqChatC2S.class, ReqChatC2S::new);
         registerC2S(ReqClientC2S.class);
-        registerC2S(ReqResourceC2S.class);
+        registerC2S(ReqResourceC2S.class, ReqResourceC2S::new);
         registerC2S(GuiActionC2S.class);
         registerC2S(RegisterC2S.class);
         registerC2S(CustomPayloadC2S.class);
         registerC2S(CodeC2S.class);
-        registerC2S(IGNChangeC2S.class);
-
-        registerS2C(ResourceDataS2C.class);
-        registerS2C(ResourceListS2C.class);
-        registerS2C(ClientDataS2C.class);
-        registerS2C(ChatMessageS2C.class);
-        registerS2C(MessageS2C.class);
-        registerS2C(DisconnectS2C.class);
-        registerS2C(PingS2C.class);
-        registerS2C(UserInfoS2C.class);
-        registerS2C(GuiDataS2C.class);
-        registerS2C(RegisterStatusS2C.class);
-        registerS2C(ExpireDataS2C.class);
-        registerS2C(OnlineUsersS2C.class);
-        registerS2C(CustomPayloadS2C.class);
+        registerC2S(IGNChangeC2S.class, IGNChangeC2S::new);
+        registerC2S(ReqResourceRangeC2S.class, ReqResourceRangeC2S::new);
+
+        registerS2C(ResourceDataS2C.class, ResourceDataS2C::new);
+        registerS2C(ResourceListS2C.class, ResourceListS2C::new);
+        registerS2C(ClientDataS2C.class, ClientDataS2C::new);
+        registerS2C(ChatMessageS2C.class, ChatMessageS2C::new);
+        registerS2C(MessageS2C.class, MessageS2C::new);
+        registerS2C(DisconnectS2C.class, DisconnectS2C::new);
+        registerS2C(PingS2C.class, PingS2C::new);
+        registerS2C(UserInfoS2C.class, UserInfoS2C::new);
+        registerS2C(GuiDataS2C.class, GuiDataS2C::new);
+        registerS2C(RegisterStatusS2C.class, RegisterStatusS2C::new);
+        registerS2C(ExpireDataS2C.class, ExpireDataS2C::new);
+        registerS2C(OnlineUsersS2C.class, OnlineUsersS2C::new);
+        registerS2C(CustomPayloadS2C.class, CustomPayloadS2C::new);
+        registerS2C(ResourceChunkS2C.class, ResourceChunkS2C::new);
 
         LOG.info("Registered {} s2c packets.", s2c.size());
         LOG.info("Registered {} c2s packets.", c2s.size());
@@ -68,40 +71,40 @@ public class NetworkPacketsManager {
 
 
     public Class<? extends Packet> getS2C(int pid) {
-        return s2c.getOrDefault(pid, null);
+        return s2c.type(pid);
     }
 
 
     public Class<? extends Packet> getC2S(int pid) {
-        return c2s.getOrDefault(pid, null);
+        return c2s.type(pid);
     }
 
-    private void registerS2C(Class<? extends Packet> packetClass) {
-        s2c.put(s2c.size() + OFFSET, packetClass);
+    public Packet createS2C(int pid) {
+        return s2c.create(pid);
     }
 
-    private void registerC2S(Class<? extends Packet> packetClass) {
-        c2s.put(c2s.size() + OFFSET, packetClass);
+    public Packet createC2S(int pid) {
+        return c2s.create(pid);
     }
 
+    private <T extends Packet> void registerS2C(Class<T> packetClass, Supplier<T> factory) {
+        s2c.register(packetClass, factory);
+    }
 
-    public int getS2CPid(Class<? extends Packet> packetClass) {
-        for (Map.Entry<Integer, Class<? extends Packet>> entry : s2c.entrySet()) {
-            if (entry.getValue() == packetClass) {
-                return entry.getKey();
-            }
-        }
+    private <T extends Packet> void registerC2S(Class<T> packetClass) {
+        c2s.register(packetClass, null);
+    }
 
-        return -1;
+    private <T extends Packet> void registerC2S(Class<T> packetClass, Supplier<T> factory) {
+        c2s.register(packetClass, factory);
     }
 
-    public int getC2SPid(Class<? extends Packet> packetClass) {
-        for (Map.Entry<Integer, Class<? extends Packet>> entry : c2s.entrySet()) {
-            if (entry.getValue() == packetClass) {
-                return entry.getKey();
-            }
-        }
 
-        return -1;
+    public int getS2CPid(Class<? extends Packet> packetClass) {
+        return s2c.id(packetClass);
+    }
+
+    public int getC2SPid(Class<? extends Packet> packetClass) {
+        return c2s.id(packetClass);
     }
 }
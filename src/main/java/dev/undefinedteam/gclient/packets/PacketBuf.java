@@ -35,7 +35,6 @@ public class PacketBuf extends ByteBuf {
     public static final short DEFAULT_MAX_STRING_LENGTH = 32767;
     public static final int MAX_TEXT_LENGTH = 262144;
     private static final Gson GSON = new Gson();
-    private final JsonParser parse = new JsonParser();
 
     public PacketBuf(ByteBuf parent) {
         this.parent = parent;
@@ -61,6 +60,31 @@ public class PacketBuf extends ByteBuf {
         return 10;
     }
 
+    public static int readVarInt(ByteBuf buf) {
+        int i = 0;
+        int j = 0;
+
+        byte b;
+        do {
+            b = buf.readByte();
+            i |= (b & 127) << j++ * 7;
+            if (j > 5) {
+                throw new RuntimeException("VarInt too big");
+            }
+        } while ((b & 128) == 128);
+
+        return i;
+    }
+
+    public static void writeVarInt(ByteBuf buf, int value) {
+        while ((value & -128) != 0) {
+            buf.writeByte(value & 127 | 128);
+            value >>>= 7;
+        }
+
+        buf.writeByte(value);
+    }
+
     public int readVarInt() {
         int i = 0;
         int j = 0;
@@ -180,7 +204,11 @@ public class PacketBuf extends ByteBuf {
     }
 
     public Text readText() {
-        return Text.fromTag(this.parse.parse(this.readString(1145141)).getAsJsonObject());
+        return Text.fromTag(JsonParser.parseString(this.readString(1145141)).getAsJsonObject());
+    }
+
+    public PacketBuf writeText(Text text) {
+        return this.writeString(text.toTag().toString(), 1145141);
     }
 
     public String readString(int maxLength) {
@@ -192,8 +220,17 @@ public class PacketBuf extends ByteBuf {
             throw new DecoderException("The received encoded string buffer length is less than zero! Weird string!");
         } else {
             try {
-                var bytes = readByteArray();
-                String string = new String(CryptoBase.decrypt(bytes), StandardCharsets.UTF_8);
+                int encLen = this.readVarInt();
+                if (encLen < 0 || encLen > this.readableBytes()) {
+                    throw new DecoderException("ByteArray with size " + encLen + " is bigger than allowed " + this.readableBytes());
+                }
+
+                // decrypt straight out of the frame into the per-thread scratch buffer, the String is the only copy
+                byte[] plain = CryptoBase.scratch(encLen);
+                int plainLen = CryptoBase.decrypt(this.parent.nioBuffer(this.parent.readerIndex(), encLen), plain);
+                this.parent.skipBytes(encLen);
+
+                String string = new String(plain, 0, plainLen, StandardCharsets.UTF_8);
                 if (string.length() > maxLength) {
                     int len = string.length();
                     throw new DecoderException("The received string length is longer than maximum allowed (" + len + " > " + maxLength + ")");
@@ -206,6 +243,34 @@ public class PacketBuf extends ByteBuf {
         }
     }
 
+    /**
+     * Reads a varint count followed by that many strings.
+     */
+    public String[] readStringArray(int maxLength) {
+        int count = this.readVarInt();
+        if (count < 0 || count > this.readableBytes()) {
+            throw new DecoderException("StringArray with size " + count + " is bigger than allowed " + this.readableBytes());
+        }
+
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = this.readString(maxLength);
+        }
+        return strings;
+    }
+
+    public String[] readStringArray() {
+        return this.readStringArray(32767);
+    }
+
+    public PacketBuf writeStringArray(String[] strings) {
+        this.writeVarInt(strings.length);
+        for (String string : strings) {
+            this.writeString(string);
+        }
+        return this;
+    }
+
     public PacketBuf writeIntArray(int[] array) {
         this.writeVarInt(array.length);
         int[] var2 = array;
@@ -0,0 +1,100 @@
+package dev.undefinedteam.gclient.packets;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * One direction of the packet table. Ids are dense from {@code offset}, so decoding is an array
+ * lookup plus a factory call, and encoding resolves the id through a {@link ClassValue}.
+ */
+public class PacketRegistry {
+    public static final int UNKNOWN = -1;
+
+    private final int offset;
+    private Class<? extends Packet>[] types;
+    private Supplier<? extends Packet>[] factories;
+    private int size;
+    private int count;
+
+    private final Map<Class<?>, Integer> ids = new IdentityHashMap<>();
+    private final ClassValue<Integer> lookup = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            synchronized (ids) {
+                return ids.getOrDefault(type, UNKNOWN);
+            }
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    public PacketRegistry(int offset) {
+        this.offset = offset;
+        this.types = new Class[16];
+        this.factories = new Supplier[16];
+    }
+
+    /**
+     * Registers the packet at the next free id.
+     */
+    public synchronized <T extends Packet> int register(Class<T> type, Supplier<T> factory) {
+        int id = this.size + this.offset;
+        register(id, type, factory);
+        return id;
+    }
+
+    /**
+     * Registers the packet at a fixed id, for packets that declare their own.
+     */
+    public synchronized <T extends Packet> void register(int id, Class<T> type, Supplier<T> factory) {
+        int index = id - this.offset;
+        if (index < 0) {
+            throw new IllegalArgumentException("Packet id " + id + " is below offset " + this.offset);
+        }
+        if (index < this.size && this.types[index] != null) {
+            throw new IllegalArgumentException("Packet id " + id + " is already taken by " + this.types[index].getSimpleName());
+        }
+
+        if (index >= this.types.length) {
+            int capacity = Math.max(this.types.length * 2, index + 1);
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.factories = Arrays.copyOf(this.factories, capacity);
+        }
+
+        this.types[index] = type;
+        this.factories[index] = factory;
+        this.size = Math.max(this.size, index + 1);
+        this.count++;
+
+        synchronized (ids) {
+            ids.put(type, id);
+        }
+        // drop a cached miss from a lookup before registration
+        lookup.remove(type);
+    }
+
+    public Class<? extends Packet> type(int id) {
+        int index = id - this.offset;
+        return index >= 0 && index < this.size ? this.types[index] : null;
+    }
+
+    /**
+     * @return a fresh packet for the id, or null if the id is unknown or the packet is send-only
+     */
+    public Packet create(int id) {
+        int index = id - this.offset;
+        if (index < 0 || index >= this.size) return null;
+
+        var factory = this.factories[index];
+        return factory == null ? null : factory.get();
+    }
+
+    public int id(Class<?> type) {
+        return lookup.get(type);
+    }
+
+    public int size() {
+        return this.count;
+    }
+}
@@ -2,16 +2,20 @@ package dev.undefinedteam.gclient.packets.c2s.login;
 
 import dev.undefinedteam.gclient.packets.Packet;
 import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
 
 import java.io.IOException;
 
 @AllArgsConstructor
+@NoArgsConstructor
 public class ReqChatC2S extends Packet {
     public String mName;
     public String mPasswd;
 
     @Override
     public void read() throws IOException {
+        this.mName = buf.readString();
+        this.mPasswd = buf.readString();
     }
 
     @Override
@@ -2,15 +2,18 @@ package dev.undefinedteam.gclient.packets.c2s.play;
 
 import dev.undefinedteam.gclient.packets.Packet;
 import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
 
 import java.io.IOException;
 
 @AllArgsConstructor
+@NoArgsConstructor
 public class ChatMessageC2S extends Packet {
     public String message;
 
     @Override
     public void read() throws IOException {
+        this.message = buf.readString(256);
     }
 
     @Override
@@ -2,15 +2,18 @@ package dev.undefinedteam.gclient.packets.c2s.play;
 
 import dev.undefinedteam.gclient.packets.Packet;
 import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
 
 import java.io.IOException;
 
 @AllArgsConstructor
+@NoArgsConstructor
 public class DisconnectC2S extends Packet {
     public String reason;
 
     @Override
     public void read() throws IOException {
+        this.reason = buf.readString();
     }
 
     @Override
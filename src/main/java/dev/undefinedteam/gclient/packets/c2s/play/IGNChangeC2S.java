@@ -7,12 +7,15 @@ import lombok.NoArgsConstructor;
 import java.io.IOException;
 
 @AllArgsConstructor
+@NoArgsConstructor
 public class IGNChangeC2S extends Packet {
     public String name;
     public String uuid;
 
     @Override
     public void read() throws IOException {
+        this.name = buf.readString();
+        this.uuid = buf.readString();
     }
 
     @Override
@@ -13,13 +13,11 @@ public class ReqResourceC2S extends Packet {
 
     @Override
     public void read() throws IOException {
+        this.resources = buf.readStringArray();
     }
 
     @Override
     public void write() throws IOException {
-        buf.writeVarInt(resources.length);
-        for (String resource : resources) {
-            buf.writeString(resource);
-        }
+        buf.writeStringArray(resources);
     }
 }
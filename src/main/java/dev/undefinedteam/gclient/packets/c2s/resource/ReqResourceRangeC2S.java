@@ -0,0 +1,32 @@
+package dev.undefinedteam.gclient.packets.c2s.resource;
+
+import dev.undefinedteam.gclient.packets.Packet;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReqResourceRangeC2S extends Packet {
+    public String location;
+    public String md5;
+    public long offset;
+    public int length;
+
+    @Override
+    public void read() throws IOException {
+        this.location = buf.readString();
+        this.md5 = buf.readString();
+        this.offset = buf.readVarLong();
+        this.length = buf.readVarInt();
+    }
+
+    @Override
+    public void write() throws IOException {
+        buf.writeString(this.location);
+        buf.writeString(this.md5);
+        buf.writeVarLong(this.offset);
+        buf.writeVarInt(this.length);
+    }
+}
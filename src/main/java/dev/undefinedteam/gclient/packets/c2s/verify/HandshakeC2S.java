@@ -2,10 +2,12 @@ package dev.undefinedteam.gclient.packets.c2s.verify;
 
 import dev.undefinedteam.gclient.packets.Packet;
 import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
 
 import java.io.IOException;
 
 @AllArgsConstructor
+@NoArgsConstructor
 public class HandshakeC2S extends Packet {
     public int mVersion;
     public int protocolVersion;
@@ -13,6 +15,9 @@ public class HandshakeC2S extends Packet {
 
     @Override
     public void read() throws IOException {
+        this.mVersion = buf.readVarInt();
+        this.protocolVersion = buf.readVarInt();
+        this.mHwid = buf.readString();
     }
 
     @Override
@@ -29,5 +29,11 @@ public class UserInfoS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeString(data.mNickName);
+        buf.writeString(data.mNameTag == null ? "" : data.mNameTag);
+        buf.writeString(data.mHeadIcon);
+        buf.writeVarLong(data.mLastLogin);
+        buf.writeString(data.name_color.name());
+        buf.writeString(data.group);
     }
 }
@@ -35,5 +35,12 @@ public class ChatMessageS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeText(this.message);
+        buf.writeBoolean(this.isCommand);
+        buf.writeString(sender.mNickName);
+        buf.writeString(sender.mNameTag == null ? "" : sender.mNameTag);
+        buf.writeString(sender.mHeadIcon);
+        buf.writeString(sender.name_color.toString());
+        buf.writeString(sender.group);
     }
 }
@@ -17,5 +17,6 @@ public class DisconnectS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeText(this.reason);
     }
 }
@@ -19,5 +19,7 @@ public class MessageS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeString(title);
+        buf.writeString(message);
     }
 }
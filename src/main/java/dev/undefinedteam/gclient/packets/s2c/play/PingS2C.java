@@ -16,5 +16,6 @@ public class PingS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeVarLong(ping);
     }
 }
@@ -0,0 +1,48 @@
+package dev.undefinedteam.gclient.packets.s2c.resource;
+
+import dev.undefinedteam.gclient.packets.Packet;
+import io.netty.buffer.ByteBuf;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+
+@NoArgsConstructor
+public class ResourceChunkS2C extends Packet {
+    public String location;
+    public String md5;
+    public long total;
+    public long offset;
+    public String chunkMd5;
+    /**
+     * Retained slice of the inbound frame, the handler must {@link #release()} it
+     */
+    public ByteBuf data;
+
+    @Override
+    public void read() throws IOException {
+        location = buf.readString();
+        md5 = buf.readString();
+        total = buf.readVarLong();
+        offset = buf.readVarLong();
+        chunkMd5 = buf.readString();
+        data = buf.readRetainedSlice(buf.readVarInt());
+    }
+
+    @Override
+    public void write() throws IOException {
+        buf.writeString(location);
+        buf.writeString(md5);
+        buf.writeVarLong(total);
+        buf.writeVarLong(offset);
+        buf.writeString(chunkMd5);
+        buf.writeVarInt(data.readableBytes());
+        buf.writeBytes(data, data.readerIndex(), data.readableBytes());
+    }
+
+    public void release() {
+        if (data != null) {
+            data.release();
+            data = null;
+        }
+    }
+}
@@ -20,5 +20,8 @@ public class ResourceDataS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeString(location);
+        buf.writeString(md5);
+        buf.writeByteArray(data);
     }
 }
@@ -17,5 +17,6 @@ public class ResourceListS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeString(GSON.toJson(this.assets));
     }
 }
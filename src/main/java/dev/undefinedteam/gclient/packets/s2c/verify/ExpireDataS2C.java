@@ -18,5 +18,7 @@ public class ExpireDataS2C extends Packet {
 
     @Override
     public void write() throws IOException {
+        buf.writeVarInt(this.code);
+        buf.writeString(this.data);
     }
 }
@@ -0,0 +1,270 @@
+package dev.undefinedteam.gclient.server;
+
+import dev.undefinedteam.gclient.GCClient;
+import dev.undefinedteam.gclient.codec.*;
+import dev.undefinedteam.gclient.data.AssetData;
+import dev.undefinedteam.gclient.data.AssetsSet;
+import dev.undefinedteam.gclient.data.NameColor;
+import dev.undefinedteam.gclient.data.UserData;
+import dev.undefinedteam.gclient.data.UserList;
+import dev.undefinedteam.gclient.packets.Packet;
+import dev.undefinedteam.gclient.packets.c2s.login.ReqChatC2S;
+import dev.undefinedteam.gclient.packets.c2s.play.ChatMessageC2S;
+import dev.undefinedteam.gclient.packets.c2s.play.DisconnectC2S;
+import dev.undefinedteam.gclient.packets.c2s.play.IGNChangeC2S;
+import dev.undefinedteam.gclient.packets.c2s.play.PongC2S;
+import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceC2S;
+import dev.undefinedteam.gclient.packets.c2s.resource.ReqResourceRangeC2S;
+import dev.undefinedteam.gclient.packets.c2s.verify.HandshakeC2S;
+import dev.undefinedteam.gclient.packets.s2c.login.UserInfoS2C;
+import dev.undefinedteam.gclient.packets.s2c.play.ChatMessageS2C;
+import dev.undefinedteam.gclient.packets.s2c.play.OnlineUsersS2C;
+import dev.undefinedteam.gclient.packets.s2c.resource.ResourceChunkS2C;
+import dev.undefinedteam.gclient.packets.s2c.resource.ResourceDataS2C;
+import dev.undefinedteam.gclient.packets.s2c.resource.ResourceListS2C;
+import dev.undefinedteam.gclient.text.Text;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * In-process stand-in for the GChat server. Speaks the real protocol (framing, compression, packet ids)
+ * on a loopback port and answers with scripted responses, which can be replaced per packet class with {@link #on}.
+ */
+public class EmbeddedServer {
+    public static final Logger LOGGER = LogManager.getLogger("GChatServer");
+    public static final String HOST = "127.0.0.1";
+
+    private static EmbeddedServer running;
+
+    private EventLoopGroup group;
+    private final Map<Class<?>, BiConsumer<ServerSession, Packet>> script = new ConcurrentHashMap<>();
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    final Set<ServerSession> sessions = ConcurrentHashMap.newKeySet();
+
+    volatile LongConsumer pongListener;
+    private Channel channel;
+
+    public record Asset(String location, String md5, byte[] data) {
+    }
+
+    public EmbeddedServer() {
+        on(HandshakeC2S.class, (session, p) -> session.send(onlineUsers()));
+        on(ReqChatC2S.class, this::login);
+        on(IGNChangeC2S.class, (session, p) -> {
+            session.gameName = p.name;
+            session.gameUuid = p.uuid;
+            broadcast(onlineUsers());
+        });
+        on(ChatMessageC2S.class, this::chat);
+        on(PongC2S.class, (session, p) -> {
+            var listener = pongListener;
+            if (listener != null) listener.accept(p.ping);
+        });
+        on(ReqResourceC2S.class, this::sendAssets);
+        on(ReqResourceRangeC2S.class, this::sendChunk);
+        on(DisconnectC2S.class, (session, p) -> session.channel.close());
+    }
+
+    public static synchronized EmbeddedServer running() {
+        return running;
+    }
+
+    /**
+     * Returns the running server, starting one if needed, and points the GChat connection at it.
+     */
+    public static EmbeddedServer local() {
+        var server = running();
+        if (server == null) {
+            server = new EmbeddedServer();
+            server.start();
+        }
+
+        var connection = GCClient.get().connection;
+        String address = HOST + ":" + server.port();
+        if (!address.equals(connection.address()) || GCClient.get().session() == null) {
+            connection.address(HOST, server.port());
+            connection.reconnect();
+        }
+        return server;
+    }
+
+    /**
+     * Binds an ephemeral loopback port.
+     *
+     * @return the port
+     */
+    public synchronized int start() {
+        if (channel != null) return port();
+
+        group = new NioEventLoopGroup(1, new DefaultThreadFactory("GChat-Server", true));
+        channel = new ServerBootstrap()
+            .group(group)
+            .channel(NioServerSocketChannel.class)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childHandler(new ChannelInitializer<SocketChannel>() {
+                protected void initChannel(SocketChannel ch) {
+                    ch.pipeline()
+                        .addLast("splitter", new FrameDecoder())
+                        .addLast("prepender", new LengthFieldPrepender())
+                        .addLast("encoder", new PacketEncoder(false))
+                        .addLast("decoder", new PacketDecoder(false))
+                        .addLast("packet_handler", new ServerSession(EmbeddedServer.this));
+                    // the client turns compression on as soon as it is connected
+                    GCClient.setupCompression(ch, CompressionDecoder.MAXIMUM_COMPRESSED_LENGTH, true);
+                }
+            })
+            .bind(HOST, 0).syncUninterruptibly().channel();
+
+        synchronized (EmbeddedServer.class) {
+            running = this;
+        }
+        LOGGER.info("Embedded GChat server listening on {}:{}", HOST, port());
+        return port();
+    }
+
+    public synchronized void stop() {
+        if (channel == null) return;
+
+        sessions.forEach(s -> s.channel.close());
+        channel.close();
+        channel = null;
+        group.shutdownGracefully();
+        group = null;
+        synchronized (EmbeddedServer.class) {
+            if (running == this) running = null;
+        }
+    }
+
+    public synchronized int port() {
+        return channel == null ? -1 : ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    /**
+     * Replaces the scripted response for a packet class.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Packet> EmbeddedServer on(Class<T> type, BiConsumer<ServerSession, ? super T> handler) {
+        script.put(type, (BiConsumer<ServerSession, Packet>) handler);
+        return this;
+    }
+
+    void handle(ServerSession session, Packet packet) {
+        var handler = script.get(packet.getClass());
+        if (handler != null) {
+            handler.accept(session, packet);
+        } else {
+            LOGGER.debug("No scripted response for {}", packet.getClass().getSimpleName());
+        }
+    }
+
+    public void addAsset(String location, byte[] data) {
+        assets.put(location, new Asset(location, DigestUtils.md5Hex(data), data));
+    }
+
+    public void broadcast(Packet packet) {
+        sessions.forEach(s -> s.send(packet));
+    }
+
+    public Set<ServerSession> sessions() {
+        return sessions;
+    }
+
+    private void login(ServerSession session, ReqChatC2S p) {
+        session.name = p.mName;
+
+        var data = new UserData();
+        data.mNickName = p.mName;
+        data.mNameTag = "";
+        data.mHeadIcon = "";
+        data.mLastLogin = System.currentTimeMillis();
+        data.name_color = NameColor.AQUA;
+        data.group = "Local";
+        var info = new UserInfoS2C();
+        info.data = data;
+        session.send(info);
+
+        var list = new ResourceListS2C();
+        list.assets = new AssetsSet();
+        for (Asset asset : assets.values()) {
+            var entry = new AssetData();
+            entry.location = asset.location;
+            entry.md5Hex = asset.md5;
+            list.assets.add(entry);
+        }
+        session.send(list);
+    }
+
+    private void chat(ServerSession session, ChatMessageC2S p) {
+        var sender = new UserData();
+        sender.mNickName = session.name == null ? "Local" : session.name;
+        sender.mNameTag = "";
+        sender.mHeadIcon = "";
+        sender.name_color = NameColor.AQUA;
+        sender.group = "Local";
+
+        var message = new ChatMessageS2C();
+        message.message = Text.of(p.message);
+        message.sender = sender;
+        broadcast(message);
+    }
+
+    private void sendAssets(ServerSession session, ReqResourceC2S p) {
+        for (String location : p.resources) {
+            var asset = assets.get(location);
+            if (asset == null) continue;
+
+            var data = new ResourceDataS2C();
+            data.location = asset.location;
+            data.md5 = asset.md5;
+            data.data = asset.data;
+            session.send(data);
+        }
+    }
+
+    private void sendChunk(ServerSession session, ReqResourceRangeC2S p) {
+        var asset = assets.get(p.location);
+        if (asset == null || !asset.md5.equals(p.md5) || p.offset < 0 || p.offset > asset.data.length) return;
+
+        int offset = (int) p.offset;
+        int length = Math.min(p.length, asset.data.length - offset);
+        var chunk = new ResourceChunkS2C();
+        chunk.location = asset.location;
+        chunk.md5 = asset.md5;
+        chunk.total = asset.data.length;
+        chunk.offset = offset;
+        chunk.chunkMd5 = DigestUtils.md5Hex(Arrays.copyOfRange(asset.data, offset, offset + length));
+        chunk.data = Unpooled.wrappedBuffer(asset.data, offset, length);
+        session.send(chunk);
+    }
+
+    OnlineUsersS2C onlineUsers() {
+        var list = new UserList();
+        for (ServerSession s : sessions) {
+            list.users.add(new UserList.User(
+                s.gameName == null ? "" : s.gameName, NameColor.AQUA.toString(),
+                s.gameUuid == null ? "" : s.gameUuid, "Local", s.name == null ? "" : s.name));
+        }
+        var packet = new OnlineUsersS2C();
+        packet.online = list;
+        return packet;
+    }
+}
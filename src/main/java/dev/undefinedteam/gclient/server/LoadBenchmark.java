@@ -0,0 +1,153 @@
+package dev.undefinedteam.gclient.server;
+
+import dev.undefinedteam.gclient.GCClient;
+import dev.undefinedteam.gclient.GCUser;
+import dev.undefinedteam.gclient.PacketMetrics;
+import dev.undefinedteam.gclient.packets.s2c.play.PingS2C;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Floods the connected client from the {@link EmbeddedServer} and measures the whole client stack
+ * (framing, compression, decode, {@link GCUser} dispatch and handlers) until every packet is handled.
+ * Blocks for as long as that takes, run it on {@link #EXECUTOR} rather than a pool the handlers need.
+ */
+public class LoadBenchmark {
+    private static final long CONNECT_TIMEOUT = 10_000L;
+    private static final long RUN_TIMEOUT = 60_000L;
+    private static final int FLUSH_EVERY = 64;
+    /**
+     * Every n-th packet is an online user list (client thread handler), the rest are pings (inline handler)
+     */
+    private static final int USERS_EVERY = 4;
+
+    /**
+     * A thread per run, waiting on a shared pool worker would keep the worker handlers it waits for from running
+     */
+    public static final Executor EXECUTOR = r -> {
+        var thread = new Thread(r, "LoadBenchmark");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    public record Result(long packets, double seconds, double packetsPerSecond, double allocatedMBPerSecond,
+                         long bytesPerPacket, long p50HandlerNanos, long p99HandlerNanos, long maxHandlerNanos) {
+        @Override
+        public String toString() {
+            return String.format("%d packets in %.2fs: %.0f packets/s, alloc %.1fMB/s (%dB/packet), handler p50=%.1fus p99=%.1fus max=%.1fus",
+                packets, seconds, packetsPerSecond, allocatedMBPerSecond, bytesPerPacket,
+                p50HandlerNanos / 1000.0, p99HandlerNanos / 1000.0, maxHandlerNanos / 1000.0);
+        }
+    }
+
+    public static Result run(EmbeddedServer server, int packets) throws Exception {
+        var session = awaitSession(server);
+
+        int pings = packets - packets / USERS_EVERY;
+        var pongs = new AtomicInteger();
+        var done = new CountDownLatch(1);
+        server.pongListener = ping -> {
+            if (pongs.incrementAndGet() == pings) done.countDown();
+        };
+
+        PacketMetrics.GLOBAL.reset();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            session.channel.eventLoop().execute(new Flood(session, server, packets));
+            if (!done.await(RUN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Client answered " + pongs.get() + " of " + pings + " pings");
+            }
+
+            // pings are answered inline, the rest may still sit in the client/worker queues
+            if (!GCUser.handlers().awaitIdle(RUN_TIMEOUT)) {
+                throw new IllegalStateException("Client handlers did not drain");
+            }
+        } finally {
+            server.pongListener = null;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+
+        var latency = PacketMetrics.GLOBAL.handlerLatency();
+        long max = 0;
+        for (var snapshot : PacketMetrics.GLOBAL.snapshot()) {
+            max = Math.max(max, snapshot.maxHandlerNanos());
+        }
+
+        double seconds = elapsed / 1e9;
+        return new Result(packets, seconds, packets / seconds, allocated / seconds / (1024 * 1024),
+            allocated / packets, latency.percentile(0.5), latency.percentile(0.99), max);
+    }
+
+    private static ServerSession awaitSession(EmbeddedServer server) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            var client = GCClient.get().session();
+            if (client != null && client.isConnected()) {
+                for (ServerSession session : server.sessions()) {
+                    if (session.channel != null && session.channel.isActive()) return session;
+                }
+            }
+            Thread.sleep(20);
+        }
+        throw new IllegalStateException("Client did not connect to the embedded server");
+    }
+
+    /**
+     * Sum over all live threads, the client stack spans the event loop, the worker pool and the client thread.
+     */
+    private static long allocatedBytes() {
+        var bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    /**
+     * Writes on the server event loop until the channel stops being writable, then yields for a moment.
+     */
+    private static class Flood implements Runnable {
+        private final ServerSession session;
+        private final EmbeddedServer server;
+        private final int packets;
+        private final PingS2C ping = new PingS2C();
+        private int sent;
+
+        Flood(ServerSession session, EmbeddedServer server, int packets) {
+            this.session = session;
+            this.server = server;
+            this.packets = packets;
+        }
+
+        @Override
+        public void run() {
+            var channel = session.channel;
+            if (!channel.isActive()) return;
+
+            var users = server.onlineUsers();
+            while (sent < packets && channel.isWritable()) {
+                if (++sent % USERS_EVERY == 0) {
+                    channel.write(users);
+                } else {
+                    // encoded synchronously on this thread, so one instance is enough
+                    ping.ping = System.currentTimeMillis();
+                    channel.write(ping);
+                }
+                if (sent % FLUSH_EVERY == 0) channel.flush();
+            }
+            channel.flush();
+
+            if (sent < packets) {
+                channel.eventLoop().schedule(this, 1, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
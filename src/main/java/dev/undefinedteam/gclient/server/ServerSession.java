@@ -0,0 +1,65 @@
+package dev.undefinedteam.gclient.server;
+
+import dev.undefinedteam.gclient.packets.Packet;
+import dev.undefinedteam.gclient.packets.s2c.play.PingS2C;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One client connected to the {@link EmbeddedServer}.
+ */
+public class ServerSession extends SimpleChannelInboundHandler<Packet> {
+    /**
+     * Below the client's 30s read timeout
+     */
+    private static final long PING_INTERVAL = 10;
+
+    private final EmbeddedServer server;
+    public Channel channel;
+    public String name, gameName, gameUuid;
+    private ScheduledFuture<?> pinger;
+
+    ServerSession(EmbeddedServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        super.channelActive(ctx);
+        this.channel = ctx.channel();
+        server.sessions.add(this);
+        pinger = ctx.executor().scheduleAtFixedRate(() -> {
+            var ping = new PingS2C();
+            ping.ping = System.currentTimeMillis();
+            send(ping);
+        }, PING_INTERVAL, PING_INTERVAL, TimeUnit.SECONDS);
+        EmbeddedServer.LOGGER.info("Client connected from {}", channel.remoteAddress());
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        super.channelInactive(ctx);
+        server.sessions.remove(this);
+        if (pinger != null) pinger.cancel(false);
+        server.broadcast(server.onlineUsers());
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Packet packet) {
+        server.handle(this, packet);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        EmbeddedServer.LOGGER.error("Embedded server session failed", cause);
+        ctx.close();
+    }
+
+    public void send(Packet packet) {
+        if (channel != null && channel.isActive()) channel.writeAndFlush(packet);
+    }
+}
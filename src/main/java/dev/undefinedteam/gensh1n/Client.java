@@ -2,6 +2,8 @@ package dev.undefinedteam.gensh1n;
 
 import com.google.gson.Gson;
 import dev.undefinedteam.gclient.GChat;
+import dev.undefinedteam.gensh1n.events.ClientEventBus;
+import dev.undefinedteam.gensh1n.events.network.PacketBus;
 import dev.undefinedteam.gensh1n.hotbar.SilentHotbar;
 import dev.undefinedteam.gensh1n.music.GMusic;
 import dev.undefinedteam.gensh1n.render.Fonts;
@@ -9,10 +11,10 @@ import dev.undefinedteam.gensh1n.render.GL;
 import dev.undefinedteam.gensh1n.render._new.NText;
 import dev.undefinedteam.gensh1n.rotate.RotationManager;
 import dev.undefinedteam.gensh1n.system.TextReplacements;
+import dev.undefinedteam.gensh1n.system.modules.TickScheduler;
 import dev.undefinedteam.gensh1n.utils.json.GsonUtils;
 import dev.undefinedteam.gensh1n.utils.network.NetPayload;
 import dev.undefinedteam.gensh1n.utils.predict.ExtrapolationUtils;
-import meteordevelopment.orbit.EventBus;
 import meteordevelopment.orbit.IEventBus;
 import net.minecraft.client.MinecraftClient;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
@@ -41,7 +43,8 @@ public class Client {
     public static final Gson GSON = GsonUtils.newBuilder().create();
     public static final MinecraftClient mc = MinecraftClient.getInstance();
     public static final File FOLDER = new File("_" + NAME + "_");
-    public static final IEventBus EVENT_BUS = new EventBus();
+    public static final PacketBus PACKET_BUS = new PacketBus();
+    public static final IEventBus EVENT_BUS = new ClientEventBus(PACKET_BUS);
     public static final String NAME_F = "G";
     public static final String SINGLE_SPECIAL_NAME = "\uD835\uDD72";
     public static final String FULL_UPPER1_SPECIAL_NAME = "\uD835\uDD72";
@@ -68,7 +71,8 @@ public class Client {
     public static void init() {
         EVENT_BUS.subscribe(ExtrapolationUtils.class);
         EVENT_BUS.subscribe(NetPayload.class);
-        EVENT_BUS.subscribe(TextReplacements.class);
+        TickScheduler.init();
+        TextReplacements.init();
 
         ROT = new RotationManager();
         HOTBAR = new SilentHotbar();
@@ -4,7 +4,9 @@ import dev.undefinedteam.gclient.GCClient;
 import dev.undefinedteam.gclient.GCUser;
 import dev.undefinedteam.gclient.GChat;
 import dev.undefinedteam.gensh1n.events.client.KeyEvent;
+import dev.undefinedteam.gensh1n.events.client.OpenScreenEvent;
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
+import dev.undefinedteam.gensh1n.events.game.GameJoinedEvent;
 import dev.undefinedteam.gensh1n.events.render.Render2DAfterHotbar;
 import dev.undefinedteam.gensh1n.gui.OverlayRenderer;
 import dev.undefinedteam.gensh1n.gui.frags.ChatFragment;
@@ -24,6 +26,9 @@ import dev.undefinedteam.gensh1n.utils.input.KeyAction;
 import dev.undefinedteam.gensh1n.utils.player.SoundManager;
 import dev.undefinedteam.gensh1n.utils.render.color.Color;
 import dev.undefinedteam.gensh1n.utils.render.color.RainbowColors;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
+import dev.undefinedteam.gensh1n.utils.task.StartupGraph;
+import dev.undefinedteam.gensh1n.utils.task.StartupGraph.Affinity;
 import dev.undefinedteam.gensh1n.utils.task.Tasks;
 import dev.undefinedteam.modernui.mc.MusicPlayer;
 import icyllis.modernui.ModernUI;
@@ -46,6 +51,8 @@ import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
 import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -59,6 +66,8 @@ public class Genshin extends ModernUIMod implements ClientModInitializer {
     public static final Logger LOG = LogManager.getLogger("Genshin");
     public static Genshin INSTANCE;
     public final Tasks task = new Tasks();
+    private StartupGraph startup;
+    private long launchTime;
     private final ModernUIFabricClient ui_client = new ModernUIFabricClient(LOG, MARKER);
     public static SoundManager soundManager;
 
@@ -70,54 +79,81 @@ public class Genshin extends ModernUIMod implements ClientModInitializer {
     public void onInitializeClient() {
         INSTANCE = this;
 
-        try {
-            GChat.get();
-//            GChat.get().startClient(); 关闭irc
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
         task.start();
-        var initTime = System.currentTimeMillis();
+        var initTime = launchTime = System.currentTimeMillis();
         LOG.info("Starting {} v{}...", Client.NAME, Client.VERSION);
         task.push(Client.NAME + "_init");
 
         Client.EVENT_BUS.subscribe(this);
 
-        task.push("ui_engine");
-        loadUI();
-        ui_client.onInitializeClient();
-        new OverlayRenderer().init();
-        task.popPush("main");
-
-        Utils.init();
-        Client.init();
-        soundManager = new SoundManager();
-        soundManager.registerSounds();
-        soundManager.CreateSoundsFolder();
-
-        task.popPush("render");
-        ClientLifecycleEvents.CLIENT_STARTED.register((mc) -> {
-            Shaders.init();
-            new GMusic().init();
-            new NText().init();
-            new NR3D().init();
-            Fonts.init();
-        });
-
-        Systems.init(Genshin.INSTANCE.task);
-        RainbowColors.init();
-
-
-        task.popPush("add_shutdown");
+        startup = new StartupGraph("startup", task, PriorityExecutor.SHARED.executor(PriorityExecutor.Priority.NORMAL))
+            .stage("config_parse", Affinity.WORKER, Systems::preload)
+            .stage("font_unpack", Affinity.WORKER, () -> {
+                try {
+                    Fonts.unpack();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })
+            .stage("music_load", Affinity.WORKER, () -> new GMusic().load())
+            // user file, packet registry and the asset index and journal
+            .stage("gchat", Affinity.WORKER, () -> {
+                try {
+                    GChat.get();
+                } catch (Exception e) {
+                    LOG.error("Failed to load GChat", e);
+                }
+            })
+            .stage("ui_engine", Affinity.MAIN, () -> {
+                loadUI();
+                ui_client.onInitializeClient();
+                new OverlayRenderer().init();
+            })
+            .stage("main", Affinity.MAIN, () -> {
+                Utils.init();
+                Client.init();
+                soundManager = new SoundManager();
+                soundManager.registerSounds();
+                soundManager.CreateSoundsFolder();
+            }, "ui_engine")
+            .stage("systems", Affinity.MAIN, () -> {
+                Systems.init(Genshin.INSTANCE.task);
+                RainbowColors.init();
+            }, "main", "config_parse", "gchat")
+            .stage("shaders", Affinity.RENDER, Shaders::init)
+            .stage("music", Affinity.RENDER, () -> GMusic.INSTANCE.start(), "music_load")
+            .stage("text", Affinity.RENDER, () -> {
+                new NText().init();
+                new NR3D().init();
+            })
+            .stage("fonts", Affinity.RENDER, Fonts::init, "font_unpack")
+            // network, after the title screen is up
+            .stage("music_refresh", Affinity.DEFERRED, () -> GMusic.INSTANCE.refreshAll(), "music");
+        startup.start();
+        startup.run(Affinity.MAIN);
+        ClientLifecycleEvents.CLIENT_STARTED.register((mc) -> startup.run(Affinity.RENDER));
+
+        task.push("add_shutdown");
         Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, Client.NAME + "_shutdown"));
         task.pop();
 
         task.pop();
         LOG.info("Done. {}ms.", System.currentTimeMillis() - initTime);
-        task.done();
-        task.show("Client Init", LOG);
-        task.reset();
+        // render thread and deferred stages finish after the title screen, the trace covers all of them
+        startup.completion().whenComplete((v, t) -> {
+            task.done();
+            task.show("Client Init", LOG);
+            exportTrace("init");
+            task.reset();
+        });
+    }
+
+    private void exportTrace(String name) {
+        try {
+            LOG.info("Trace written to '{}'.", task.exportTrace(name));
+        } catch (IOException e) {
+            LOG.error("Failed to write {} trace", name, e);
+        }
     }
 
     private void loadUI() {
@@ -135,6 +171,20 @@ public class Genshin extends ModernUIMod implements ClientModInitializer {
         Config.reloadAnyClient();
     }
 
+    @EventHandler
+    private void onOpenScreen(OpenScreenEvent e) {
+        if (e.screen instanceof TitleScreen && startup != null && !startup.isReleased()) {
+            LOG.info("Title screen after {}ms.", System.currentTimeMillis() - launchTime);
+            startup.release();
+        }
+    }
+
+    @EventHandler
+    private void onGameJoined(GameJoinedEvent e) {
+        // quick play skips the title screen
+        if (startup != null) startup.release();
+    }
+
     @EventHandler
     private void onKey(KeyEvent e) {
         if (e.isCancelled()) return;
@@ -234,12 +284,13 @@ public class Genshin extends ModernUIMod implements ClientModInitializer {
         LOG.info("Done. {}ms.", System.currentTimeMillis() - initTime);
         task.done();
         task.show("Client Reload", LOG);
+        exportTrace("reload");
         task.reset();
     }
 
     @EventHandler
     private void onTick(TickEvent.Pre e) {
-//        GChat.get().reconnectCheck();
+        GCClient.get().tick();
     }
 
     private void shutdown() {
@@ -5,17 +5,34 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 public class BufferInputStream extends InputStream {
+    /**
+     * Bytes waited for at once from a source that is still arriving
+     */
+    private static final int AWAIT_CHUNK = 16 * 1024;
 
     private final ByteBuffer buffer;
+    private final TrackSource source;
     private int mark = -1;
+    /**
+     * End of the bytes known to be present from readyFrom on
+     */
+    private int readyFrom, ready;
 
     public BufferInputStream(ByteBuffer buffer) {
+        this(buffer, null);
+    }
+
+    /**
+     * @param source waited on before reading, the buffer has to be a view of its buffer
+     */
+    public BufferInputStream(ByteBuffer buffer, TrackSource source) {
         this.buffer = buffer;
+        this.source = source;
     }
 
     @Override
     public int read() throws IOException {
-        if (!buffer.hasRemaining()) {
+        if (readable() == 0) {
             return -1;
         }
         return buffer.get() & 0xFF;
@@ -23,14 +40,31 @@ public class BufferInputStream extends InputStream {
 
     @Override
     public int read(byte[] bytes, int off, int len) throws IOException {
-        if (!buffer.hasRemaining()) {
+        int readable = readable();
+        if (readable == 0) {
             return -1;
         }
-        len = Math.min(len, buffer.remaining());
+        len = Math.min(len, readable);
         buffer.get(bytes, off, len);
         return len;
     }
 
+    /**
+     * @return bytes that can be read now, waiting for some if none have arrived yet, 0 at the end
+     */
+    private int readable() {
+        if (source == null || !buffer.hasRemaining()) {
+            return buffer.remaining();
+        }
+
+        int position = buffer.position();
+        if (position < readyFrom || position >= ready) {
+            readyFrom = position;
+            ready = Math.min(buffer.limit(), source.await(position, AWAIT_CHUNK));
+        }
+        return Math.max(0, ready - position);
+    }
+
     @Override
     public synchronized void mark(int readLimit) {
         mark = buffer.position();
@@ -0,0 +1,305 @@
+package dev.undefinedteam.gensh1n.codec;
+
+import dev.undefinedteam.gensh1n.codec.flac.Constants;
+import dev.undefinedteam.gensh1n.codec.flac.FLACDecoder;
+import dev.undefinedteam.gensh1n.codec.flac.LPCPredictor;
+import dev.undefinedteam.gensh1n.codec.flac.frame.Frame;
+import dev.undefinedteam.gensh1n.codec.flac.io.BitInputStream;
+import dev.undefinedteam.gensh1n.codec.flac.io.BitOutputStream;
+import dev.undefinedteam.gensh1n.codec.flac.metadata.Metadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Decode throughput of the FLAC stack in MB/s of 16 bit PCM produced, on mono streams encoded here: Rice residuals
+ * through {@link BitInputStream}, LPC restore through {@link LPCPredictor}, and whole frames at several block sizes
+ * and LPC orders. Every pass is checked against the input before it is timed.
+ */
+public class FlacBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int SAMPLES = SAMPLE_RATE * 10;
+    private static final int WARMUP = 3;
+    private static final int PRECISION = 12;
+    private static final int PARTITION = 4096;
+    private static final int[] BLOCK_SIZES = {1152, 4096, 16384};
+    private static final int[] ORDERS = {2, 8, 12};
+
+    public record Result(String path, double megabytesPerSecond) {
+        @Override
+        public String toString() {
+            return String.format("%s %.1f MB/s", path, megabytesPerSecond);
+        }
+    }
+
+    private interface Pass {
+        void run() throws IOException;
+    }
+
+    public static List<Result> run(int iterations) {
+        var results = new ArrayList<Result>();
+        var pcm = signal(new Random(0x5EED));
+        try {
+            rice(results, iterations, new Random(0xF1AC));
+            for (int order : ORDERS) {
+                lpc(results, iterations, pcm, order);
+            }
+            for (int blockSize : BLOCK_SIZES) {
+                for (int order : ORDERS) {
+                    frames(results, iterations, pcm, blockSize, order);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return results;
+    }
+
+    private static void rice(List<Result> results, int iterations, Random random) throws IOException {
+        int[] residual = new int[SAMPLES];
+        int[] parameters = new int[(SAMPLES + PARTITION - 1) / PARTITION];
+        var bytes = new ByteArrayOutputStream();
+        var out = new BitOutputStream(bytes);
+        for (int p = 0; p < parameters.length; p++) {
+            int start = p * PARTITION, end = Math.min(SAMPLES, start + PARTITION);
+            // louder and quieter stretches, like the residual of real music
+            double scale = 16 + random.nextInt(600);
+            for (int i = start; i < end; i++) residual[i] = (int) Math.round(random.nextGaussian() * scale);
+            parameters[p] = riceParameter(residual, start, end);
+            for (int i = start; i < end; i++) out.writeRiceSigned(residual[i], parameters[p]);
+        }
+        out.zeroPadToByteBoundary();
+        out.flushByteAligned();
+        byte[] stream = bytes.toByteArray();
+
+        int[] decoded = new int[SAMPLES];
+        Pass decode = () -> {
+            var in = new BitInputStream(ByteBuffer.wrap(stream));
+            for (int p = 0; p < parameters.length; p++) {
+                int start = p * PARTITION;
+                in.readRiceSignedBlock(decoded, start, Math.min(PARTITION, SAMPLES - start), parameters[p]);
+            }
+        };
+        decode.run();
+        verify("Rice residual", residual, 0, decoded, 0, SAMPLES);
+
+        results.add(measure("Rice residual", iterations, decode));
+    }
+
+    private static void lpc(List<Result> results, int iterations, int[] pcm, int order) throws IOException {
+        int[] coefficients = new int[order];
+        int shift = quantize(pcm, 0, PARTITION, order, coefficients);
+        int[] residual = new int[SAMPLES];
+        for (int i = order; i < SAMPLES; i++) residual[i - order] = pcm[i] - predict(pcm, i, coefficients, shift);
+
+        // a block per call like the decoder, with the residual of each block starting at 0
+        int[] data = pcm.clone();
+        int[] block = new int[PARTITION];
+        Pass restore = () -> {
+            for (int start = order; start < SAMPLES; start += PARTITION) {
+                int length = Math.min(PARTITION, SAMPLES - start);
+                System.arraycopy(residual, start - order, block, 0, length);
+                LPCPredictor.restoreSignal(block, length, coefficients, order, shift, data, start);
+            }
+        };
+        restore.run();
+        verify("LPC order " + order, pcm, 0, data, 0, SAMPLES);
+
+        results.add(measure("LPC order " + order, iterations, restore));
+    }
+
+    private static void frames(List<Result> results, int iterations, int[] pcm, int blockSize, int order) throws IOException {
+        byte[] stream = encode(pcm, blockSize, order);
+        String path = "Frames block=" + blockSize + " order=" + order;
+
+        int[] decoded = new int[SAMPLES];
+        Pass decode = () -> {
+            var decoder = new FLACDecoder(ByteBuffer.wrap(stream));
+            decoder.readMetadata();
+            Frame frame;
+            while ((frame = decoder.readNextFrame()) != null) {
+                int start = (int) frame.header.sampleNumber;
+                System.arraycopy(decoder.getChannelData()[0].getOutput(), 0, decoded, start, frame.header.blockSize);
+            }
+        };
+        decode.run();
+        verify(path, pcm, 0, decoded, 0, SAMPLES);
+
+        results.add(measure(path, iterations, decode));
+    }
+
+    private static Result measure(String path, int iterations, Pass pass) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            pass.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            pass.run();
+        }
+        long time = Math.max(1, System.nanoTime() - start);
+        // bytes per nanosecond to MB/s
+        return new Result(path, 2.0 * SAMPLES * iterations * 1000 / time);
+    }
+
+    private static void verify(String path, int[] expected, int expectedOffset, int[] actual, int actualOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (expected[expectedOffset + i] != actual[actualOffset + i]) {
+                throw new IllegalStateException(path + " decoded sample " + i + " wrong");
+            }
+        }
+    }
+
+    /**
+     * A few detuned partials under a slow swell plus noise, enough structure for LPC to find.
+     */
+    private static int[] signal(Random random) {
+        double[] frequencies = {110, 220.5, 331, 440, 659.3, 880};
+        double[] phases = new double[frequencies.length];
+        for (int k = 0; k < phases.length; k++) phases[k] = random.nextDouble() * Math.PI * 2;
+
+        int[] pcm = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = (double) i / SAMPLE_RATE, value = 0;
+            for (int k = 0; k < frequencies.length; k++) {
+                value += 3600 / (k + 1) * Math.sin(Math.PI * 2 * frequencies[k] * t + phases[k]);
+            }
+            value = value * (0.6 + 0.4 * Math.sin(Math.PI * 0.5 * t)) + random.nextGaussian() * 40;
+            pcm[i] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, (int) value));
+        }
+        return pcm;
+    }
+
+    /**
+     * Mono 16 bit stream at a fixed block size, one LPC subframe per frame with the coefficients of that block.
+     */
+    private static byte[] encode(int[] pcm, int blockSize, int order) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new BitOutputStream(bytes);
+
+        out.writeByteBlock(Constants.STREAM_SYNC_STRING, Constants.STREAM_SYNC_STRING.length);
+        out.writeRawUInt(true, 1);
+        out.writeRawUInt(Metadata.METADATA_TYPE_STREAMINFO, 7);
+        out.writeRawUInt(34, 24);
+        out.writeRawUInt(blockSize, 16);
+        out.writeRawUInt(blockSize, 16);
+        out.writeRawUInt(0, 24);
+        out.writeRawUInt(0, 24);
+        out.writeRawUInt(SAMPLE_RATE, 20);
+        out.writeRawUInt(0, 3);
+        out.writeRawUInt(15, 5);
+        out.writeRawULong(pcm.length, 36);
+        out.writeZeroes(128);
+        out.flushByteAligned();
+
+        int[] coefficients = new int[order];
+        for (int frame = 0, start = 0; start < pcm.length; frame++, start += blockSize) {
+            int size = Math.min(blockSize, pcm.length - start);
+
+            // sync, fixed blocking, block size - 1 in 16 bits after the frame number, 44.1 kHz, mono, 16 bit
+            out.writeRawUInt(0xFFF8, 16);
+            out.writeRawUInt(7, 4);
+            out.writeRawUInt(9, 4);
+            out.writeRawUInt(0, 4);
+            out.writeRawUInt(4, 3);
+            out.writeRawUInt(0, 1);
+            out.writeUTF8UInt(frame);
+            out.writeRawUInt(size - 1, 16);
+            out.writeRawUInt(out.getWriteCRC8(), 8);
+
+            if (size <= order * 2) {
+                // verbatim
+                out.writeRawUInt(0x02, 8);
+                for (int i = 0; i < size; i++) out.writeRawInt(pcm[start + i], 16);
+            } else {
+                int shift = quantize(pcm, start, size, order, coefficients);
+                out.writeRawUInt((0x20 | (order - 1)) << 1, 8);
+                for (int i = 0; i < order; i++) out.writeRawInt(pcm[start + i], 16);
+                out.writeRawUInt(PRECISION - 1, 4);
+                out.writeRawInt(shift, 5);
+                for (int c : coefficients) out.writeRawInt(c, PRECISION);
+
+                // partitions of 256 samples or more where the block size allows
+                int partitionOrder = 0;
+                while (partitionOrder < 8 && size % (2 << partitionOrder) == 0 && (size >> (partitionOrder + 1)) >= 256) {
+                    partitionOrder++;
+                }
+                out.writeRawUInt(0, 2);
+                out.writeRawUInt(partitionOrder, 4);
+
+                int[] residual = new int[size];
+                for (int i = order; i < size; i++) {
+                    residual[i] = pcm[start + i] - predict(pcm, start + i, coefficients, shift);
+                }
+                int length = size >> partitionOrder;
+                for (int p = 0, from = order; p < 1 << partitionOrder; p++) {
+                    int to = (p + 1) * length;
+                    int parameter = riceParameter(residual, from, to);
+                    out.writeRawUInt(parameter, 4);
+                    for (int i = from; i < to; i++) out.writeRiceSigned(residual[i], parameter);
+                    from = to;
+                }
+            }
+
+            out.zeroPadToByteBoundary();
+            out.writeRawUInt(out.getWriteCRC16() & 0xFFFF, 16);
+            out.flushByteAligned();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int predict(int[] pcm, int i, int[] coefficients, int shift) {
+        int sum = 0;
+        for (int j = 0; j < coefficients.length; j++) {
+            sum += coefficients[j] * pcm[i - j - 1];
+        }
+        return sum >> shift;
+    }
+
+    /**
+     * Levinson-Durbin over the unwindowed block, quantized to {@link #PRECISION} bits.
+     *
+     * @return the quantization shift
+     */
+    private static int quantize(int[] pcm, int start, int size, int order, int[] quantized) {
+        double[] autocorrelation = new double[order + 1];
+        for (int lag = 0; lag <= order; lag++) {
+            double sum = 0;
+            for (int i = lag; i < size; i++) sum += (double) pcm[start + i] * pcm[start + i - lag];
+            autocorrelation[lag] = sum;
+        }
+
+        double[] lpc = new double[order], previous = new double[order];
+        double error = autocorrelation[0];
+        for (int i = 0; i < order && error > 0; i++) {
+            double reflection = autocorrelation[i + 1];
+            for (int j = 0; j < i; j++) reflection -= lpc[j] * autocorrelation[i - j];
+            reflection /= error;
+
+            System.arraycopy(lpc, 0, previous, 0, i);
+            lpc[i] = reflection;
+            for (int j = 0; j < i; j++) lpc[j] = previous[j] - reflection * previous[i - 1 - j];
+            error *= 1 - reflection * reflection;
+        }
+
+        double max = 0;
+        for (double c : lpc) max = Math.max(max, Math.abs(c));
+        int shift = max > 0 ? Math.max(0, Math.min(15, PRECISION - 2 - Math.getExponent(max))) : 0;
+        int limit = (1 << (PRECISION - 1)) - 1;
+        for (int j = 0; j < order; j++) {
+            quantized[j] = (int) Math.max(-limit - 1, Math.min(limit, Math.round(lpc[j] * (1 << shift))));
+        }
+        return shift;
+    }
+
+    private static int riceParameter(int[] residual, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) sum += Math.abs(residual[i]);
+        long mean = to > from ? sum / (to - from) : 0;
+        return mean > 0 ? Math.min(14, 63 - Long.numberOfLeadingZeros(mean)) : 0;
+    }
+}
@@ -1,154 +1,347 @@
 package dev.undefinedteam.gensh1n.codec;
 
+import dev.undefinedteam.gensh1n.codec.flac.ChannelData;
 import dev.undefinedteam.gensh1n.codec.flac.FLACDecoder;
+import dev.undefinedteam.gensh1n.codec.flac.frame.Frame;
+import dev.undefinedteam.gensh1n.codec.flac.frame.Header;
 import dev.undefinedteam.gensh1n.codec.flac.metadata.Metadata;
+import dev.undefinedteam.gensh1n.codec.flac.metadata.SeekTable;
 import dev.undefinedteam.gensh1n.codec.flac.metadata.StreamInfo;
 import icyllis.modernui.audio.SoundSample;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
-import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ShortBuffer;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.Executor;
 
+/**
+ * Streaming FLAC sample. Frames are decoded from the channel outputs straight into a {@link ShortRingBuffer} of
+ * interleaved 16 bit PCM, a couple of frames ahead of the player. Seeking narrows the range with the seek table
+ * if there is one and bisects over frame headers from there.
+ * <p>
+ * Given an executor, frames are instead decoded concurrently by a {@link FlacLookahead} and played from its blocks,
+ * which keeps hi-res streams from starving the player when the thread pulling samples is busy.
+ * <p>
+ * The track may still be downloading, every frame is waited for on the {@link TrackSource} before it is decoded.
+ */
 @StringEncryption
 @ControlFlowObfuscation
 public class FlacDecoder extends SoundSample {
-    private short[] pcm_data;
-    private int sampleIndex,sampleDecoded;
+    /**
+     * Sample number of an unused seek table entry
+     */
+    private static final long PLACEHOLDER_POINT = -1L;
 
-    private FLACDecoder decoder;
-    private StreamInfo info;
-    private Queue<Short> buffer;
+    private final TrackSource source;
+    private final ByteBuffer data;
+    private final FLACDecoder decoder;
+    private final StreamInfo info;
+    private final SeekTable seekTable;
+    /**
+     * Byte offset of the first audio frame, seek table offsets are relative to it
+     */
+    private final int firstFrame;
+
+    /**
+     * Serial decoding only
+     */
+    private final ShortRingBuffer ring;
+    private short[] frameSamples = new short[0];
+    /**
+     * Largest frame in interleaved samples, decoding only goes ahead while the ring has room for it
+     */
+    private final int frameCapacity;
+    /**
+     * Bytes waited for before a frame is decoded, room for one frame and the junk a sync search may skip before it
+     */
+    private final int frameBound;
+    /**
+     * Sample after the last decoded frame
+     */
+    private long decodedTo;
+
+    /**
+     * Decode-ahead only, null if decoding serially
+     */
+    private final FlacLookahead lookahead;
+    private FlacLookahead.Block block;
+    private int blockPosition;
+    /**
+     * Sample the last seek went to, the first block after it starts there
+     */
+    private long skipTo;
 
     public FlacDecoder(ByteBuffer mPayload) {
-        BufferInputStream input = new BufferInputStream(mPayload);
+        this(TrackSource.of(mPayload), null);
+    }
 
+    /**
+     * @param executor decodes frames ahead of the player, serial decoding on the pulling thread if null
+     */
+    public FlacDecoder(TrackSource source, Executor executor) {
         try {
-            decoder = new FLACDecoder(input);
-            Metadata[] d = decoder.readMetadata();
-            info = (StreamInfo) d[0];
+            this.source = source;
+            this.data = source.buffer();
+            int metadataEnd = metadataEnd(source);
+            if (source.await(0, metadataEnd) < metadataEnd) throw new IOException("Stream ended in its metadata");
+            this.decoder = new FLACDecoder(data);
+
+            Metadata[] metadata = decoder.readMetadata();
+            this.info = (StreamInfo) metadata[0];
+            SeekTable table = null;
+            for (Metadata m : metadata) {
+                if (m instanceof SeekTable t && t.numberOfPoints() > 0) table = t;
+            }
+            this.seekTable = table;
+            this.firstFrame = decoder.getBitInputStream().position();
 
             // check support
             if (info.getChannels() > 2)
                 throw new IOException("Number of channels > 2; unsupported");
-//            if (info.getSampleRate() != 44100)
-//                throw new IOException("Sample rate is not 44.1kHz; unsupported.");
-
-            // initialize buffer
-            buffer = new LinkedList<>();
 
             this.mChannels = info.getChannels();
             this.mSampleRate = info.getSampleRate();
             this.mTotalSamples = (int) info.getTotalSamples();
-            this.pcm_data = new short[mTotalSamples * mChannels];
+
+            int maxBlockSize = info.getMaxBlockSize() > 0 ? info.getMaxBlockSize() : 65535;
+            this.frameCapacity = maxBlockSize * mChannels;
+            int maxFrameSize = info.getMaxFrameSize() > 0 ? info.getMaxFrameSize() : frameCapacity * ((info.getBitsPerSample() + 7) / 8) + 64;
+            this.frameBound = maxFrameSize * 2;
+            if (executor != null) {
+                this.ring = null;
+                this.lookahead = new FlacLookahead(source, info, maxBlockSize, executor);
+                lookahead.restart(firstFrame);
+            } else {
+                this.ring = new ShortRingBuffer(frameCapacity * 2);
+                this.lookahead = null;
+            }
         } catch (Exception e) {
-            e.printStackTrace();
+            throw new RuntimeException("Failed to open track", e);
         }
     }
 
     @Override
     public boolean seek(int sampleOffset) {
-        this.sampleIndex = sampleOffset * this.mChannels;
-        return true;
+        if (sampleOffset < 0 || (mTotalSamples > 0 && sampleOffset >= mTotalSamples)) return false;
+
+        try {
+            reposition(locate(sampleOffset));
+            while (true) {
+                int offset = decoder.getBitInputStream().position();
+                Frame frame = readFrame();
+                if (frame == null) return false;
+
+                long start = frame.header.sampleNumber;
+                if (start + frame.header.blockSize > sampleOffset) {
+                    if (lookahead != null) {
+                        // the pool takes over from this frame, its block is cut to the target when taken
+                        lookahead.recycle(block);
+                        block = null;
+                        skipTo = sampleOffset;
+                        decodedTo = start;
+                        lookahead.restart(offset);
+                    } else {
+                        write(frame);
+                        ring.skip((int) Math.max(0, sampleOffset - start) * mChannels);
+                    }
+                    return true;
+                }
+                decoder.setSamplesDecoded(start + frame.header.blockSize);
+            }
+        } catch (IOException e) {
+            return false;
+        }
     }
 
     @Override
     public int getSamplesShortInterleaved(ShortBuffer pcmBuffer) {
-        int decoded = 0;
-        int copyLen = pcmBuffer.remaining();
-
-        while (sampleIndex + copyLen > sampleDecoded) {
-            try {
-                var pack = nextMonoFrame();
-                System.arraycopy(pack, 0, pcm_data, sampleDecoded, pack.length);
-                sampleDecoded += pack.length;
-            } catch (Exception e) {
-                return 0;
-            }
-        }
+        if (lookahead != null) return readAhead(pcmBuffer);
 
+        int copied = 0;
         try {
-            pcmBuffer.put(Arrays.copyOfRange(this.pcm_data, this.sampleIndex, this.sampleIndex + copyLen));
-            this.sampleIndex += copyLen;
-            decoded += copyLen;
-        } catch (ArrayIndexOutOfBoundsException ignored) {
+            while (pcmBuffer.hasRemaining()) {
+                if (ring.available() == 0 && !fill()) break;
+                copied += ring.get(pcmBuffer);
+            }
+        } catch (IOException ignored) {
         }
-        return decoded / this.mChannels;
+        return copied / this.mChannels;
     }
 
     @Override
     public void close() {
+        if (lookahead != null) lookahead.close();
+        source.close();
     }
 
-    public short[] nextMonoFrame() throws IOException {
-        if (buffer.size() < 1024)
-            fillBuffer();
+    private int readAhead(ShortBuffer pcmBuffer) {
+        int copied = 0;
+        while (pcmBuffer.hasRemaining()) {
+            if ((block == null || blockPosition >= block.length()) && !nextBlock()) break;
 
-        if (buffer.size() < 1024)
-            return null;
+            int count = Math.min(pcmBuffer.remaining(), block.length() - blockPosition);
+            pcmBuffer.put(block.samples(), blockPosition, count);
+            blockPosition += count;
+            copied += count;
+        }
+        return copied / this.mChannels;
+    }
 
-        // grab samples from the buffer and return them
-        short[] frame = new short[1024];
-        for (int i = 0; i < frame.length; i++)
-            frame[i] = buffer.poll();
+    /**
+     * @return false if nothing is left to play
+     */
+    private boolean nextBlock() {
+        lookahead.recycle(block);
+        block = lookahead.take();
+        if (block == null) {
+            if (info.getTotalSamples() <= 0) this.mTotalSamples = (int) decodedTo;
+            return false;
+        }
+        decodedTo = block.sampleNumber() + block.length() / mChannels;
+        blockPosition = (int) Math.max(0, Math.min(block.length(), (skipTo - block.sampleNumber()) * mChannels));
+        return true;
+    }
+
+    /**
+     * Decodes frames until the ring has no room for another one.
+     *
+     * @return false if nothing is left to play
+     */
+    private boolean fill() throws IOException {
+        while (ring.free() >= frameCapacity) {
+            if (!decodeFrame()) break;
+        }
+        return ring.available() > 0;
+    }
 
-        return frame;
+    /**
+     * @return false at the end of the stream
+     */
+    private boolean decodeFrame() throws IOException {
+        if (mTotalSamples > 0 && decodedTo >= mTotalSamples) return false;
+
+        Frame frame = readFrame();
+        if (frame == null) {
+            // streams without a sample count in the header only know their length once the end was reached
+            if (info.getTotalSamples() <= 0) this.mTotalSamples = (int) decodedTo;
+            return false;
+        }
+        write(frame);
+        return true;
     }
 
     /**
-     * Fills buffer with mono PCM samples as much as it can. Best-effort.
-     * @throws IOException on decoder error
+     * Interleaves the decoder's channel outputs into the ring, rescaled to 16 bit.
      */
-    private void fillBuffer() throws IOException {
+    private void write(Frame frame) {
+        int length = frame.header.blockSize * mChannels;
+        if (frameSamples.length < length) frameSamples = new short[length];
+        interleave(decoder.getChannelData(), frame.header, mChannels, frameSamples);
+        ring.put(frameSamples, 0, length);
 
-        while (buffer.size() < 1024) {
-            try {
-                // get & decode a frame
-                var encodedFrame = decoder.readNextFrame();
-                var d = decoder.decodeFrame(encodedFrame, null);
+        decodedTo = frame.header.sampleNumber + frame.header.blockSize;
+        decoder.setSamplesDecoded(decodedTo);
+    }
 
-                /* ByteData has a larger capacity than the data it contains. getLen()
-                 * doesn't return the capacity, it returns the number of valid elements
-                 * in the collection. The rest of the values are initialized to 0, so
-                 * you can't do a foreach because you'll read out all those as well. */
-                byte[] untrimmedByteFrame = d.getData();
-                byte[] byteFrame = new byte[d.getLen()];
-                if (d.getLen() >= 0) System.arraycopy(untrimmedByteFrame, 0, byteFrame, 0, d.getLen());
+    /**
+     * Interleaves the channel outputs of a decoded frame into dst, rescaled to 16 bit.
+     */
+    static void interleave(ChannelData[] output, Header header, int channels, short[] dst) {
+        int blockSize = header.blockSize;
+        int shift = header.bitsPerSample - 16;
+        for (int channel = 0; channel < channels; channel++) {
+            int[] samples = output[channel].getOutput();
+            for (int i = 0, j = channel; i < blockSize; i++, j += channels) {
+                dst[j] = (short) (shift >= 0 ? samples[i] >> shift : samples[i] << -shift);
+            }
+        }
+    }
 
-                // convert byte[] to short[]
-                short[] shortFrame = new short[byteFrame.length];
-                for (int i = 0; i < shortFrame.length; i++)
-                    shortFrame[i] = byteFrame[i];
+    /**
+     * Finds a byte offset from which the next frame starts at or before the target sample.
+     */
+    private int locate(long target) throws IOException {
+        int low = firstFrame, high = data.limit();
 
-                // merge channels to mono if we're working with stereo
-                if (info.getChannels() == 2)
-                    shortFrame = mergeChannels(shortFrame);
+        // the seek table narrows the range, its points are sorted and placeholders come last
+        if (seekTable != null) {
+            for (int i = 0; i < seekTable.numberOfPoints(); i++) {
+                var point = seekTable.getSeekPoint(i);
+                if (point.getSampleNumber() == PLACEHOLDER_POINT) break;
 
-                // add samples to buffer
-                for (short s : shortFrame)
-                    buffer.add(s);
+                long offset = firstFrame + point.getStreamOffset();
+                if (offset >= high) break;
+                if (point.getSampleNumber() <= target) {
+                    low = (int) offset;
+                } else {
+                    high = (int) offset;
+                    break;
+                }
+            }
+        }
 
-            } catch (NullPointerException e) { return; }
+        int best = low;
+        int minFrameSize = Math.max(16, info.getMinFrameSize());
+        while (high - low > minFrameSize) {
+            int mid = (low + high) >>> 1;
+            Frame frame = probe(mid);
+            if (frame == null || frame.header.sampleNumber > target) {
+                high = mid;
+            } else {
+                best = mid;
+                // the frame holding the target is the next one at the latest
+                if (target - frame.header.sampleNumber < 2L * frame.header.blockSize) break;
+                low = mid + 1;
+            }
         }
+        return best;
     }
+
     /**
-     * Merges stereo audio by averaging channels together
-     * @param samples interlaced stereo sample buffer
-     * @return mono sample buffer
+     * @return the first frame found at or after the offset, null if there is none
      */
-    private short[] mergeChannels(short[] samples) {
+    private Frame probe(int offset) throws IOException {
+        reposition(offset);
+        return readFrame();
+    }
 
-        int l = (int) Math.floor(samples.length / 2);
-        short[] merged = new short[l];
+    /**
+     * Waits for the bytes of the next frame, then decodes it.
+     *
+     * @return null at the end of the stream or of what could be downloaded
+     */
+    private Frame readFrame() throws IOException {
+        int position = decoder.getBitInputStream().position();
+        if (source.await(position, frameBound) < Math.min(data.limit(), position + frameBound)) return null;
+        return decoder.readNextFrame();
+    }
 
-        for (int i = 0; i < l; i++)
-            merged[i] = (short) ((samples[i * 2] + samples[i * 2 + 1]) / 2.0f);
+    /**
+     * Walks the metadata block headers, waiting for each, to find where the audio frames start.
+     */
+    private static int metadataEnd(TrackSource source) {
+        var data = source.buffer();
+        int limit = data.limit(), pos = 0;
+        if (source.await(0, 10) >= 10 && data.get(0) == 'I' && data.get(1) == 'D' && data.get(2) == '3') {
+            pos = 10 + ((data.get(6) & 0x7F) << 21 | (data.get(7) & 0x7F) << 14 | (data.get(8) & 0x7F) << 7 | data.get(9) & 0x7F);
+        }
+        // stream marker, then blocks of a last flag, 7 bit type and 24 bit length
+        pos += 4;
+        boolean last = false;
+        while (!last && pos + 4 <= limit && source.await(pos, 4) >= pos + 4) {
+            int header = data.getInt(pos);
+            last = header < 0;
+            pos += 4 + (header & 0xFFFFFF);
+        }
+        return Math.min(pos, limit);
+    }
 
-        return merged;
+    private void reposition(int offset) {
+        decoder.getBitInputStream().seek(offset);
+        // FLACDecoder stops syncing once it believes the stream ended, its count is corrected on the next frame
+        decoder.setSamplesDecoded(0);
+        if (ring != null) ring.clear();
     }
 }
@@ -0,0 +1,142 @@
+package dev.undefinedteam.gensh1n.codec;
+
+import dev.undefinedteam.gensh1n.codec.flac.frame.BadHeaderException;
+import dev.undefinedteam.gensh1n.codec.flac.frame.Header;
+import dev.undefinedteam.gensh1n.codec.flac.io.BitInputStream;
+import dev.undefinedteam.gensh1n.codec.flac.metadata.StreamInfo;
+import dev.undefinedteam.gensh1n.codec.flac.util.CRC16;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Walks the frames of a FLAC stream without decoding them. A frame starts at a sync code whose header passes its
+ * CRC-8 and ends where the CRC-16 over its bytes checks out right before the next such header, so sync patterns
+ * inside the audio data are not taken for boundaries. The scan never waits on the {@link TrackSource}: where bytes
+ * have not arrived yet it stops and reports them through {@link #missing()}.
+ */
+public class FlacFrameScanner {
+    /**
+     * Longest frame header including its CRC-8
+     */
+    private static final int MAX_HEADER = 16;
+
+    private final TrackSource source;
+    private final ByteBuffer data;
+    private final StreamInfo info;
+    private final BitInputStream headers;
+    private final byte[] warmup = new byte[2];
+    private int position;
+    /**
+     * End of the bytes known to be present from readyFrom on
+     */
+    private int readyFrom, ready;
+    private int missing = -1;
+
+    public record Span(int offset, int length, long sampleNumber, int blockSize) {
+    }
+
+    public FlacFrameScanner(TrackSource source, StreamInfo info, int position) {
+        this.source = source;
+        this.data = source.buffer().duplicate();
+        this.info = info;
+        this.headers = new BitInputStream(data);
+        this.position = position;
+    }
+
+    public void reset(int position) {
+        this.position = position;
+        this.missing = -1;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return the byte the last {@link #next()} stopped at because it had not arrived, -1 if it did not
+     */
+    public int missing() {
+        return missing;
+    }
+
+    /**
+     * @return the next frame at or after the position, null at the end of the data or if bytes are missing
+     */
+    public Span next() {
+        int limit = data.limit();
+        missing = -1;
+        Header header = null;
+        int offset = position;
+        for (; offset < limit - 1; offset++) {
+            if (!present(offset, Math.min(MAX_HEADER, limit - offset))) return starve(offset, offset);
+            if ((header = header(offset)) != null) break;
+        }
+        if (header == null) {
+            position = limit;
+            return null;
+        }
+
+        // nothing but a tag can follow the last frame of a stream that knows its length
+        long total = info.getTotalSamples();
+        boolean last = total > 0 && header.sampleNumber + header.blockSize >= total;
+        // header, at least one subframe byte and the footer
+        int shortest = headers.position() - offset + 3;
+
+        int end = limit;
+        short crc = 0;
+        for (int i = offset; i < limit; i++) {
+            if (!present(i, 1)) return starve(offset, i);
+            crc = CRC16.update(data.get(i), crc);
+            int length = i + 1 - offset;
+            // the CRC over a frame including its stored CRC is zero
+            if (crc == 0 && length >= shortest) {
+                if (last || i + 1 == limit) {
+                    end = i + 1;
+                    break;
+                }
+                if (!present(i + 1, Math.min(MAX_HEADER, limit - i - 1))) return starve(offset, i + 1);
+                if (header(i + 1) != null) {
+                    end = i + 1;
+                    break;
+                }
+            }
+        }
+        position = end;
+        return new Span(offset, end - offset, header.sampleNumber, header.blockSize);
+    }
+
+    /**
+     * @return the header at the offset if there is a valid one, its bytes have to be present
+     */
+    private Header header(int offset) {
+        if (offset + 2 > data.limit()) return null;
+        int b0 = data.get(offset) & 0xFF, b1 = data.get(offset + 1) & 0xFF;
+        if (b0 != 0xFF || b1 >> 2 != 0x3E) return null;
+
+        warmup[0] = (byte) b0;
+        warmup[1] = (byte) b1;
+        headers.seek(offset + 2);
+        try {
+            return new Header(headers, warmup, info);
+        } catch (IOException | BadHeaderException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The next scan starts over at the frame, once the missing byte arrived.
+     */
+    private Span starve(int frame, int missing) {
+        this.position = frame;
+        this.missing = missing;
+        return null;
+    }
+
+    private boolean present(int pos, int count) {
+        if (pos >= readyFrom && pos + count <= ready) return true;
+        readyFrom = pos;
+        ready = source.arrived(pos);
+        return pos + count <= ready;
+    }
+}
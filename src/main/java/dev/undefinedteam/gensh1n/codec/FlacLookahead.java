@@ -0,0 +1,203 @@
+package dev.undefinedteam.gensh1n.codec;
+
+import dev.undefinedteam.gensh1n.codec.flac.FLACDecoder;
+import dev.undefinedteam.gensh1n.codec.flac.frame.Frame;
+import dev.undefinedteam.gensh1n.codec.flac.metadata.StreamInfo;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decodes FLAC frames ahead of the player. A single scan task at a time finds frame boundaries with
+ * {@link FlacFrameScanner} and hands every frame to the executor, where they decode concurrently, each worker on a
+ * FLACDecoder of its own, into pooled blocks of interleaved 16 bit PCM. The consumer takes the blocks in stream
+ * order from a lock-free queue and only waits when the frame it needs is still being decoded. The scan stops at bytes
+ * that have not been downloaded yet, the consumer waits for those itself when it runs dry.
+ */
+public class FlacLookahead {
+    /**
+     * Audio kept decoded or in flight ahead of the consumer
+     */
+    private static final int AHEAD_MILLIS = 500;
+    private static final int MIN_FRAMES = 4;
+    private static final long WAIT_NANOS = 200_000L;
+    private static final int AWAIT_CHUNK = 16 * 1024;
+    private static final short[] EMPTY = new short[0];
+
+    /**
+     * Decode-ahead runs on threads of its own, the audio thread joins these futures and must never wait behind
+     * network requests queued on the shared pools.
+     */
+    public static final Executor EXECUTOR = Executors.newFixedThreadPool(
+        Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), r -> {
+            var thread = new Thread(r, "FlacLookahead");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY + 1);
+            return thread;
+        });
+
+    private final TrackSource source;
+    private final StreamInfo info;
+    private final Executor executor;
+    private final FlacFrameScanner scanner;
+    private final int channels, blockCapacity, depth;
+
+    private final ConcurrentLinkedQueue<CompletableFuture<Block>> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<FLACDecoder> decoders = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<short[]> blocks = new ConcurrentLinkedQueue<>();
+    /**
+     * Frames submitted and not yet taken, the scan task stops at {@link #depth}
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean scanning = new AtomicBoolean();
+    private volatile boolean ended, closed;
+    /**
+     * Byte the scan stopped at because it had not arrived, -1 if it did not
+     */
+    private volatile int missing = -1;
+
+    public record Block(long sampleNumber, short[] samples, int length) {
+    }
+
+    public FlacLookahead(TrackSource source, StreamInfo info, int maxBlockSize, Executor executor) {
+        this.source = source;
+        this.info = info;
+        this.executor = executor;
+        this.channels = info.getChannels();
+        this.blockCapacity = maxBlockSize * channels;
+        this.depth = Math.max(MIN_FRAMES, (int) ((long) info.getSampleRate() * AHEAD_MILLIS / 1000 / maxBlockSize) + 1);
+        this.scanner = new FlacFrameScanner(source, info, 0);
+    }
+
+    /**
+     * Drops everything queued and continues with the first frame at or after the offset.
+     */
+    public void restart(int offset) {
+        synchronized (scanner) {
+            drain();
+            scanner.reset(offset);
+            ended = false;
+            missing = -1;
+        }
+        schedule();
+    }
+
+    /**
+     * @return the next block in stream order, null once the stream ended
+     */
+    public Block take() {
+        while (true) {
+            // read before polling, the scan task only ends after queueing the last frame
+            boolean end = ended;
+            var next = queue.poll();
+            if (next != null) {
+                queued.decrementAndGet();
+                schedule();
+                return next.join();
+            }
+            if (end || closed) return null;
+
+            int at = missing;
+            if (at >= 0) {
+                // waiting also has the source fetch the bytes if nothing is downloading them
+                if (source.await(at, AWAIT_CHUNK) <= at) return null;
+                missing = -1;
+            }
+            schedule();
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+    }
+
+    /**
+     * Returns the samples of a block taken from {@link #take()} to the pool.
+     */
+    public void recycle(Block block) {
+        if (block != null && block.samples.length == blockCapacity) blocks.offer(block.samples);
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (scanner) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        CompletableFuture<Block> pending;
+        while ((pending = queue.poll()) != null) {
+            queued.decrementAndGet();
+            pending.thenAccept(this::recycle);
+        }
+    }
+
+    private void schedule() {
+        if (closed || ended || missing >= 0 || queued.get() >= depth) return;
+        if (!scanning.compareAndSet(false, true)) return;
+        try {
+            executor.execute(this::scan);
+        } catch (RejectedExecutionException e) {
+            // the consumer retries while it waits
+            scanning.set(false);
+        }
+    }
+
+    private void scan() {
+        try {
+            while (!closed && queued.get() < depth) {
+                synchronized (scanner) {
+                    if (ended) break;
+                    var span = scanner.next();
+                    if (span == null) {
+                        if (scanner.missing() >= 0) missing = scanner.missing();
+                        else ended = true;
+                        break;
+                    }
+                    CompletableFuture<Block> decoded;
+                    try {
+                        decoded = CompletableFuture.supplyAsync(() -> decode(span), executor);
+                    } catch (RejectedExecutionException e) {
+                        // the frame is gone from the scanner, playing on would skip it
+                        ended = true;
+                        break;
+                    }
+                    queued.incrementAndGet();
+                    queue.offer(decoded);
+                }
+            }
+        } finally {
+            scanning.set(false);
+        }
+        // a take or restart may have come in while the flag was still set
+        schedule();
+    }
+
+    private Block decode(FlacFrameScanner.Span span) {
+        var decoder = decoders.poll();
+        // the scanner has waited for every byte of the span
+        if (decoder == null) decoder = new FLACDecoder(source.buffer(), info);
+        try {
+            decoder.getBitInputStream().seek(span.offset());
+            // FLACDecoder stops syncing once it believes the stream ended
+            decoder.setSamplesDecoded(0);
+            Frame frame = decoder.readNextFrame();
+            if (frame == null) return new Block(span.sampleNumber(), EMPTY, 0);
+
+            int length = frame.header.blockSize * channels;
+            short[] samples = length <= blockCapacity ? blocks.poll() : new short[length];
+            if (samples == null) samples = new short[blockCapacity];
+            FlacDecoder.interleave(decoder.getChannelData(), frame.header, channels, samples);
+            return new Block(frame.header.sampleNumber, samples, length);
+        } catch (IOException | RuntimeException e) {
+            return new Block(span.sampleNumber(), EMPTY, 0);
+        } finally {
+            decoders.offer(decoder);
+        }
+    }
+}
@@ -2,153 +2,151 @@ package dev.undefinedteam.gensh1n.codec;
 
 import icyllis.modernui.audio.SoundSample;
 import javazoom.jl.decoder.*;
-import org.checkerframework.checker.units.qual.C;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
-import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
 import java.nio.ByteBuffer;
 import java.nio.ShortBuffer;
-import java.util.*;
-
-import static org.lwjgl.system.MemoryUtil.memAllocShort;
-import static org.lwjgl.system.MemoryUtil.memFree;
 
+/**
+ * Streaming MP3 sample. Frames are decoded one at a time as the player pulls samples and copied straight from
+ * the decoder's output buffer into the caller's buffer, so no PCM of the whole track is ever held. Seeking
+ * restarts the bitstream at a frame found through {@link MP3FrameIndex}. The track may still be downloading, reads
+ * wait on its {@link TrackSource}.
+ */
 @StringEncryption
 @ControlFlowObfuscation
 public class MP3Decoder extends SoundSample {
-    public final short[] pcm_data;
-    public int sampleIndex, samplesDecoded,totalSamplesDecoded;
-    private final ByteBuffer mPlayload;
-    private final BufferInputStream inputStream;
-    private final Bitstream bitstream;
-    private final Decoder decoder;
-    public int div = 1;
+    /**
+     * Frames decoded and dropped before a seek target. A layer III frame starts its main data up to 511 bytes back
+     * in the bit reservoir, which spans 9 to 10 frames at 32 kbps, and the first frame after a restart also lacks
+     * the previous frame's overlap
+     */
+    private static final int PRIME_FRAMES = 10;
+
+    private final TrackSource source;
+    private final ByteBuffer mPayload;
+    private final MP3FrameIndex index;
+    private Bitstream bitstream;
+    private Decoder decoder;
+
+    /**
+     * Output of the last decoded frame, owned by the decoder and valid until the next frame
+     */
+    private short[] frameSamples;
+    private int framePosition, frameLength;
+    /**
+     * Index of the next frame the bitstream returns
+     */
+    private int frame;
 
     public MP3Decoder(ByteBuffer mPayload) {
-        try {
-            this.mPlayload = mPayload;
-            mPlayload.position(0);
-            BufferInputStream input = new BufferInputStream(mPayload);
-            Bitstream bitstream = new Bitstream(input);
-            Decoder decoder = new Decoder();
-
-            int divider = 1;
-            int frames = 0;
-
-            Header header = bitstream.readFrame();
-            if (header == null) throw new RuntimeException("no header");
-
-            decoder.decodeFrame(header, bitstream);
-            if (decoder.getOutputFrequency() <= 24000)
-                divider *= 2;
-            if (decoder.getOutputChannels() == 1)
-                divider *= 2;
-
-            var len = decoder.getOutputBlockSize() / div;
-
-            frames++;
-            while (bitstream.readFrame() != null) {
-                bitstream.closeFrame();
-                frames++;
-            }
-            input.close();
-            bitstream.close();
-
-            this.mChannels = decoder.getOutputChannels();
-            this.mSampleRate = decoder.getOutputFrequency();
-            var samples = frames * decoder.getOutputBlockSize() / divider;
-            this.mTotalSamples = samples / 2;
-            this.pcm_data = new short[samples];
+        this(TrackSource.of(mPayload));
+    }
 
-            mPlayload.position(0);
-            inputStream = new BufferInputStream(mPayload);
-            this.bitstream = new Bitstream(inputStream);
-            this.decoder = new Decoder();
+    public MP3Decoder(TrackSource source) {
+        try {
+            this.source = source;
+            this.mPayload = source.buffer();
+            this.index = new MP3FrameIndex(source);
+            this.mChannels = index.channels;
+            this.mSampleRate = index.sampleRate;
+            this.mTotalSamples = index.estimatedFrames() * index.samplesPerFrame;
+            open(0);
         } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("failed");
+            throw new RuntimeException("Failed to open track", e);
         }
     }
 
+    private void open(int frame) {
+        closeBitstream();
+        var data = mPayload.duplicate();
+        data.position(index.frameOffset(frame));
+        this.bitstream = new Bitstream(new BufferInputStream(data, source));
+        this.decoder = new Decoder();
+        this.frame = frame;
+        this.frameLength = this.framePosition = 0;
+    }
+
     @Override
     public boolean seek(int sampleOffset) {
-        this.sampleIndex = sampleOffset * this.mChannels;
-//        try {
-//            mPlayload.position(0);
-//            this.bitstream = new Bitstream(new BufferInputStream(mPlayload));
-//            this.decoder = new Decoder();
-//            int frames = calcFrame(sampleIndex);
-//            frames--;
-//            for (int i = 0; i < frames; i++) {
-//                bitstream.readFrame();
-//                bitstream.closeFrame();
-//            }
-//
-//            samplesDecoded = sampleIndex;
-//        } catch (Exception e) {
-//            return false;
-//        }
+        if (sampleOffset < 0) return false;
+        int target = sampleOffset / index.samplesPerFrame;
+        int start = Math.max(0, target - PRIME_FRAMES);
+        // the first frame decoded is found first, a target far past the download is located by estimate
+        if (!index.ensure(start) || !index.ensure(target)) {
+            this.mTotalSamples = index.estimatedFrames() * index.samplesPerFrame;
+            return false;
+        }
+
+        try {
+            open(start);
+            while (frame <= target) {
+                if (!decodeFrame()) return false;
+            }
+        } catch (BitstreamException e) {
+            return false;
+        }
+        // skip into the target frame
+        framePosition = Math.min(frameLength, (sampleOffset - target * index.samplesPerFrame) * mChannels);
         return true;
     }
 
     @Override
     public int getSamplesShortInterleaved(ShortBuffer pcmBuffer) {
         int decoded = 0;
-        int copyLen = pcmBuffer.remaining();
-
         try {
-            var targetSamples = sampleIndex + copyLen;
-            while (samplesDecoded < targetSamples && decode(targetSamples)) ;
-            pcmBuffer.put(Arrays.copyOfRange(this.pcm_data, this.sampleIndex, this.sampleIndex + copyLen));
-            this.sampleIndex += copyLen;
-            decoded += copyLen;
-        } catch (ArrayIndexOutOfBoundsException | BitstreamException | DecoderException ignored) {
+            while (pcmBuffer.hasRemaining()) {
+                if (framePosition >= frameLength && !decodeFrame()) break;
+
+                int count = Math.min(pcmBuffer.remaining(), frameLength - framePosition);
+                pcmBuffer.put(frameSamples, framePosition, count);
+                framePosition += count;
+                decoded += count;
+            }
+        } catch (BitstreamException ignored) {
         }
         return decoded / this.mChannels;
     }
 
-    public boolean decode(int targetSamples) throws BitstreamException, DecoderException {
-        List<ShortBuffer> frames = new ArrayList<>();
-        Header header;
-        int decoded = 0;
-        while (samplesDecoded + decoded <= targetSamples && (header = bitstream.readFrame()) != null) {
-            SampleBuffer sb = (SampleBuffer) decoder.decodeFrame(header, bitstream);
-            if (div == 1) {
-                if (decoder.getOutputFrequency() <= 24000)
-                    div *= 2;
-                if (decoder.getOutputChannels() == 1)
-                    div *= 2;
+    /**
+     * Decodes the next frame into {@link #frameSamples}, skipping frames the decoder rejects.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean decodeFrame() throws BitstreamException {
+        while (true) {
+            Header header = bitstream.readFrame();
+            if (header == null) {
+                // the estimate from the stream header is replaced by the exact length once the end was reached
+                this.mTotalSamples = frame * index.samplesPerFrame;
+                return false;
             }
-            ShortBuffer sbuf = memAllocShort(decoder.getOutputBlockSize());
-            sbuf.put(sb.getBuffer());
-            sbuf.flip();
-            bitstream.closeFrame();
-            var len = decoder.getOutputBlockSize() / div;
-            decoded += len;
-            frames.add(sbuf);
-        }
-        if (!frames.isEmpty()) {
-            ShortBuffer _pcm_buffer = memAllocShort(decoded);
-            for (ShortBuffer frame : frames) {
-                for (int i = 0; i < decoder.getOutputBlockSize() / div; i++)
-                    _pcm_buffer.put(frame.get(i));
-                memFree(frame);
+
+            try {
+                SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                frameSamples = output.getBuffer();
+                frameLength = output.getBufferLength();
+                framePosition = 0;
+                return true;
+            } catch (DecoderException | ArrayIndexOutOfBoundsException ignored) {
+                frameLength = framePosition = 0;
+            } finally {
+                bitstream.closeFrame();
+                frame++;
+                index.ensure(frame);
             }
-            _pcm_buffer.flip();
-            _pcm_buffer.get(pcm_data, samplesDecoded, decoded);
-            samplesDecoded += decoded;
-            memFree(_pcm_buffer);
         }
-        return !frames.isEmpty();
-    }
-
-    private int calcFrame(int targetSamples) {
-        return targetSamples * div / decoder.getOutputBlockSize();
     }
 
     @Override
     public void close() {
+        closeBitstream();
+        source.close();
+    }
+
+    private void closeBitstream() {
+        if (bitstream == null) return;
         try {
             bitstream.close();
         } catch (BitstreamException e) {
@@ -0,0 +1,292 @@
+package dev.undefinedteam.gensh1n.codec;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Byte offsets of the frames of an MPEG audio stream, found by reading frame headers only. The index grows on
+ * demand through {@link #ensure(int)}, so playback from the start never scans further than it decodes. Bytes are
+ * waited for through the {@link TrackSource} before they are read, a source that fails ends the index there.
+ * <p>
+ * A frame far past the bytes that arrived is not reached by scanning up to it, which would wait for the download to
+ * get there: its offset is estimated from the Xing table of contents or the average frame size, and a second run of
+ * frames is indexed from there. Frame numbers in that run are estimates too, until the run from the start reaches it.
+ */
+public class MP3FrameIndex {
+    private static final int[][] BITRATES = {
+        // MPEG 1 layer I, II, III
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+        // MPEG 2 / 2.5 layer I, II & III
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+    private static final int[][] SAMPLE_RATES = {
+        {11025, 12000, 8000},
+        null,
+        {22050, 24000, 16000},
+        {44100, 48000, 32000}
+    };
+
+    /**
+     * Bytes waited for at once
+     */
+    private static final int AWAIT_CHUNK = 16 * 1024;
+    /**
+     * A frame this far past the bytes that arrived is located by estimate instead of scanned up to
+     */
+    private static final int JUMP_DISTANCE = 64 * 1024;
+    /**
+     * Returned by {@link #sync} at the end of the data, and when the source failed before the bytes arrived
+     */
+    private static final int END = -1, MISSING = -2;
+
+    private final ByteBuffer data;
+    private final TrackSource source;
+    /**
+     * End of the bytes known to be present from readyFrom on
+     */
+    private int readyFrom, ready;
+
+    /**
+     * Consecutive frames from {@link #first} on
+     */
+    private static final class Run {
+        final int first;
+        final IntArrayList offsets = new IntArrayList();
+        int scanned;
+        boolean ended;
+
+        Run(int first) {
+            this.first = first;
+        }
+
+        int end() {
+            return first + offsets.size();
+        }
+    }
+
+    /**
+     * Frames from the start, and the run started by the last far seek if the first has not reached it
+     */
+    private final Run head = new Run(0);
+    private Run jump;
+
+    public final int sampleRate, channels, samplesPerFrame;
+    /**
+     * Frame count from the Xing / VBRI header or the bitrate, exact once {@link #isComplete()}
+     */
+    private final int estimatedFrames;
+    /**
+     * Xing table of contents, 100 offsets in 1/256 of the stream per percent of the duration, and the stream size
+     */
+    private byte[] toc;
+    private long streamBytes;
+
+    public MP3FrameIndex(ByteBuffer payload) {
+        this(TrackSource.of(payload));
+    }
+
+    public MP3FrameIndex(TrackSource source) {
+        this.source = source;
+        this.data = source.buffer().duplicate();
+
+        int first = sync(skipId3(), true);
+        if (first < 0) throw new IllegalArgumentException("No MPEG audio frame found");
+
+        int header = data.getInt(first);
+        int version = (header >>> 19) & 3, layer = (header >>> 17) & 3;
+        this.sampleRate = SAMPLE_RATES[version][(header >>> 10) & 3];
+        this.channels = ((header >>> 6) & 3) == 3 ? 1 : 2;
+        this.samplesPerFrame = layer == 3 ? 384 : layer == 1 && version != 3 ? 576 : 1152;
+
+        head.offsets.add(first);
+        head.scanned = first + frameLength(header);
+        this.estimatedFrames = estimateFrames(first, header);
+    }
+
+    /**
+     * @param frame a frame {@link #ensure} returned true for
+     */
+    public int frameOffset(int frame) {
+        var run = runOf(frame);
+        return run.offsets.getInt(frame - run.first);
+    }
+
+    /**
+     * Indexes frames until the frame is, scanning up to it or, if it is far past the bytes that arrived, from an
+     * estimated offset.
+     *
+     * @return false if the stream ends before that frame or the source failed
+     */
+    public boolean ensure(int frame) {
+        var run = runOf(frame);
+        if (frame < run.end()) return true;
+        if (run.ended) return false;
+
+        if (far(run, frame)) {
+            int offset = sync(estimateOffset(frame), true);
+            if (offset < 0) return false;
+            run = jump = new Run(frame);
+            run.offsets.add(offset);
+            run.scanned = offset + frameLength(data.getInt(offset));
+        }
+
+        while (run.end() <= frame) {
+            int next = sync(run.scanned, false);
+            if (next == MISSING) return false;
+            if (next == END) {
+                run.ended = true;
+                return false;
+            }
+            run.offsets.add(next);
+            run.scanned = next + frameLength(data.getInt(next));
+        }
+        // the exact numbering took over the frames of the estimated one
+        if (jump != null && head.end() > jump.first) jump = null;
+        return true;
+    }
+
+    public int indexedFrames() {
+        return jump != null ? jump.end() : head.end();
+    }
+
+    public boolean isComplete() {
+        return head.ended;
+    }
+
+    public int estimatedFrames() {
+        if (head.ended) return head.end();
+        if (jump != null && jump.ended) return jump.end();
+        return Math.max(estimatedFrames, indexedFrames());
+    }
+
+    private Run runOf(int frame) {
+        return jump != null && frame >= jump.first ? jump : head;
+    }
+
+    /**
+     * @return whether scanning the run up to the frame would wait for bytes well past those that arrived
+     */
+    private boolean far(Run run, int frame) {
+        int first = head.offsets.getInt(0);
+        long average = Math.max(1, (data.limit() - first) / Math.max(1, estimatedFrames));
+        long needed = run.scanned + (frame - run.end() + 1) * average;
+        return needed > (long) source.arrived(run.scanned) + JUMP_DISTANCE;
+    }
+
+    private int estimateOffset(int frame) {
+        int first = head.offsets.getInt(0);
+        long bytes = streamBytes > 0 ? streamBytes : data.limit() - first;
+        double fraction = Math.min(1.0, (double) frame / Math.max(1, estimatedFrames));
+        if (toc != null) {
+            double percent = fraction * 100;
+            int i = Math.min(99, (int) percent);
+            double from = toc[i] & 0xFF, to = i < 99 ? toc[i + 1] & 0xFF : 256;
+            fraction = (from + (to - from) * (percent - i)) / 256;
+        }
+        return (int) Math.min(data.limit() - 4L, first + (long) (fraction * bytes));
+    }
+
+    /**
+     * @param strict also require the following frame to start where this one ends, used to find a first frame
+     * @return offset of the next frame header at or after pos, {@link #END} at the end of the data,
+     * {@link #MISSING} if the source failed before the bytes arrived
+     */
+    private int sync(int pos, boolean strict) {
+        int limit = data.limit() - 4;
+        for (; pos <= limit; pos++) {
+            if (!present(pos, 4)) return MISSING;
+            if ((data.get(pos) & 0xFF) != 0xFF) continue;
+            int length = frameLength(data.getInt(pos));
+            if (length <= 0) continue;
+            if (!strict || pos + length > limit) return pos;
+            if (!present(pos + length, 4)) return MISSING;
+            if (frameLength(data.getInt(pos + length)) > 0) return pos;
+        }
+        return END;
+    }
+
+    /**
+     * Waits for the bytes unless they are known to be there.
+     *
+     * @return false if the source failed or was closed before they arrived
+     */
+    private boolean present(int pos, int count) {
+        if (pos >= readyFrom && pos + count <= ready) return true;
+        readyFrom = pos;
+        ready = source.await(pos, Math.max(count, AWAIT_CHUNK));
+        return pos + count <= ready;
+    }
+
+    private int skipId3() {
+        if (data.limit() < 10 || !present(0, 10) || data.get(0) != 'I' || data.get(1) != 'D' || data.get(2) != '3') return 0;
+        int size = (data.get(6) & 0x7F) << 21 | (data.get(7) & 0x7F) << 14 | (data.get(8) & 0x7F) << 7 | data.get(9) & 0x7F;
+        boolean footer = (data.get(5) & 0x10) != 0;
+        return Math.min(data.limit(), 10 + size + (footer ? 10 : 0));
+    }
+
+    private int estimateFrames(int first, int header) {
+        int version = (header >>> 19) & 3;
+        boolean mono = channels == 1;
+        int sideInfo = version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+
+        // the info frame itself decodes to silence and is counted as a frame
+        int xing = first + 4 + sideInfo;
+        if (xing + 120 <= data.limit() && present(xing, 120)) {
+            int tag = data.getInt(xing);
+            if (tag == 0x58696E67 || tag == 0x496E666F) {
+                // frames, bytes and the table of contents follow the flags when present
+                int flags = data.getInt(xing + 4), pos = xing + 8, frames = 0;
+                if ((flags & 1) != 0) {
+                    frames = data.getInt(pos) + 1;
+                    pos += 4;
+                }
+                if ((flags & 2) != 0) {
+                    streamBytes = data.getInt(pos) & 0xFFFFFFFFL;
+                    pos += 4;
+                }
+                if ((flags & 4) != 0) {
+                    toc = new byte[100];
+                    data.get(pos, toc);
+                }
+                if (frames > 0) return frames;
+            }
+        }
+        int vbri = first + 36;
+        if (vbri + 18 <= data.limit() && present(vbri, 18) && data.getInt(vbri) == 0x56425249) {
+            return data.getInt(vbri + 14) + 1;
+        }
+
+        int bitrate = bitrate(header);
+        if (bitrate <= 0) return 1;
+        long bytes = data.limit() - first;
+        long samples = bytes * 8 * sampleRate / (bitrate * 1000L);
+        return (int) Math.max(1, samples / samplesPerFrame);
+    }
+
+    private static int bitrate(int header) {
+        int version = (header >>> 19) & 3, layer = (header >>> 17) & 3;
+        int table = version == 3 ? 3 - layer : layer == 3 ? 3 : 4;
+        return BITRATES[table][(header >>> 12) & 0xF];
+    }
+
+    /**
+     * @return frame size in bytes, -1 if the int is not a valid header (free format included)
+     */
+    static int frameLength(int header) {
+        if ((header >>> 21) != 0x7FF) return -1;
+        int version = (header >>> 19) & 3, layer = (header >>> 17) & 3;
+        int bitrateIndex = (header >>> 12) & 0xF, rateIndex = (header >>> 10) & 3;
+        if (version == 1 || layer == 0 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) return -1;
+
+        int bitrate = bitrate(header) * 1000;
+        int sampleRate = SAMPLE_RATES[version][rateIndex];
+        int padding = (header >>> 9) & 1;
+        if (layer == 3) return (12 * bitrate / sampleRate + padding) * 4;
+        if (layer == 1 && version != 3) return 72 * bitrate / sampleRate + padding;
+        return 144 * bitrate / sampleRate + padding;
+    }
+}
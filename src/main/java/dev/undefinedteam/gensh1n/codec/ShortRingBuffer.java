@@ -0,0 +1,64 @@
+package dev.undefinedteam.gensh1n.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ShortBuffer;
+
+/**
+ * Fixed size ring of interleaved PCM samples between a decoder and the player. Not synchronized, producer and
+ * consumer have to agree on a thread or guard it themselves.
+ */
+public class ShortRingBuffer {
+    private final short[] buffer;
+    private int read, size;
+
+    public ShortRingBuffer(int capacity) {
+        this.buffer = new short[capacity];
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public int available() {
+        return size;
+    }
+
+    public int free() {
+        return buffer.length - size;
+    }
+
+    public void clear() {
+        read = size = 0;
+    }
+
+    public void put(short[] src, int off, int len) {
+        if (len > free()) throw new BufferOverflowException();
+
+        int write = (read + size) % buffer.length;
+        int first = Math.min(len, buffer.length - write);
+        System.arraycopy(src, off, buffer, write, first);
+        System.arraycopy(src, off + first, buffer, 0, len - first);
+        size += len;
+    }
+
+    /**
+     * @return samples moved into dst, limited by its remaining space
+     */
+    public int get(ShortBuffer dst) {
+        int len = Math.min(size, dst.remaining());
+        int first = Math.min(len, buffer.length - read);
+        dst.put(buffer, read, first);
+        dst.put(buffer, 0, len - first);
+        return skip(len);
+    }
+
+    /**
+     * @return samples dropped, at most {@link #available()}
+     */
+    public int skip(int count) {
+        count = Math.min(count, size);
+        read = (read + count) % buffer.length;
+        size -= count;
+        return count;
+    }
+}
@@ -0,0 +1,46 @@
+package dev.undefinedteam.gensh1n.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoded track the decoders read from. The buffer spans the whole track, but a source that is still downloading
+ * only has some ranges of it filled, so decoders ask for the bytes they are about to read through {@link #await}.
+ */
+public interface TrackSource {
+    ByteBuffer buffer();
+
+    /**
+     * Blocks until the bytes from position on, length of them or up to the end of the track, have arrived.
+     *
+     * @return end of the bytes present from position on, short of the requested end only if the source failed or
+     * was closed
+     */
+    int await(int position, int length);
+
+    /**
+     * @return end of the bytes present from position on without waiting, position if there are none
+     */
+    int arrived(int position);
+
+    default void close() {
+    }
+
+    static TrackSource of(ByteBuffer buffer) {
+        return new TrackSource() {
+            @Override
+            public ByteBuffer buffer() {
+                return buffer;
+            }
+
+            @Override
+            public int await(int position, int length) {
+                return buffer.limit();
+            }
+
+            @Override
+            public int arrived(int position) {
+                return buffer.limit();
+            }
+        };
+    }
+}
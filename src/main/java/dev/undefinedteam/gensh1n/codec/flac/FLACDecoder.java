@@ -23,6 +23,7 @@ package dev.undefinedteam.gensh1n.codec.flac;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Vector;
 
@@ -104,6 +105,26 @@ public class FLACDecoder {
         //state = DECODER_SEARCH_FOR_METADATA;
     }
 
+    /**
+     * The constructor.
+     * @param buffer    The encoded stream, read from its position without copying
+     */
+    public FLACDecoder(ByteBuffer buffer) {
+        this.inputStream = null;
+        this.bitStream = new BitInputStream(buffer);
+        samplesDecoded = 0;
+    }
+
+    /**
+     * The constructor for decoding frames of a stream whose metadata was already read elsewhere.
+     * @param buffer        The encoded stream, read from its position without copying
+     * @param streamInfo    The StreamInfo of that stream
+     */
+    public FLACDecoder(ByteBuffer buffer, StreamInfo streamInfo) {
+        this(buffer);
+        this.streamInfo = streamInfo;
+    }
+
     /**
      * Return the parsed StreamInfo Metadata record.
      * @return  The StreamInfo
@@ -668,7 +689,7 @@ public class FLACDecoder {
      */
     public void decode(SeekPoint from, SeekPoint to) throws IOException {
         // position random access file
-        if (!(inputStream instanceof RandomFileInputStream)) throw new IOException("Not a RandomFileInputStream: " + inputStream.getClass().getName());
+        if (!(inputStream instanceof RandomFileInputStream)) throw new IOException("Not a RandomFileInputStream: " + (inputStream == null ? "ByteBuffer" : inputStream.getClass().getName()));
         ((RandomFileInputStream)inputStream).seek(from.getStreamOffset());
         bitStream.reset();
         samplesDecoded = from.getSampleNumber();
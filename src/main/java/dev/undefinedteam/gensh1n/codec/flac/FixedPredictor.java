@@ -203,35 +203,55 @@ public class FixedPredictor {
      * @param startAt   The starting position in the data array
      */
     public static void restoreSignal(int[] residual, int dataLen, int order, int[] data, int startAt) {
-        int idataLen = dataLen;
-
+        // the history is carried in locals instead of being read back from data for every sample
         switch (order) {
             case 0 :
-                if (idataLen >= 0) System.arraycopy(residual, 0, data, 0 + startAt, idataLen);
+                if (dataLen >= 0) System.arraycopy(residual, 0, data, startAt, dataLen);
                 break;
-            case 1 :
-                for (int i = 0; i < idataLen; i++) {
-                    data[i + startAt] = residual[i] + data[i + startAt - 1];
+            case 1 : {
+                int d1 = data[startAt - 1];
+                for (int i = 0; i < dataLen; i++) {
+                    d1 += residual[i];
+                    data[i + startAt] = d1;
                 }
                 break;
-            case 2 :
-                for (int i = 0; i < idataLen; i++) {
+            }
+            case 2 : {
+                int d1 = data[startAt - 1], d2 = data[startAt - 2];
+                for (int i = 0; i < dataLen; i++) {
                     /* == residual[i] + 2*data[i-1] - data[i-2] */
-                    data[i + startAt] = residual[i] + (data[i + startAt - 1] << 1) - data[i + startAt - 2];
+                    int v = residual[i] + (d1 << 1) - d2;
+                    data[i + startAt] = v;
+                    d2 = d1;
+                    d1 = v;
                 }
                 break;
-            case 3 :
-                for (int i = 0; i < idataLen; i++) {
+            }
+            case 3 : {
+                int d1 = data[startAt - 1], d2 = data[startAt - 2], d3 = data[startAt - 3];
+                for (int i = 0; i < dataLen; i++) {
                     /* residual[i] + 3*data[i-1] - 3*data[i-2]) + data[i-3] */
-                    data[i + startAt] = residual[i] + (((data[i + startAt - 1] - data[i + startAt - 2]) << 1) + (data[i + startAt - 1] - data[i + startAt - 2])) + data[i + startAt - 3];
+                    int v = residual[i] + 3 * (d1 - d2) + d3;
+                    data[i + startAt] = v;
+                    d3 = d2;
+                    d2 = d1;
+                    d1 = v;
                 }
                 break;
-            case 4 :
-                for (int i = 0; i < idataLen; i++) {
+            }
+            case 4 : {
+                int d1 = data[startAt - 1], d2 = data[startAt - 2], d3 = data[startAt - 3], d4 = data[startAt - 4];
+                for (int i = 0; i < dataLen; i++) {
                     /* == residual[i] + 4*data[i-1] - 6*data[i-2] + 4*data[i-3] - data[i-4] */
-                    data[i + startAt] = residual[i] + ((data[i + startAt - 1] + data[i + startAt - 3]) << 2) - ((data[i + startAt - 2] << 2) + (data[i + startAt - 2] << 1)) - data[i + startAt - 4];
+                    int v = residual[i] + ((d1 + d3) << 2) - 6 * d2 - d4;
+                    data[i + startAt] = v;
+                    d4 = d3;
+                    d3 = d2;
+                    d2 = d1;
+                    d1 = v;
                 }
                 break;
+            }
             default :
         }
     }
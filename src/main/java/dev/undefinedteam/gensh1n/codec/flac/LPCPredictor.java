@@ -203,6 +203,9 @@ public class LPCPredictor {
 
     /**
      * Restore the signal from the LPC compression.
+     * Orders up to 12, all the FLAC subset allows at 48kHz and below, have their own method with the coefficients
+     * held in locals, so the JIT can unroll the sum instead of walking qlpCoeff for every sample. Separate methods
+     * keep one order's profile from deoptimizing the loops of the others.
      * @param residual  The residual signal
      * @param dataLen   The length of the residual data
      * @param qlpCoeff
@@ -212,19 +215,148 @@ public class LPCPredictor {
      * @param startAt   The starting position in the data array
      */
     public static void restoreSignal(int[] residual, int dataLen, int[] qlpCoeff, int order, int lpQuantization, int[] data, int startAt) {
-        //System.out.println("Q="+lpQuantization);
-        for (int i = 0; i < dataLen; i++) {
-            int sum = 0;
-            for (int j = 0; j < order; j++) {
-                sum += qlpCoeff[j] * data[startAt + i - j - 1];
-            }
-            //System.out.print((sum >> lpQuantization)+" ");
-            data[startAt + i] = residual[i] + (sum >> lpQuantization);
+        switch (order) {
+            case 1 : restore1(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 2 : restore2(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 3 : restore3(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 4 : restore4(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 5 : restore5(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 6 : restore6(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 7 : restore7(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 8 : restore8(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 9 : restore9(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 10 : restore10(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 11 : restore11(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            case 12 : restore12(residual, dataLen, qlpCoeff, lpQuantization, data, startAt); break;
+            default :
+                for (int i = 0; i < dataLen; i++) {
+                    int sum = 0;
+                    for (int j = 0; j < order; j++) {
+                        sum += qlpCoeff[j] * data[startAt + i - j - 1];
+                    }
+                    data[startAt + i] = residual[i] + (sum >> lpQuantization);
+                }
+        }
+    }
+
+    private static void restore1(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore2(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore3(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore4(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore5(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore6(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4], c5 = qlpCoeff[5];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5] + c5 * data[i - 6];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore7(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4], c5 = qlpCoeff[5];
+        int c6 = qlpCoeff[6];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5] + c5 * data[i - 6]
+                + c6 * data[i - 7];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore8(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4], c5 = qlpCoeff[5];
+        int c6 = qlpCoeff[6], c7 = qlpCoeff[7];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5] + c5 * data[i - 6]
+                + c6 * data[i - 7] + c7 * data[i - 8];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore9(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4], c5 = qlpCoeff[5];
+        int c6 = qlpCoeff[6], c7 = qlpCoeff[7], c8 = qlpCoeff[8];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5] + c5 * data[i - 6]
+                + c6 * data[i - 7] + c7 * data[i - 8] + c8 * data[i - 9];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore10(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4], c5 = qlpCoeff[5];
+        int c6 = qlpCoeff[6], c7 = qlpCoeff[7], c8 = qlpCoeff[8], c9 = qlpCoeff[9];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5] + c5 * data[i - 6]
+                + c6 * data[i - 7] + c7 * data[i - 8] + c8 * data[i - 9] + c9 * data[i - 10];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore11(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4], c5 = qlpCoeff[5];
+        int c6 = qlpCoeff[6], c7 = qlpCoeff[7], c8 = qlpCoeff[8], c9 = qlpCoeff[9], c10 = qlpCoeff[10];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5] + c5 * data[i - 6]
+                + c6 * data[i - 7] + c7 * data[i - 8] + c8 * data[i - 9] + c9 * data[i - 10] + c10 * data[i - 11];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
+        }
+    }
+
+    private static void restore12(int[] residual, int dataLen, int[] qlpCoeff, int lpQuantization, int[] data, int startAt) {
+        int end = startAt + dataLen;
+        int c0 = qlpCoeff[0], c1 = qlpCoeff[1], c2 = qlpCoeff[2], c3 = qlpCoeff[3], c4 = qlpCoeff[4], c5 = qlpCoeff[5];
+        int c6 = qlpCoeff[6], c7 = qlpCoeff[7], c8 = qlpCoeff[8], c9 = qlpCoeff[9], c10 = qlpCoeff[10], c11 = qlpCoeff[11];
+        for (int i = startAt; i < end; i++) {
+            int sum = c0 * data[i - 1] + c1 * data[i - 2] + c2 * data[i - 3] + c3 * data[i - 4] + c4 * data[i - 5] + c5 * data[i - 6]
+                + c6 * data[i - 7] + c7 * data[i - 8] + c8 * data[i - 9] + c9 * data[i - 10] + c10 * data[i - 11] + c11 * data[i - 12];
+            data[i] = residual[i - startAt] + (sum >> lpQuantization);
         }
-        //System.out.println();
-        //for (int i = 0; i < dataLen+startAt; i++) System.out.print(data[i]+" "); System.out.println();
-        //for (int j = 0; j < order; j++) System.out.print(qlpCoeff[j]+" ");System.out.println();
-        //System.exit(1);
     }
 
     /**
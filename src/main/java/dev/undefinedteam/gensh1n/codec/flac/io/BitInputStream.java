@@ -22,6 +22,8 @@ package dev.undefinedteam.gensh1n.codec.flac.io;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import dev.undefinedteam.gensh1n.codec.flac.util.ByteData;
 import dev.undefinedteam.gensh1n.codec.flac.util.CRC16;
@@ -29,37 +31,24 @@ import dev.undefinedteam.gensh1n.codec.flac.util.CRC16;
 
 /**
  * Bit-wide input stream.
+ * Bits are served from a 64-bit word cache refilled from a ByteBuffer, either the caller's (heap or mapped) or
+ * a chunk buffer read from an InputStream. The frame CRC-16 is folded in lazily over the consumed bytes.
  * @author kc7bfi
  */
 public class BitInputStream {
-    private static final int BITS_PER_BLURB = 8;
-    private static final int BITS_PER_BLURB_LOG2 = 3;
-    private static final byte BLURB_TOP_BIT_ONE = ((byte) 0x80);
-    //private static final long[] MASK32 = new long[]{0, 0x0000000000000001, 0x0000000000000003, 0x0000000000000007, 0x000000000000000F,
-    //        0x000000000000001F, 0x000000000000003F, 0x000000000000007F, 0x00000000000000FF, 0x00000000000001FF, 0x00000000000003FF,
-    //        0x00000000000007FF, 0x0000000000000FFF, 0x0000000000001FFF, 0x0000000000003FFF, 0x0000000000007FFF, 0x000000000000FFFF,
-    //        0x000000000001FFFF, 0x000000000003FFFF, 0x000000000007FFFF, 0x00000000000FFFFF, 0x00000000001FFFFF, 0x00000000003FFFFF,
-    //        0x00000000007FFFFF, 0x0000000000FFFFFF, 0x0000000001FFFFFF, 0x0000000003FFFFFF, 0x0000000007FFFFFF, 0x000000000FFFFFFF,
-    //        0x000000001FFFFFFF, 0x000000003FFFFFFF, 0x000000007FFFFFFF, 0x00000000FFFFFFFF, 0x00000001FFFFFFFFL,
-    //        0x00000003FFFFFFFFL, 0x00000007FFFFFFFFL, 0x0000000FFFFFFFFFL, 0x0000001FFFFFFFFFL, 0x0000003FFFFFFFFFL,
-    //        0x0000007FFFFFFFFFL, 0x000000FFFFFFFFFFL, 0x000001FFFFFFFFFFL, 0x000003FFFFFFFFFFL, 0x000007FFFFFFFFFFL,
-    //        0x00000FFFFFFFFFFFL, 0x00001FFFFFFFFFFFL, 0x00003FFFFFFFFFFFL, 0x00007FFFFFFFFFFFL, 0x0000FFFFFFFFFFFFL,
-    //        0x0001FFFFFFFFFFFFL, 0x0003FFFFFFFFFFFFL, 0x0007FFFFFFFFFFFFL, 0x000FFFFFFFFFFFFFL, 0x001FFFFFFFFFFFFFL,
-    //        0x003FFFFFFFFFFFFFL, 0x007FFFFFFFFFFFFFL, 0x00FFFFFFFFFFFFFFL, 0x01FFFFFFFFFFFFFFL, 0x03FFFFFFFFFFFFFFL,
-    //        0x07FFFFFFFFFFFFFFL, 0x0FFFFFFFFFFFFFFFL, 0x1FFFFFFFFFFFFFFFL, 0x3FFFFFFFFFFFFFFFL, 0x7FFFFFFFFFFFFFFFL,
-    //        0xFFFFFFFFFFFFFFFFL};
-
-    private static final int BUFFER_CHUNK_SIZE = 1024;
-    private final byte[] buffer = new byte[BUFFER_CHUNK_SIZE];
-    private int putByte = 0;
-    private int getByte = 0;
-    private int getBit = 0;
-    private int availBits = 0;
-    private int totalBitsRead = 0;
+    private static final int BUFFER_CHUNK_SIZE = 4096;
 
-    private short readCRC16 = 0;
+    private final InputStream inStream; // null when reading a ByteBuffer
+    private final ByteBuffer source;
+    private final int origin;
+    private long discarded = 0; // stream bytes dropped from the front of the chunk buffer
+
+    /** The next unread bits, left aligned, the bits after cacheBits are zero. */
+    private long cache = 0;
+    private int cacheBits = 0;
 
-    private final InputStream inStream;
+    private short readCRC16 = 0;
+    private int crcPosition = 0; // source position up to which readCRC16 is computed
 
     /**
      * The constructor.
@@ -67,59 +56,111 @@ public class BitInputStream {
      */
     public BitInputStream(InputStream is) {
         this.inStream = is;
+        this.source = ByteBuffer.wrap(new byte[BUFFER_CHUNK_SIZE]).limit(0);
+        this.origin = 0;
+    }
+
+    /**
+     * The constructor.
+     * @param buffer    The buffer to read bits from, starting at its position. It is not modified.
+     */
+    public BitInputStream(ByteBuffer buffer) {
+        this.inStream = null;
+        this.source = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.origin = source.position();
+        this.crcPosition = origin;
     }
 
-    //private void resize(int newCapacity) {
-    //    if (buffer.length >= newCapacity) return;
-    //    System.out.println("RESIZE FROM " + buffer.length + " TO " + newCapacity);
-    //    byte[] newBuffer = new byte[newCapacity];
-    //    System.arraycopy(buffer, 0, newBuffer, 0, putByte);
-    //    buffer = newBuffer;
-    //    //return;
-    //}
-
-    //private void grow(int minBlurbsToAdd) {
-    //    int newCapacity = (buffer.length + minBlurbsToAdd + BUFFER_CHUNK_SIZE - 1) / BUFFER_CHUNK_SIZE;
-    //    resize(newCapacity);
-    //}
-
-    //private void ensureSize(int bitsToAdd) {
-    //    int blurbsToAdd = (bitsToAdd + 7) >> 3;
-    //    if (buffer.length < (putByte + blurbsToAdd))
-    //        grow(blurbsToAdd);
-    //}
-
-    private int readFromStream() throws IOException {
-        // first shift the unconsumed buffer data toward the front as much as possible
-        if (getByte > 0 && putByte > getByte) {
-            System.arraycopy(buffer, getByte, buffer, 0, putByte - getByte);
+    private boolean refill() throws IOException {
+        if (inStream == null) return false;
+        updateCRC();
+
+        // shift the bytes not yet folded into the CRC (at most the cached ones) to the front
+        byte[] array = source.array();
+        int keep = source.limit() - crcPosition;
+        System.arraycopy(array, crcPosition, array, 0, keep);
+        discarded += crcPosition;
+        source.position(source.position() - crcPosition).limit(keep);
+        crcPosition = 0;
+
+        int bytes = inStream.read(array, keep, array.length - keep);
+        if (bytes <= 0) return false;
+        source.limit(keep + bytes);
+        return true;
+    }
+
+    /**
+     * Tops the cache up to at least 57 bits, fewer only at the end of the input.
+     */
+    private void fill() throws IOException {
+        while (cacheBits <= 56) {
+            if (!source.hasRemaining() && !refill()) return;
+            if (cacheBits == 0 && source.remaining() >= 8) {
+                cache = source.getLong();
+                cacheBits = 64;
+                return;
+            }
+            cache |= (long) (source.get() & 0xff) << (56 - cacheBits);
+            cacheBits += 8;
         }
-        putByte -= getByte;
-        getByte = 0;
+    }
+
+    private void require(int bits) throws IOException {
+        fill();
+        if (cacheBits < bits) throw new EOFException();
+    }
 
-        // set the target for reading, taking into account blurb alignment
-        // blurb == byte, so no gyrations necessary:
-        int bytes = buffer.length - putByte;
+    private void consume(int bits) {
+        cache = bits == 64 ? 0 : cache << bits;
+        cacheBits -= bits;
+    }
 
-        // finally, read in some data
-        bytes = inStream.read(buffer, putByte, bytes);
-        if (bytes <= 0) throw new EOFException();
+    /**
+     * Source position of the first byte that still has unread bits.
+     */
+    private int consumedPosition() {
+        return source.position() - ((cacheBits + 7) >> 3);
+    }
 
-        // now we have to handle partial blurb cases:
-        // blurb == byte, so no gyrations necessary:
-        putByte += bytes;
-        availBits += bytes << 3;
-        return bytes;
+    private void updateCRC() {
+        int consumed = consumedPosition();
+        for (int i = crcPosition; i < consumed; i++) {
+            readCRC16 = CRC16.update(source.get(i), readCRC16);
+        }
+        if (consumed > crcPosition) crcPosition = consumed;
     }
 
     /**
      * Reset the bit stream.
      */
     public void reset() {
-        getByte = 0;
-        getBit = 0;
-        putByte = 0;
-        availBits = 0;
+        cache = 0;
+        cacheBits = 0;
+        if (inStream != null) {
+            discarded += source.limit();
+            source.position(0).limit(0);
+        }
+        crcPosition = source.position();
+    }
+
+    /**
+     * Byte position of the next unread bit in the source buffer.
+     * @return  The position
+     */
+    public int position() {
+        return consumedPosition();
+    }
+
+    /**
+     * Continue reading at another byte of the source buffer.
+     * @param position  The new position
+     */
+    public void seek(int position) {
+        if (inStream != null) throw new IllegalStateException("Not reading from a ByteBuffer");
+        source.position(position);
+        cache = 0;
+        cacheBits = 0;
+        crcPosition = position;
     }
 
     /**
@@ -128,6 +169,7 @@ public class BitInputStream {
      */
     public void resetReadCRC16(short seed) {
         readCRC16 = seed;
+        crcPosition = consumedPosition();
     }
 
     /**
@@ -135,6 +177,7 @@ public class BitInputStream {
      * @return  The read CRC-16 value
      */
     public short getReadCRC16() {
+        updateCRC();
         return readCRC16;
     }
 
@@ -143,7 +186,7 @@ public class BitInputStream {
      * @return  True of bit stream consumed bits is byte aligned
      */
     public boolean isConsumedByteAligned() {
-        return ((getBit & 7) == 0);
+        return ((cacheBits & 7) == 0);
     }
 
     /**
@@ -151,7 +194,8 @@ public class BitInputStream {
      * @return  The number of bits to align the byte
      */
     public int bitsLeftForByteAlignment() {
-        return 8 - (getBit & 7);
+        int partial = cacheBits & 7;
+        return partial == 0 ? 8 : partial;
     }
 
     /**
@@ -159,7 +203,7 @@ public class BitInputStream {
      * @return  The number of bytes left to read
      */
     public int getInputBytesUnconsumed() {
-        return availBits >> 3;
+        return (cacheBits >> 3) + source.remaining();
     }
 
     /**
@@ -169,9 +213,9 @@ public class BitInputStream {
      */
     public void skipBitsNoCRC(int bits) throws IOException {
         if (bits == 0) return;
-        int bitsToAlign = getBit & 7;
+        int bitsToAlign = cacheBits & 7;
         if (bitsToAlign != 0) {
-            int bitsToTake = Math.min(8 - bitsToAlign, bits);
+            int bitsToTake = Math.min(bitsToAlign, bits);
             readRawUInt(bitsToTake);
             bits -= bitsToTake;
         }
@@ -191,22 +235,7 @@ public class BitInputStream {
      * @throws IOException  Thrown if error reading input stream
      */
     public int readBit() throws IOException {
-        while (true) {
-            if (availBits > 0) {
-                int val = ((buffer[getByte] & (0x80 >> getBit)) != 0) ? 1 : 0;
-                getBit++;
-                if (getBit == BITS_PER_BLURB) {
-                    readCRC16 = CRC16.update(buffer[getByte], readCRC16);
-                    getByte++;
-                    getBit = 0;
-                }
-                availBits--;
-                totalBitsRead++;
-                return val;
-            } else {
-                readFromStream();
-            }
-        }
+        return readRawUInt(1);
     }
 
     /**
@@ -218,23 +247,7 @@ public class BitInputStream {
      * @throws IOException  Thrown if error reading input stream
      */
     public int readBitToInt(int val) throws IOException {
-        while (true) {
-            if (availBits > 0) {
-                val <<= 1;
-                val |= ((buffer[getByte] & (0x80 >> getBit)) != 0) ? 1 : 0;
-                getBit++;
-                if (getBit == BITS_PER_BLURB) {
-                    readCRC16 = CRC16.update(buffer[getByte], readCRC16);
-                    getByte++;
-                    getBit = 0;
-                }
-                availBits--;
-                totalBitsRead++;
-                return val;
-            } else {
-                readFromStream();
-            }
-        }
+        return (val << 1) | readRawUInt(1);
     }
 
     /**
@@ -247,20 +260,8 @@ public class BitInputStream {
      * @throws IOException  Thrown if error reading input stream
      */
     public int peekBitToInt(int val, int bit) throws IOException {
-        while (true) {
-            if (bit < availBits) {
-                val <<= 1;
-                if ((getBit + bit) >= BITS_PER_BLURB) {
-                    bit = (getBit + bit) % BITS_PER_BLURB;
-                    val |= ((buffer[getByte + 1] & (0x80 >> bit)) != 0) ? 1 : 0;
-                } else {
-                    val |= ((buffer[getByte] & (0x80 >> (getBit + bit))) != 0) ? 1 : 0;
-                }
-                return val;
-            } else {
-                readFromStream();
-            }
-        }
+        if (cacheBits <= bit) require(bit + 1);
+        return (val << 1) | (int) ((cache >>> (63 - bit)) & 1);
     }
 
     /**
@@ -272,76 +273,47 @@ public class BitInputStream {
      * @throws IOException  Thrown if error reading input stream
      */
     public long readBitToLong(long val) throws IOException {
-        while (true) {
-            if (availBits > 0) {
-                val <<= 1;
-                val |= ((buffer[getByte] & (0x80 >> getBit)) != 0) ? 1 : 0;
-                getBit++;
-                if (getBit == BITS_PER_BLURB) {
-                    readCRC16 = CRC16.update(buffer[getByte], readCRC16);
-                    getByte++;
-                    getBit = 0;
-                }
-                availBits--;
-                totalBitsRead++;
-                return val;
-            } else {
-                readFromStream();
-            }
-        }
+        return (val << 1) | readRawUInt(1);
     }
 
     /**
      * read bits into an unsigned integer.
-     * @param bits  The number of bits to read
+     * @param bits  The number of bits to read, at most 32
      * @return      The bits as an unsigned integer
      * @throws IOException  Thrown if error reading input stream
      */
     public int readRawUInt(int bits) throws IOException {
-        int val = 0;
-        for (int i = 0; i < bits; i++) {
-            val = readBitToInt(val);
-        }
+        if (bits == 0) return 0;
+        if (cacheBits < bits) require(bits);
+        int val = (int) (cache >>> (64 - bits));
+        consume(bits);
         return val;
     }
 
     /**
      * peek at bits into an unsigned integer without advancing the input stream.
-     * @param bits  The number of bits to read
+     * @param bits  The number of bits to read, at most 32
      * @return      The bits as an unsigned integer
      * @throws IOException  Thrown if error reading input stream
      */
     public int peekRawUInt(int bits) throws IOException {
-        int val = 0;
-        for (int i = 0; i < bits; i++) {
-            val = peekBitToInt(val, i);
-        }
-        return val;
+        if (bits == 0) return 0;
+        if (cacheBits < bits) require(bits);
+        return (int) (cache >>> (64 - bits));
     }
 
     /**
      * read bits into a signed integer.
-     * @param bits  The number of bits to read
+     * @param bits  The number of bits to read, at most 32
      * @return      The bits as a signed integer
      * @throws IOException  Thrown if error reading input stream
      */
     public int readRawInt(int bits) throws IOException {
-        if (bits == 0) { return 0; }
-        int uval = 0;
-        for (int i = 0; i < bits; i++) {
-            uval = readBitToInt(uval);
-        }
-
-        // fix the sign
-        int val;
-        int bitsToleft = 32 - bits;
-        if (bitsToleft != 0) {
-            uval <<= bitsToleft;
-            val = uval;
-            val >>= bitsToleft;
-        } else {
-            val = uval;
-        }
+        if (bits == 0) return 0;
+        if (cacheBits < bits) require(bits);
+        // the arithmetic shift fixes the sign
+        int val = (int) (cache >> (64 - bits));
+        consume(bits);
         return val;
     }
 
@@ -352,11 +324,9 @@ public class BitInputStream {
      * @throws IOException  Thrown if error reading input stream
      */
     public long readRawULong(int bits) throws IOException {
-        long val = 0;
-        for (int i = 0; i < bits; i++) {
-            val = readBitToLong(val);
-        }
-        return val;
+        if (bits <= 32) return readRawUInt(bits) & 0xffffffffL;
+        long high = readRawUInt(bits - 32) & 0xffffffffL;
+        return (high << 32) | (readRawUInt(32) & 0xffffffffL);
     }
 
     /**
@@ -382,20 +352,23 @@ public class BitInputStream {
      * @throws IOException  Thrown if error reading input stream
      */
     public void readByteBlockAlignedNoCRC(byte[] val, int nvals) throws IOException {
-        int destlength = nvals;
+        updateCRC();
+        // hand the cached bytes back, they are still in the buffer right before its position
+        source.position(source.position() - (cacheBits >> 3));
+        cache = 0;
+        cacheBits = 0;
+
+        int offset = 0;
         while (nvals > 0) {
-            int chunk = Math.min(nvals, putByte - getByte);
-            if (chunk <= 0) {
-                readFromStream();
-            } else {
-                if (val != null) System.arraycopy(buffer, getByte, val, destlength - nvals, chunk);
-                nvals -= chunk;
-                getByte += chunk;
-                //totalConsumedBits = (getByte << BITS_PER_BLURB_LOG2);
-                availBits -= (chunk << BITS_PER_BLURB_LOG2);
-                totalBitsRead += (chunk << BITS_PER_BLURB_LOG2);
-            }
+            crcPosition = source.position();
+            if (!source.hasRemaining() && !refill()) throw new EOFException();
+            int chunk = Math.min(nvals, source.remaining());
+            if (val != null) source.get(val, offset, chunk);
+            else source.position(source.position() + chunk);
+            offset += chunk;
+            nvals -= chunk;
         }
+        crcPosition = source.position();
     }
 
     /**
@@ -406,11 +379,16 @@ public class BitInputStream {
     public int readUnaryUnsigned() throws IOException {
         int val = 0;
         while (true) {
-            int bit = readBit();
-            if (bit != 0) break;
-            val++;
+            if (cacheBits == 0) require(1);
+            int zeros = Long.numberOfLeadingZeros(cache);
+            if (zeros < cacheBits) {
+                consume(zeros + 1);
+                return val + zeros;
+            }
+            val += cacheBits;
+            cache = 0;
+            cacheBits = 0;
         }
-        return val;
     }
 
     /**
@@ -422,198 +400,28 @@ public class BitInputStream {
      * @throws IOException  On read error
      */
     public void readRiceSignedBlock(int[] vals, int pos, int nvals, int parameter) throws IOException {
-        int j, valI = 0;
-        int cbits = 0, uval = 0, msbs = 0, lsbsLeft = 0;
-        byte blurb, saveBlurb;
-        int state = 0; // 0 = getting unary MSBs, 1 = getting binary LSBs
-        if (nvals == 0) return;
-        int i = getByte;
-
-        long startBits = getByte * 8L + getBit;
-
-        // We unroll the main loop to take care of partially consumed blurbs here.
-        if (getBit > 0) {
-            saveBlurb = blurb = buffer[i];
-            cbits = getBit;
-            blurb <<= cbits;
+        for (int end = pos + nvals; pos < end; pos++) {
+            // unary MSBs, almost always within the cached word
+            int msbs = 0, zeros;
             while (true) {
-                if (state == 0) {
-                    if (blurb != 0) {
-                        for (j = 0; (blurb & BLURB_TOP_BIT_ONE) == 0; j++)
-                            blurb <<= 1;
-                        msbs += j;
-
-                        // dispose of the unary end bit
-                        blurb <<= 1;
-                        j++;
-                        cbits += j;
-                        uval = 0;
-                        lsbsLeft = parameter;
-                        state++;
-                        //totalBitsRead += msbs;
-                        if (cbits == BITS_PER_BLURB) {
-                            cbits = 0;
-                            readCRC16 = CRC16.update(saveBlurb, readCRC16);
-                            break;
-                        }
-                    } else {
-                        msbs += BITS_PER_BLURB - cbits;
-                        cbits = 0;
-                        readCRC16 = CRC16.update(saveBlurb, readCRC16);
-                        //totalBitsRead += msbs;
-                        break;
-                    }
-                } else {
-                    int availableBits = BITS_PER_BLURB - cbits;
-                    if (lsbsLeft >= availableBits) {
-                        uval <<= availableBits;
-                        uval |= ((blurb & 0xff) >> cbits);
-                        cbits = 0;
-                        readCRC16 = CRC16.update(saveBlurb, readCRC16);
-                        //totalBitsRead += availableBits;
-                        if (lsbsLeft == availableBits) {
-                            // compose the value
-                            uval |= (msbs << parameter);
-                            if ((uval & 1) != 0)
-                                vals[pos + valI++] = -((int) (uval >> 1)) - 1;
-                            else
-                                vals[pos + valI++] = uval >> 1;
-                            if (valI == nvals)
-                                break;
-                            msbs = 0;
-                            state = 0;
-                        }
-                        lsbsLeft -= availableBits;
-                        break;
-                    } else {
-                        uval <<= lsbsLeft;
-                        uval |= ((blurb & 0xff) >> (BITS_PER_BLURB - lsbsLeft));
-                        blurb <<= lsbsLeft;
-                        cbits += lsbsLeft;
-                        //totalBitsRead += lsbsLeft;
-                        // compose the value
-                        uval |= (msbs << parameter);
-                        if ((uval & 1) != 0)
-                            vals[pos + valI++] = -((int) (uval >> 1)) - 1;
-                        else
-                            vals[pos + valI++] = uval >> 1;
-                        if (valI == nvals) {
-                            // back up one if we exited the for loop because we
-                            // read all nvals but the end came in the middle of
-                            // a blurb
-                            i--;
-                            break;
-                        }
-                        msbs = 0;
-                        state = 0;
-                    }
-                }
+                if (cacheBits == 0) require(1);
+                zeros = Long.numberOfLeadingZeros(cache);
+                if (zeros < cacheBits) break;
+                msbs += cacheBits;
+                cache = 0;
+                cacheBits = 0;
             }
-            i++;
-            getByte = i;
-            getBit = cbits;
-            //totalConsumedBits = (i << BITS_PER_BLURB_LOG2) | cbits;
-            //totalBitsRead += (BITS_PER_BLURB) | cbits;
-        }
-
-        // Now that we are blurb-aligned the logic is slightly simpler
-        while (valI < nvals) {
-            for (; i < putByte && valI < nvals; i++) {
-                saveBlurb = blurb = buffer[i];
-                cbits = 0;
-                while (true) {
-                    if (state == 0) {
-                        if (blurb != 0) {
-                            for (j = 0; (blurb & BLURB_TOP_BIT_ONE) == 0; j++) blurb <<= 1;
-                            msbs += j;
-                            // dispose of the unary end bit
-                            blurb <<= 1;
-                            j++;
-                            cbits += j;
-                            uval = 0;
-                            lsbsLeft = parameter;
-                            state++;
-                            //totalBitsRead += msbs;
-                            if (cbits == BITS_PER_BLURB) {
-                                cbits = 0;
-                                readCRC16 = CRC16.update(saveBlurb, readCRC16);
-                                break;
-                            }
-                        } else {
-                            msbs += BITS_PER_BLURB - cbits;
-                            cbits = 0;
-                            readCRC16 = CRC16.update(saveBlurb, readCRC16);
-                            //totalBitsRead += msbs;
-                            break;
-                        }
-                    } else {
-                        int availableBits = BITS_PER_BLURB - cbits;
-                        if (lsbsLeft >= availableBits) {
-                            uval <<= availableBits;
-                            uval |= ((blurb & 0xff) >> cbits);
-                            cbits = 0;
-                            readCRC16 = CRC16.update(saveBlurb, readCRC16);
-                            //totalBitsRead += availableBits;
-                            if (lsbsLeft == availableBits) {
-                                // compose the value
-                                uval |= (msbs << parameter);
-                                if ((uval & 1) != 0)
-                                    vals[pos + valI++] = -((int) (uval >> 1)) - 1;
-                                else
-                                    vals[pos + valI++] = uval >> 1;
-                                if (valI == nvals)
-                                    break;
-                                msbs = 0;
-                                state = 0;
-                            }
-                            lsbsLeft -= availableBits;
-                            break;
-                        } else {
-                            uval <<= lsbsLeft;
-                            uval |= ((blurb & 0xff) >> (BITS_PER_BLURB - lsbsLeft));
-                            blurb <<= lsbsLeft;
-                            cbits += lsbsLeft;
-                            //totalBitsRead += lsbsLeft;
-                            // compose the value
-                            uval |= (msbs << parameter);
-                            if ((uval & 1) != 0)
-                                vals[pos + valI++] = -((int) (uval >> 1)) - 1;
-                            else
-                                vals[pos + valI++] = uval >> 1;
-                            if (valI == nvals) {
-                                // back up one if we exited the for loop because
-                                // we read all nvals but the end came in the
-                                // middle of a blurb
-                                i--;
-                                break;
-                            }
-                            msbs = 0;
-                            state = 0;
-                        }
-                    }
-                }
-            }
-            getByte = i;
-            getBit = cbits;
-            //totalConsumedBits = (i << BITS_PER_BLURB_LOG2) | cbits;
-            //totalBitsRead += (BITS_PER_BLURB) | cbits;
-            if (valI < nvals) {
-                long endBits = getByte * 8L + getBit;
-                //System.out.println("SE0 "+startBits+" "+endBits);
-                totalBitsRead += endBits - startBits;
-                availBits -=  endBits - startBits;
-                readFromStream();
-                // these must be zero because we can only get here if we got to
-                // the end of the buffer
-                i = 0;
-                startBits = getByte * 8L + getBit;
+            consume(zeros + 1);
+
+            // binary LSBs
+            int uval = (msbs + zeros) << parameter;
+            if (parameter > 0) {
+                if (cacheBits < parameter) require(parameter);
+                uval |= (int) (cache >>> (64 - parameter));
+                consume(parameter);
             }
+            vals[pos] = (uval >>> 1) ^ -(uval & 1);
         }
-
-        long endBits = getByte * 8L + getBit;
-        //System.out.println("SE1 "+startBits+" "+endBits);
-        totalBitsRead += endBits - startBits;
-        availBits -= endBits - startBits;
     }
 
     /**
@@ -724,6 +532,7 @@ public class BitInputStream {
      * @return Returns the total blurbs read.
      */
     public int getTotalBytesRead() {
-        return ((totalBitsRead + 7) / 8);
+        long bits = (discarded + source.position() - origin) * 8 - cacheBits;
+        return (int) ((bits + 7) / 8);
     }
 }
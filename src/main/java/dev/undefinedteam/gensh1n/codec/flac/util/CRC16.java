@@ -308,7 +308,7 @@ public final class CRC16 {
      */
     public static short updateBlock(byte[] data, int len, short crc) {
         for (int i = 0; i < len; i++)
-            crc = (short) ((crc << 8) ^ CRC16_TABLE[(crc >> 8) ^ data[i]]);
+            crc = (short) ((crc << 8) ^ CRC16_TABLE[((crc >> 8) ^ data[i]) & 0xff]);
         return crc;
     }
 
@@ -324,7 +324,7 @@ public final class CRC16 {
         short crc = 0;
 
         for (int i = 0; i < len; i++)
-            crc = (short) ((crc << 8) ^ CRC16_TABLE[(crc >> 8) ^ data[i]]);
+            crc = (short) ((crc << 8) ^ CRC16_TABLE[((crc >> 8) ^ data[i]) & 0xff]);
 
         return crc;
     }
@@ -294,7 +294,7 @@ public final class CRC8 {
      * @return      The updated CRC value
      */
     public static byte update(byte data, byte crc) {
-        return CRC8_TABLE[crc ^ data];
+        return CRC8_TABLE[(crc ^ data) & 0xff];
     }
 
     /**
@@ -307,7 +307,7 @@ public final class CRC8 {
      */
     public static byte updateBlock(byte[] data, int len, byte crc) {
         for (int i = 0; i < len; i++)
-            crc = CRC8_TABLE[crc ^ data[i]];
+            crc = CRC8_TABLE[(crc ^ data[i]) & 0xff];
         return crc;
     }
 
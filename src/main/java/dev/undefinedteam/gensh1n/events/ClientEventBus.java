@@ -0,0 +1,220 @@
+package dev.undefinedteam.gensh1n.events;
+
+import dev.undefinedteam.gensh1n.events.network.PacketBus;
+import meteordevelopment.orbit.EventBus;
+import meteordevelopment.orbit.EventHandler;
+import meteordevelopment.orbit.ICancellable;
+import meteordevelopment.orbit.listeners.IListener;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Orbit bus that also (un)subscribes the {@link dev.undefinedteam.gensh1n.events.network.PacketHandler}
+ * methods of an object, so modules keep a single subscribe call.
+ * <p>
+ * It mirrors Orbit's listener table (same methods, same priority order) so that posts picked by the
+ * {@link EventProfiler} can be dispatched with every listener timed. Unsampled posts go straight to Orbit.
+ */
+public class ClientEventBus extends EventBus {
+    private static final Handler[] NONE = new Handler[0];
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class);
+
+    private final PacketBus packets;
+    private final EventProfiler profiler = EventProfiler.INSTANCE;
+
+    private final Map<Object, List<Handler>> owners = new IdentityHashMap<>();
+    private final Map<Class<?>, Handler[]> handlers = new ConcurrentHashMap<>();
+
+    public ClientEventBus(PacketBus packets) {
+        this.packets = packets;
+    }
+
+    private static final class Handler {
+        final Class<?> target;
+        final int priority;
+        final Object key;
+        final String name;
+        final MethodHandle handle;
+        final IListener listener;
+        EventProfiler.Stats stats;
+
+        Handler(Class<?> target, int priority, Object key, String name, MethodHandle handle, IListener listener) {
+            this.target = target;
+            this.priority = priority;
+            this.key = key;
+            this.name = name;
+            this.handle = handle;
+            this.listener = listener;
+        }
+
+        void call(Object event) throws Throwable {
+            if (handle != null) {
+                handle.invokeExact(event);
+            } else {
+                listener.call(event);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Object object) {
+        super.subscribe(object);
+        mirror(object, object.getClass(), object, false);
+        packets.subscribe(object);
+    }
+
+    @Override
+    public void subscribe(Class<?> klass) {
+        super.subscribe(klass);
+        mirror(klass, klass, null, true);
+    }
+
+    @Override
+    public void subscribe(IListener listener) {
+        super.subscribe(listener);
+        var handler = new Handler(listener.getTarget(), listener.getPriority(), listener,
+            listener.getClass().getSimpleName(), null, listener);
+        mirror(listener, List.of(handler));
+    }
+
+    @Override
+    public void unsubscribe(Object object) {
+        super.unsubscribe(object);
+        unmirror(object);
+        packets.unsubscribe(object);
+    }
+
+    @Override
+    public void unsubscribe(Class<?> klass) {
+        super.unsubscribe(klass);
+        unmirror(klass);
+    }
+
+    @Override
+    public void unsubscribe(IListener listener) {
+        super.unsubscribe(listener);
+        unmirror(listener);
+    }
+
+    @Override
+    public <T> T post(T event) {
+        if (!profiler.sample(event.getClass())) return super.post(event);
+
+        var list = handlers.get(event.getClass());
+        if (list != null) {
+            for (Handler handler : list) {
+                timed(handler, event);
+            }
+        }
+        return event;
+    }
+
+    @Override
+    public <T extends ICancellable> T post(T event) {
+        if (!profiler.sample(event.getClass())) return super.post(event);
+
+        var list = handlers.get(event.getClass());
+        if (list != null) {
+            event.setCancelled(false);
+            for (Handler handler : list) {
+                timed(handler, event);
+                if (event.isCancelled()) break;
+            }
+        }
+        return event;
+    }
+
+    private void timed(Handler handler, Object event) {
+        var stats = handler.stats;
+        if (stats == null) {
+            stats = handler.stats = profiler.stats(handler.key, handler.name, handler.target);
+        }
+
+        long allocated = profiler.allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            handler.call(event);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            stats.record(nanos, profiler.allocatedBytes() - allocated);
+        }
+    }
+
+    private void mirror(Object owner, Class<?> klass, Object instance, boolean onlyStatic) {
+        var list = new ArrayList<Handler>();
+        for (Class<?> c = klass; c != null; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (!isHandler(method)) continue;
+                boolean isStatic = Modifier.isStatic(method.getModifiers());
+                if (onlyStatic && !isStatic) continue;
+                list.add(handler(klass, isStatic ? null : instance, method));
+            }
+        }
+        if (!list.isEmpty()) mirror(owner, list);
+    }
+
+    private synchronized void mirror(Object owner, List<Handler> list) {
+        if (owners.containsKey(owner)) return;
+        owners.put(owner, list);
+        for (Handler handler : list) {
+            var current = handlers.getOrDefault(handler.target, NONE);
+            // same insertion rule as Orbit: before the first listener with a lower priority
+            int index = 0;
+            while (index < current.length && handler.priority <= current[index].priority) index++;
+
+            var next = new Handler[current.length + 1];
+            System.arraycopy(current, 0, next, 0, index);
+            next[index] = handler;
+            System.arraycopy(current, index, next, index + 1, current.length - index);
+            handlers.put(handler.target, next);
+        }
+    }
+
+    private synchronized void unmirror(Object owner) {
+        var list = owners.remove(owner);
+        if (list == null) return;
+        for (Handler handler : list) {
+            var current = handlers.get(handler.target);
+            if (current == null) continue;
+            var next = Arrays.stream(current).filter(h -> h != handler).toArray(Handler[]::new);
+            if (next.length == 0) {
+                handlers.remove(handler.target);
+            } else {
+                handlers.put(handler.target, next);
+            }
+        }
+    }
+
+    private static boolean isHandler(Method method) {
+        return method.isAnnotationPresent(EventHandler.class)
+            && method.getReturnType() == void.class
+            && method.getParameterCount() == 1
+            && !method.getParameterTypes()[0].isPrimitive();
+    }
+
+    private static Handler handler(Class<?> owner, Object instance, Method method) {
+        try {
+            method.setAccessible(true);
+            var handle = MethodHandles.lookup().unreflect(method);
+            if (instance != null) handle = handle.bindTo(instance);
+            return new Handler(method.getParameterTypes()[0], method.getAnnotation(EventHandler.class).priority(),
+                method, owner.getSimpleName() + "." + method.getName(), handle.asType(HANDLER_TYPE), null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access event handler " + method, e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dev.undefinedteam.gensh1n.events;
+
+import dev.undefinedteam.gensh1n.Client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per listener cost of event dispatch, fed by {@link ClientEventBus} and the packet bus. While disabled the
+ * buses only pay a volatile read per post. Times are inclusive, a handler that posts another event also
+ * carries the nested listeners.
+ */
+public class EventProfiler {
+    public static final EventProfiler INSTANCE = new EventProfiler();
+    public static final File FOLDER = new File(Client.FOLDER, "profiler");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final boolean allocation;
+
+    private final ConcurrentHashMap<Key, Stats> stats = new ConcurrentHashMap<>();
+    private final ClassValue<AtomicLong> posts = new ClassValue<>() {
+        @Override
+        protected AtomicLong computeValue(Class<?> type) {
+            return new AtomicLong();
+        }
+    };
+
+    private volatile boolean enabled;
+    private volatile int sampleEvery = 1;
+    private volatile long started = System.nanoTime();
+    private long profiledNanos;
+
+    private record Key(Object listener, Class<?> event) {
+    }
+
+    private EventProfiler() {
+        var bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()) {
+            sun.setThreadAllocatedMemoryEnabled(true);
+            this.threads = sun;
+            this.allocation = true;
+        } else {
+            this.threads = null;
+            this.allocation = false;
+        }
+    }
+
+    /**
+     * @param sampleEvery profile one post in this many per event type, 1 profiles every post
+     */
+    public synchronized void start(int sampleEvery) {
+        sampleEvery = Math.max(1, sampleEvery);
+        if (sampleEvery != this.sampleEvery) {
+            // totals are scaled by the rate, so mixed rates would not add up
+            reset();
+            this.sampleEvery = sampleEvery;
+        }
+        if (!enabled) {
+            started = System.nanoTime();
+            enabled = true;
+        }
+    }
+
+    public synchronized void stop() {
+        if (!enabled) return;
+        enabled = false;
+        profiledNanos += System.nanoTime() - started;
+    }
+
+    public synchronized void reset() {
+        stats.values().forEach(Stats::reset);
+        profiledNanos = 0;
+        started = System.nanoTime();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int sampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * @return whether this post of the event type should go through the timed path
+     */
+    public boolean sample(Class<?> event) {
+        if (!enabled) return false;
+        int every = sampleEvery;
+        return every == 1 || posts.get(event).getAndIncrement() % every == 0;
+    }
+
+    /**
+     * @param listener identity of the listener, the handler method for annotated ones
+     */
+    public Stats stats(Object listener, String name, Class<?> event) {
+        return stats.computeIfAbsent(new Key(listener, event), k -> new Stats(name, event.getSimpleName()));
+    }
+
+    public long allocatedBytes() {
+        return allocation ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public synchronized long profiledNanos() {
+        return profiledNanos + (enabled ? System.nanoTime() - started : 0);
+    }
+
+    /**
+     * Sorted by total time, counts and totals are scaled up by the sampling rate.
+     */
+    public List<Snapshot> snapshot() {
+        int every = sampleEvery;
+        var list = new ArrayList<Snapshot>(stats.size());
+        for (Stats s : stats.values()) {
+            long count = s.count.sum();
+            if (count == 0) continue;
+            long nanos = s.nanos.sum();
+            list.add(new Snapshot(s.listener, s.event, count * every, nanos * every,
+                nanos / count, s.max.get(), s.allocated.sum() / count));
+        }
+        list.sort(Comparator.comparingLong(Snapshot::totalNanos).reversed());
+        return list;
+    }
+
+    /**
+     * Writes the current snapshot as CSV to {@link #FOLDER}.
+     */
+    public File dump() throws IOException {
+        if (!FOLDER.exists() && !FOLDER.mkdirs()) {
+            throw new IOException("Cannot create " + FOLDER);
+        }
+
+        var file = new File(FOLDER, "events-" + LocalDateTime.now().format(FILE_TIME) + ".csv");
+        long window = profiledNanos();
+        try (var out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            out.printf("# window %.3fs, sampling 1/%d, allocation %s%n", window / 1e9, sampleEvery, allocation ? "on" : "unsupported");
+            out.println("listener,event,calls,total_ns,avg_ns,max_ns,alloc_bytes_per_call,share_of_window");
+            for (Snapshot s : snapshot()) {
+                out.printf("%s,%s,%d,%d,%d,%d,%d,%.6f%n", s.listener, s.event, s.calls, s.totalNanos,
+                    s.avgNanos, s.maxNanos, s.allocatedPerCall, window == 0 ? 0 : (double) s.totalNanos / window);
+            }
+        }
+        return file;
+    }
+
+    public static class Stats {
+        final String listener;
+        final String event;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Stats(String listener, String event) {
+            this.listener = listener;
+            this.event = event;
+        }
+
+        public void record(long nanos, long allocated) {
+            this.count.increment();
+            this.nanos.add(nanos);
+            if (allocated > 0) this.allocated.add(allocated);
+            if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+        }
+
+        void reset() {
+            count.reset();
+            nanos.reset();
+            allocated.reset();
+            max.set(0);
+        }
+    }
+
+    public record Snapshot(String listener, String event, long calls, long totalNanos, long avgNanos, long maxNanos,
+                           long allocatedPerCall) {
+        @Override
+        public String toString() {
+            return String.format("%s (%s) calls=%d total=%.2fms avg=%.1fus max=%.1fus alloc=%dB/call",
+                listener, event, calls, totalNanos / 1e6, avgNanos / 1000.0, maxNanos / 1000.0, allocatedPerCall);
+        }
+    }
+}
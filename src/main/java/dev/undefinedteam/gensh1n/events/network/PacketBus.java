@@ -0,0 +1,224 @@
+package dev.undefinedteam.gensh1n.events.network;
+
+import dev.undefinedteam.gensh1n.events.EventProfiler;
+import net.minecraft.network.packet.Packet;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packet event channel keyed by packet class. Listeners are {@link PacketHandler} methods, the set reaching a
+ * packet class is resolved once through a {@link ClassValue} and only re-resolved after (un)subscribing,
+ * so packets nobody listens to cost a table lookup.
+ * <p>
+ * Posting is thread-confined: every thread dispatches its own {@link PacketEvent}, and nested posts
+ * (a handler sending a packet) get a fresh one instead of clobbering the outer event.
+ */
+public class PacketBus {
+    private static final Listener[] NONE = new Listener[0];
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, PacketEvent.class);
+    private static final int ORIGINS = PacketEvent.TransferOrigin.values().length;
+
+    private static final ClassValue<List<Method>> HANDLER_METHODS = new ClassValue<>() {
+        @Override
+        protected List<Method> computeValue(Class<?> type) {
+            var methods = new ArrayList<Method>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Method method : c.getDeclaredMethods()) {
+                    if (!method.isAnnotationPresent(PacketHandler.class) || Modifier.isStatic(method.getModifiers())) continue;
+                    if (method.getParameterCount() != 1 || method.getParameterTypes()[0] != PacketEvent.class) {
+                        throw new IllegalArgumentException("@PacketHandler method must take a single PacketEvent: " + method);
+                    }
+                    method.setAccessible(true);
+                    methods.add(method);
+                }
+            }
+            return List.copyOf(methods);
+        }
+    };
+
+    private static final ThreadLocal<Dispatch> DISPATCH = ThreadLocal.withInitial(Dispatch::new);
+
+    private final Map<Object, List<Listener>> owners = new IdentityHashMap<>();
+    private final List<Listener> all = new ArrayList<>();
+    private volatile int version;
+
+    private final ClassValue<Route> routes = new ClassValue<>() {
+        @Override
+        protected Route computeValue(Class<?> type) {
+            return new Route(type);
+        }
+    };
+
+    private record Listener(Object owner, Method method, Class<?>[] types, boolean[] origins, int priority, MethodHandle handle) {
+        boolean accepts(Class<?> packet, int origin) {
+            if (!origins[origin]) return false;
+            for (Class<?> type : types) {
+                if (type.isAssignableFrom(packet)) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Listeners per origin for one packet class, stamped with the bus version they were resolved at.
+     */
+    private record Resolved(int version, Listener[][] byOrigin) {
+    }
+
+    private final class Route {
+        private final Class<?> type;
+        private volatile Resolved resolved;
+
+        Route(Class<?> type) {
+            this.type = type;
+        }
+
+        Listener[] listeners(int origin) {
+            var r = resolved;
+            if (r == null || r.version != version) {
+                r = resolve();
+                resolved = r;
+            }
+            return r.byOrigin[origin];
+        }
+
+        private Resolved resolve() {
+            synchronized (PacketBus.this) {
+                var byOrigin = new Listener[ORIGINS][];
+                for (int origin = 0; origin < ORIGINS; origin++) {
+                    var matched = new ArrayList<Listener>();
+                    for (Listener listener : all) {
+                        if (listener.accepts(type, origin)) matched.add(listener);
+                    }
+                    byOrigin[origin] = matched.isEmpty() ? NONE : matched.toArray(NONE);
+                }
+                return new Resolved(version, byOrigin);
+            }
+        }
+    }
+
+    private static final class Dispatch {
+        private PacketEvent[] events = new PacketEvent[2];
+        private int depth;
+
+        PacketEvent acquire() {
+            if (depth == events.length) events = Arrays.copyOf(events, depth * 2);
+            var event = events[depth];
+            if (event == null) event = events[depth] = new PacketEvent();
+            depth++;
+            return event;
+        }
+
+        void release(PacketEvent event) {
+            event.packet = null;
+            depth--;
+        }
+    }
+
+    /**
+     * Registers every {@link PacketHandler} method of the object, no-op if it has none or is already subscribed.
+     */
+    public void subscribe(Object owner) {
+        var methods = HANDLER_METHODS.get(owner.getClass());
+        if (methods.isEmpty()) return;
+
+        synchronized (this) {
+            if (owners.containsKey(owner)) return;
+
+            var listeners = new ArrayList<Listener>(methods.size());
+            for (Method method : methods) {
+                listeners.add(listener(owner, method));
+            }
+            owners.put(owner, listeners);
+            all.addAll(listeners);
+            // stable, so equal priorities keep subscription order like Orbit
+            all.sort(Comparator.comparingInt(Listener::priority).reversed());
+            version++;
+        }
+    }
+
+    public void unsubscribe(Object owner) {
+        if (HANDLER_METHODS.get(owner.getClass()).isEmpty()) return;
+
+        synchronized (this) {
+            var listeners = owners.remove(owner);
+            if (listeners == null) return;
+            all.removeAll(listeners);
+            version++;
+        }
+    }
+
+    /**
+     * @return true if the packet should be dropped
+     */
+    public boolean post(PacketEvent.TransferOrigin origin, Packet<?> packet) {
+        var listeners = routes.get(packet.getClass()).listeners(origin.ordinal());
+        if (listeners.length == 0) return false;
+
+        var dispatch = DISPATCH.get();
+        var event = dispatch.acquire().set(origin, packet);
+        var profiler = EventProfiler.INSTANCE;
+        try {
+            if (profiler.sample(PacketEvent.class)) return postTimed(profiler, listeners, event);
+
+            for (Listener listener : listeners) {
+                listener.handle.invokeExact(event);
+                if (event.isCancelled()) return true;
+            }
+            return false;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        } finally {
+            dispatch.release(event);
+        }
+    }
+
+    private static boolean postTimed(EventProfiler profiler, Listener[] listeners, PacketEvent event) throws Throwable {
+        for (Listener listener : listeners) {
+            var stats = profiler.stats(listener.method, listener.owner.getClass().getSimpleName() + "." + listener.method.getName(), PacketEvent.class);
+            long allocated = profiler.allocatedBytes();
+            long start = System.nanoTime();
+            try {
+                listener.handle.invokeExact(event);
+            } finally {
+                stats.record(System.nanoTime() - start, profiler.allocatedBytes() - allocated);
+            }
+            if (event.isCancelled()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Number of listeners a packet class reaches, for diagnostics.
+     */
+    public int listeners(Class<?> packet, PacketEvent.TransferOrigin origin) {
+        return routes.get(packet).listeners(origin.ordinal()).length;
+    }
+
+    private static Listener listener(Object owner, Method method) {
+        var annotation = method.getAnnotation(PacketHandler.class);
+        var origins = new boolean[ORIGINS];
+        for (PacketEvent.TransferOrigin origin : annotation.origin()) {
+            origins[origin.ordinal()] = true;
+        }
+
+        try {
+            var handle = MethodHandles.lookup().unreflect(method).bindTo(owner).asType(HANDLER_TYPE);
+            return new Listener(owner, method, annotation.value(), origins, annotation.priority(), handle);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access packet handler " + method, e);
+        }
+    }
+}
@@ -3,17 +3,22 @@ package dev.undefinedteam.gensh1n.events.network;
 import dev.undefinedteam.gensh1n.events.Cancellable;
 import net.minecraft.network.packet.Packet;
 
+/**
+ * Posted through {@link PacketBus}, never through the Orbit bus. Instances are owned by the posting thread
+ * and only valid for the duration of the handler call.
+ */
 public class PacketEvent extends Cancellable {
-    private static final PacketEvent INSTANCE = new PacketEvent();
-
     public TransferOrigin origin;
     public Packet<?> packet;
 
-    public static PacketEvent get(TransferOrigin origin, Packet<?> packet) {
-        INSTANCE.setCancelled(false);
-        INSTANCE.origin = origin;
-        INSTANCE.packet = packet;
-        return INSTANCE;
+    PacketEvent() {
+    }
+
+    PacketEvent set(TransferOrigin origin, Packet<?> packet) {
+        setCancelled(false);
+        this.origin = origin;
+        this.packet = packet;
+        return this;
     }
 
     public enum TransferOrigin {
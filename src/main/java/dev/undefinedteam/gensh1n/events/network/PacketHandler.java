@@ -0,0 +1,24 @@
+package dev.undefinedteam.gensh1n.events.network;
+
+import meteordevelopment.orbit.EventPriority;
+import net.minecraft.network.packet.Packet;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code void (PacketEvent)} method as a packet listener. Only packets assignable to one of
+ * {@link #value()} and travelling in one of {@link #origin()} reach it, see {@link PacketBus}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface PacketHandler {
+    @SuppressWarnings("rawtypes")
+    Class<? extends Packet>[] value() default Packet.class;
+
+    PacketEvent.TransferOrigin[] origin() default {PacketEvent.TransferOrigin.SEND, PacketEvent.TransferOrigin.RECEIVE};
+
+    int priority() default EventPriority.MEDIUM;
+}
@@ -48,7 +48,6 @@ import tech.skidonion.obfuscator.annotations.StringEncryption;
 
 import java.awt.Color;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -743,10 +742,13 @@ public class MusicFragment extends Fragment {
 
                         @Override
                         public void onStopTrackingTouch(SeekBar seekBar) {
-                            mPlayer.seek(seekBar.getProgress() / 10000.0f);
-                            if (mPlaying) {
-                                mPlayer.play();
-                            }
+                            // may wait for a download, resumes once the seek is done
+                            boolean resume = mPlaying;
+                            mPlayer.seekAsync(seekBar.getProgress() / 10000.0f).whenCompleteAsync((done, ex) -> {
+                                if (resume) {
+                                    mPlayer.play();
+                                }
+                            }, Core.getUiThreadExecutor());
                         }
                     });
                     seek.params().width(base.dp(320)).v_wrap_content();
@@ -1639,8 +1641,12 @@ public class MusicFragment extends Fragment {
                                             var target = new PlayList.Data(String.valueOf(song.id), song.name, song.author(), song.duration, null, null);
                                             var url = handler.api.songUrl(target.id);
                                             if (url != null && url.code == 200 && url.data != null && url.first() != null && url.first().url != null) {
-                                                var t = target.data != null ? target.data : (target.data = ByteBuffer.wrap(Http.get(url.first().url).sendBytes(1048576)));
-                                                mPlayer.replaceTrackMp3(song.name + " - " + song.author(), t);
+                                                target.url = url.first();
+                                                try {
+                                                    handler.play(song.name + " - " + song.author(), target);
+                                                } catch (IOException e) {
+                                                    throw new RuntimeException(e);
+                                                }
                                                 if (handler.addList(target)) {
                                                     handler.playList.cur = handler.playList.songs.size() - 1;
                                                 }
@@ -1807,7 +1813,7 @@ public class MusicFragment extends Fragment {
         image.view().setImage(list.image != null ? list.image : null);
         image.params().width(base.dp(75)).height(base.dp(75));
         if (list.image == null) {
-            CompletableFuture.supplyAsync(() -> Http.get(list.coverImgUrl).sendBytes(), handler.getExecutor())
+            handler.prefetch(() -> Http.get(list.coverImgUrl).sendBytes())
                 .whenCompleteAsync((bytes, ex) -> {
                     if (!catchException(ex) && bytes != null) {
                         try {
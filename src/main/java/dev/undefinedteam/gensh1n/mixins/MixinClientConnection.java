@@ -23,7 +23,7 @@ import java.util.Iterator;
 public abstract class MixinClientConnection {
     @Inject(at = @At("HEAD"), method = "send(Lnet/minecraft/network/packet/Packet;Lnet/minecraft/network/PacketCallbacks;)V", cancellable = true)
     private void onSendPacketHead(Packet<?> packet, PacketCallbacks callbacks, CallbackInfo ci) {
-        if (Client.EVENT_BUS.post(PacketEvent.get(PacketEvent.TransferOrigin.SEND, packet)).isCancelled())
+        if (Client.PACKET_BUS.post(PacketEvent.TransferOrigin.SEND, packet))
             ci.cancel();
     }
 
@@ -32,10 +32,10 @@ public abstract class MixinClientConnection {
     private void onHandlePacket(ChannelHandlerContext channelHandlerContext, Packet<?> packet, CallbackInfo ci) {
         if (packet instanceof BundleS2CPacket bundle) {
             for (var it = bundle.getPackets().iterator(); it.hasNext(); ) {
-                if (Client.EVENT_BUS.post(PacketEvent.get(PacketEvent.TransferOrigin.RECEIVE, it.next())).isCancelled())
+                if (Client.PACKET_BUS.post(PacketEvent.TransferOrigin.RECEIVE, it.next()))
                     it.remove();
             }
-        } else if (Client.EVENT_BUS.post(PacketEvent.get(PacketEvent.TransferOrigin.RECEIVE, packet)).isCancelled())
+        } else if (Client.PACKET_BUS.post(PacketEvent.TransferOrigin.RECEIVE, packet))
             ci.cancel();
     }
 
@@ -1,8 +1,8 @@
 package dev.undefinedteam.gensh1n.music;
 
 import com.google.gson.JsonParser;
-import dev.undefinedteam.gensh1n.AsyncWorkerThread;
 import dev.undefinedteam.gensh1n.Client;
+import dev.undefinedteam.gensh1n.codec.TrackSource;
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.gui.frags.MainGuiFragment;
 import dev.undefinedteam.gensh1n.gui.frags.music.MusicFragment;
@@ -20,6 +20,7 @@ import dev.undefinedteam.gensh1n.system.SettingAdapter;
 import dev.undefinedteam.gensh1n.utils.RandomUtils;
 import dev.undefinedteam.gensh1n.utils.network.Http;
 import dev.undefinedteam.gensh1n.utils.render.ImageUtils;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
 import dev.undefinedteam.modernui.mc.MuiScreen;
 import dev.undefinedteam.modernui.mc.MusicPlayer;
 import icyllis.modernui.ModernUI;
@@ -35,12 +36,13 @@ import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
 import java.io.*;
-import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static dev.undefinedteam.gensh1n.Client.mc;
 import static dev.undefinedteam.gensh1n.gui.frags.music.MusicFragment.formatTime;
@@ -78,16 +80,59 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
     private final Setting<String> playlist = text(sgClient, "play-list", """
         {"cur":0,"list":[]}""");
     public final Setting<Boolean> playlistExpand = bool(sgClient, "playlist-expand", true);
+    public final Setting<Integer> preroll = intN(sgClient, "preroll-kb", 256, 32, 4096);
+    public final Setting<Integer> cacheSize = intN(sgClient, "cache-mb", 1024, 0, 65536);
+
+    public final TrackCache cache = new TrackCache(new File(FOLDER, "tracks"), () -> cacheSize.get() * 1024L * 1024L);
 
     public PlayList playList = new PlayList();
 
-    private final AsyncWorkerThread worker = new AsyncWorkerThread();
-    private final Executor executor = worker::submit;
+    private final Executor executor = PriorityExecutor.SHARED.executor(PriorityExecutor.Priority.UI);
+    private final Executor prefetchExecutor = PriorityExecutor.SHARED.executor(PriorityExecutor.Priority.PREFETCH);
 
     public Executor getExecutor() {
         return this.executor;
     }
 
+    public Executor getPrefetchExecutor() {
+        return this.prefetchExecutor;
+    }
+
+    /**
+     * Runs a prefetch on the prefetch priority. A full or shut down pool drops it, the future then completes with
+     * null instead of throwing on the calling thread.
+     */
+    public <T> CompletableFuture<T> prefetch(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, this.prefetchExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Plays the song from the track cache, or streams it and caches it once all of its bytes arrived.
+     */
+    public void play(PlayList.Data target) throws IOException {
+        play(target.name, target);
+    }
+
+    public void play(String name, PlayList.Data target) throws IOException {
+        var player = MusicPlayer.getInstance();
+        var url = target.url;
+        if (target.cache == null) target.cache = cache.find(url.id, url.br);
+        var cached = target.cache != null ? target.cache.map() : null;
+        if (cached != null) {
+            player.replaceTrackMp3(name, TrackSource.of(cached));
+            return;
+        }
+
+        target.cache = null;
+        var stream = TrackStream.open(url.url, preroll.get() * 1024);
+        stream.onComplete(buffer -> target.cache = cache.put(url.id, url.br, buffer));
+        player.replaceTrackMp3(name, stream);
+    }
+
     public boolean addList(PlayList.Data data_) {
         if (!this.playList.songs.contains(data_)) {
             this.playList.songs.add(data_);
@@ -117,11 +162,19 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
         if (!FOLDER.exists()) {
             FOLDER.mkdirs();
         }
-
-        worker.start();
     }
 
     public GMusic init() {
+        load();
+        start();
+        refreshAll();
+        return this;
+    }
+
+    /**
+     * Reads cookies, device data and the music config, only touches disk so it can run off thread.
+     */
+    public GMusic load() {
         api = new RequestApi(FOLDER);
         api.load();
         if (CFG.exists()) {
@@ -134,10 +187,11 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
         } else shutdown();
 
         this.playList = api.GSON.fromJson(this.playlist.get(), PlayList.class);
+        return this;
+    }
 
+    public GMusic start() {
         Client.EVENT_BUS.subscribe(this);
-
-        refreshAll();
         return this;
     }
 
@@ -174,6 +228,7 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
 
     public void shutdown() {
         api.save();
+        cache.flush();
 
         try {
             var tag = settings.toTag();
@@ -325,7 +380,6 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
             return;
         }
 
-        var player = MusicPlayer.getInstance();
         var limit = songs.size() - 1;
         if (playList.cur - 1 < 0) {
             playList.cur = limit;
@@ -344,8 +398,7 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
             }
 
             try {
-                var data = target.data != null ? target.data : (target.data = ByteBuffer.wrap(Http.get(target.url.url).sendBytes(1048576)));
-                player.replaceTrackMp3(target.name, data);
+                play(target);
                 setCurrentUrl(target.url);
                 setCurrent(String.valueOf(target.url.id));
             } catch (Exception e) {
@@ -364,7 +417,6 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
             return;
         }
 
-        var player = MusicPlayer.getInstance();
         var limit = songs.size() - 1;
         if (playList.cur + 1 > limit) {
             playList.cur = 0;
@@ -383,8 +435,7 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
             }
 
             try {
-                var data = target.data != null ? target.data : (target.data = ByteBuffer.wrap(Http.get(target.url.url).sendBytes(1048576)));
-                player.replaceTrackMp3(target.name, data);
+                play(target);
                 setCurrentUrl(target.url);
                 setCurrent(String.valueOf(target.url.id));
             } catch (Exception e) {
@@ -394,7 +445,6 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
     }
 
     public void loop(Consumer<Throwable> ex) {
-        var player = MusicPlayer.getInstance();
         var songs = this.playList.songs;
         CompletableFuture.runAsync(() -> {
             switch (loopType.get()) {
@@ -416,8 +466,7 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
                     }
 
                     try {
-                        var data = target.data != null ? target.data : (target.data = ByteBuffer.wrap(Http.get(target.url.url).sendBytes(1048576)));
-                        player.replaceTrackMp3(target.name, data);
+                        play(target);
                         setCurrentUrl(target.url);
                         setCurrent(String.valueOf(target.url.id));
                     } catch (Exception e) {
@@ -440,8 +489,7 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
                         }
 
                         try {
-                            var data = target.data != null ? target.data : (target.data = ByteBuffer.wrap(Http.get(target.url.url).sendBytes(1048576)));
-                            player.replaceTrackMp3(target.name, data);
+                            play(target);
                             setCurrentUrl(target.url);
                             setCurrent(String.valueOf(target.url.id));
                         } catch (Exception e) {
@@ -462,8 +510,7 @@ public class GMusic extends ChatAdapter implements SettingAdapter {
                     }
 
                     try {
-                        var data = target.data != null ? target.data : (target.data = ByteBuffer.wrap(Http.get(target.url.url).sendBytes(1048576)));
-                        player.replaceTrackMp3(target.name, data);
+                        play(target);
                     } catch (Exception e) {
                         ex.accept(e);
                     }
@@ -8,7 +8,6 @@ import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
 import tech.skidonion.obfuscator.annotations.NativeObfuscation;
 import tech.skidonion.obfuscator.annotations.StringEncryption;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -33,7 +32,7 @@ public class PlayList {
         public long duration;
 
         @GsonIgnore
-        public ByteBuffer data;
+        public TrackCache.Handle cache;
         @GsonIgnore
         public SongUrlData.SongInfo url;
 
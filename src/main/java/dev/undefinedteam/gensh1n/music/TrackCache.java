@@ -0,0 +1,257 @@
+package dev.undefinedteam.gensh1n.music;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Downloaded tracks on disk, one file per song id and bitrate, read back through memory mapping so played songs
+ * cost no heap. The total size is capped, least recently played tracks are evicted first. The index only keeps the
+ * play order and sizes and is replaced atomically. Files a readable index does not list are removed on load, without
+ * one they are adopted.
+ */
+@Log4j2
+public class TrackCache {
+    private static final int MAGIC = 0x474D5443, VERSION = 1;
+    private static final String SUFFIX = ".track", TEMP = ".tmp";
+
+    private final File folder;
+    private final File indexFile;
+    private final LongSupplier capacity;
+    /**
+     * Track sizes by key, least recently played first
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private boolean loaded, dirty;
+
+    public TrackCache(File folder, LongSupplier capacity) {
+        this.folder = folder;
+        this.indexFile = new File(folder, "index.bin");
+        this.capacity = capacity;
+    }
+
+    public final class Handle {
+        private final String key;
+
+        private Handle(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return the track mapped read-only, null if it was evicted
+         */
+        public ByteBuffer map() {
+            return TrackCache.this.map(key);
+        }
+    }
+
+    public static String key(long id, int bitrate) {
+        return id + "-" + bitrate;
+    }
+
+    /**
+     * @return a handle to the cached track, null if it is not cached
+     */
+    public synchronized Handle find(long id, int bitrate) {
+        load();
+        var key = key(id, bitrate);
+        return entries.containsKey(key) ? new Handle(key) : null;
+    }
+
+    /**
+     * Writes the track to disk, evicting older ones past the capacity.
+     *
+     * @return a handle to it, null if it does not fit or could not be written
+     */
+    public Handle put(long id, int bitrate, ByteBuffer data) {
+        var key = key(id, bitrate);
+        long length = data.limit();
+        if (length <= 0 || length > capacity.getAsLong()) return null;
+
+        synchronized (this) {
+            load();
+            if (entries.containsKey(key)) return new Handle(key);
+        }
+
+        // written outside the lock, the file only appears under its name once complete
+        Path temp = null;
+        try {
+            Files.createDirectories(folder.toPath());
+            temp = Files.createTempFile(folder.toPath(), key, TEMP);
+            try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                var source = data.duplicate();
+                source.position(0);
+                while (source.hasRemaining()) channel.write(source);
+                channel.force(false);
+            }
+            move(temp, file(key).toPath());
+        } catch (IOException e) {
+            log.warn("Failed to cache track {}", key, e);
+            return null;
+        } finally {
+            if (temp != null) delete(temp);
+        }
+
+        synchronized (this) {
+            // another put of the same track may have finished meanwhile, its file was just replaced by ours
+            Long previous = entries.put(key, length);
+            size += length - (previous == null ? 0 : previous);
+            evict(key);
+            save();
+        }
+        return new Handle(key);
+    }
+
+    /**
+     * Writes the play order if it changed since the last save.
+     */
+    public synchronized void flush() {
+        if (loaded && dirty) save();
+    }
+
+    private ByteBuffer map(String key) {
+        Long length;
+        synchronized (this) {
+            load();
+            // marks the track most recently played
+            length = entries.get(key);
+            if (length == null) return null;
+            dirty = true;
+        }
+
+        try (var channel = FileChannel.open(file(key).toPath(), StandardOpenOption.READ)) {
+            if (channel.size() == length) return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } catch (IOException ignored) {
+        }
+
+        // removed or changed behind our back
+        synchronized (this) {
+            if (entries.remove(key) != null) {
+                size -= length;
+                save();
+            }
+        }
+        return null;
+    }
+
+    private void evict(String keep) {
+        long cap = capacity.getAsLong();
+        var iterator = entries.entrySet().iterator();
+        while (size > cap && iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entry.getKey().equals(keep)) continue;
+            iterator.remove();
+            size -= entry.getValue();
+            // a mapped file cannot be deleted on some systems, the next load removes it
+            delete(file(entry.getKey()).toPath());
+        }
+    }
+
+    private File file(String key) {
+        return new File(folder, key + SUFFIX);
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+
+        var indexed = new LinkedHashMap<String, Long>();
+        boolean rebuild = true;
+        if (indexFile.exists()) {
+            try (var in = new CheckedInputStream(new BufferedInputStream(new FileInputStream(indexFile)), new CRC32());
+                 var data = new DataInputStream(in)) {
+                if (data.readInt() != MAGIC || data.readInt() != VERSION) throw new IOException("Unknown index format");
+                int count = data.readInt();
+                for (int i = 0; i < count; i++) indexed.put(data.readUTF(), data.readLong());
+                long crc = in.getChecksum().getValue();
+                if (data.readLong() != crc) throw new IOException("Index checksum mismatch");
+                rebuild = false;
+            } catch (IOException e) {
+                log.warn("Rebuilding track cache index", e);
+                indexed.clear();
+            }
+        }
+
+        var files = folder.listFiles();
+        var present = new HashMap<String, File>();
+        if (files != null) {
+            for (var file : files) {
+                var name = file.getName();
+                if (name.endsWith(SUFFIX)) present.put(name.substring(0, name.length() - SUFFIX.length()), file);
+                else if (name.endsWith(TEMP)) delete(file.toPath());
+            }
+        }
+
+        if (rebuild) {
+            // without an index every file counts, the oldest as played least recently
+            present.values().stream()
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .forEach(file -> indexed.put(file.getName().substring(0, file.getName().length() - SUFFIX.length()), file.length()));
+        } else {
+            // evicted while still mapped, or written right before a crash
+            present.forEach((key, file) -> {
+                if (!indexed.containsKey(key)) delete(file.toPath());
+            });
+        }
+        indexed.forEach((key, length) -> {
+            var file = present.get(key);
+            if (file == null) return;
+            if (file.length() == length) entries.put(key, length);
+            else delete(file.toPath());
+        });
+
+        size = entries.values().stream().mapToLong(Long::longValue).sum();
+        evict(null);
+        if (rebuild || !entries.keySet().equals(indexed.keySet())) save();
+    }
+
+    private void save() {
+        try {
+            Files.createDirectories(folder.toPath());
+            Path temp = Files.createTempFile(folder.toPath(), indexFile.getName(), TEMP);
+            try {
+                try (var out = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), new CRC32());
+                     var data = new DataOutputStream(out)) {
+                    data.writeInt(MAGIC);
+                    data.writeInt(VERSION);
+                    data.writeInt(entries.size());
+                    for (var entry : entries.entrySet()) {
+                        data.writeUTF(entry.getKey());
+                        data.writeLong(entry.getValue());
+                    }
+                    data.writeLong(out.getChecksum().getValue());
+                }
+                move(temp, indexFile.toPath());
+            } finally {
+                delete(temp);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            log.warn("Failed to save track cache index", e);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package dev.undefinedteam.gensh1n.music;
+
+import dev.undefinedteam.gensh1n.codec.TrackSource;
+import dev.undefinedteam.gensh1n.utils.network.Http;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import lombok.extern.log4j.Log4j2;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * A track played while it downloads. HTTP range requests fill a buffer the size of the whole track, one download
+ * at a time that moves on to the next gap when it runs into bytes already there. A read far from where the
+ * download is restarts it at the read. Servers that send no length are read whole into a growing buffer instead.
+ */
+@Log4j2
+public class TrackStream implements TrackSource {
+    private static final Executor DOWNLOADS = Executors.newCachedThreadPool(r -> {
+        var thread = new Thread(r, "TrackStream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final int READ_CHUNK = 16 * 1024;
+    /**
+     * A read this far past the download position requests its bytes instead of waiting for them
+     */
+    private static final int REQUEST_DISTANCE = 256 * 1024;
+    /**
+     * A download is restarted after this long without a byte arriving
+     */
+    private static final long STALL_MILLIS = 15_000L;
+    private static final int MAX_FAILURES = 3;
+
+    private final String url;
+    private ByteBuffer data;
+    private int length = -1;
+    /**
+     * Sorted, disjoint [start, end) pairs of the bytes that arrived
+     */
+    private final IntArrayList ranges = new IntArrayList();
+    /**
+     * Start of the running download, -1 if there is none, and how far it got
+     */
+    private int downloadFrom = -1, cursor;
+    /**
+     * Bumped for every new download, an older one stops at its next read
+     */
+    private int generation;
+    private int failures;
+    private boolean failed, closed, complete;
+    private long lastProgress = System.currentTimeMillis();
+    private Consumer<ByteBuffer> onComplete;
+
+    private TrackStream(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Starts downloading and returns once the first preroll bytes arrived.
+     */
+    public static TrackStream open(String url, int preroll) throws IOException {
+        var stream = new TrackStream(url);
+        synchronized (stream) {
+            stream.start(0);
+            while (stream.length < 0) {
+                if (stream.failed || stream.stalled(System.currentTimeMillis())) {
+                    stream.close();
+                    throw new IOException("Cannot download " + url);
+                }
+                stream.waitForProgress();
+            }
+        }
+        if (stream.await(0, preroll) <= 0) {
+            stream.close();
+            throw new IOException("Cannot download " + url);
+        }
+        return stream;
+    }
+
+    /**
+     * @param action gets the buffer once every byte of the track arrived, on the download thread
+     */
+    public void onComplete(Consumer<ByteBuffer> action) {
+        synchronized (this) {
+            if (!complete) {
+                this.onComplete = action;
+                return;
+            }
+        }
+        action.accept(data);
+    }
+
+    @Override
+    public synchronized ByteBuffer buffer() {
+        return data;
+    }
+
+    @Override
+    public synchronized int await(int position, int count) {
+        long since = System.currentTimeMillis();
+        while (true) {
+            int present = presentEnd(position);
+            int end = (int) Math.min(length, (long) position + count);
+            if (present >= end || closed || failed) return present;
+            if (!coming(present)) start(present);
+
+            long now = System.currentTimeMillis();
+            if (now - Math.max(since, lastProgress) >= STALL_MILLIS) {
+                // a stalled connection is replaced, only running out of attempts fails the track
+                if (++failures >= MAX_FAILURES) {
+                    log.warn("Giving up on {} after {} stalls", url, failures);
+                    failed = true;
+                    downloadFrom = -1;
+                    notifyAll();
+                    return present;
+                }
+                since = now;
+                start(present);
+            }
+            waitForProgress();
+        }
+    }
+
+    @Override
+    public synchronized int arrived(int position) {
+        return presentEnd(position);
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        generation++;
+        notifyAll();
+    }
+
+    private boolean stalled(long now) {
+        return now - lastProgress >= STALL_MILLIS;
+    }
+
+    private void waitForProgress() {
+        try {
+            wait(STALL_MILLIS / 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+
+    /**
+     * @return whether the running download reaches the byte soon enough to wait for it
+     */
+    private boolean coming(int position) {
+        return downloadFrom >= 0 && downloadFrom <= position && position <= cursor + REQUEST_DISTANCE;
+    }
+
+    private void start(int from) {
+        int gen = ++generation;
+        downloadFrom = cursor = from;
+        try {
+            DOWNLOADS.execute(() -> run(from, gen));
+        } catch (RejectedExecutionException e) {
+            downloadFrom = -1;
+        }
+    }
+
+    private void run(int from, int gen) {
+        while (true) {
+            int end;
+            synchronized (this) {
+                if (gen != generation || closed) return;
+                end = length < 0 ? -1 : nextStart(from);
+            }
+
+            boolean ok = fetch(from, end, gen);
+
+            synchronized (this) {
+                // a track that arrived whole is kept even if it was closed meanwhile
+                if (complete) return;
+                if (length >= 0 && gap(0) < 0) {
+                    downloadFrom = -1;
+                    complete = true;
+                    notifyAll();
+                    break;
+                }
+                if (gen != generation || closed) return;
+                failures = ok ? 0 : failures + 1;
+                if (failures >= MAX_FAILURES) {
+                    log.warn("Giving up on {} after {} failed requests", url, failures);
+                    failed = true;
+                    downloadFrom = -1;
+                    notifyAll();
+                    return;
+                }
+
+                // failed requests resume where they stopped
+                from = length < 0 ? 0 : gap(cursor);
+                downloadFrom = cursor = from;
+            }
+        }
+
+        Consumer<ByteBuffer> action;
+        synchronized (this) {
+            action = onComplete;
+        }
+        if (action != null) action.accept(data);
+    }
+
+    /**
+     * @param end first byte not to request, -1 while the length is unknown
+     * @return false if the request failed before reaching its end
+     */
+    private boolean fetch(int from, int end, int gen) {
+        var range = "bytes=" + from + "-" + (end > 0 && end < length ? String.valueOf(end - 1) : "");
+        var request = Http.get(url).header(HttpHeaders.RANGE, range);
+        Boolean ok = request.sendResponse(response -> {
+            try {
+                return receive(request, response, from, end, gen);
+            } catch (IOException e) {
+                // closing the body of a request aborted on purpose may fail
+                return request.isAborted();
+            }
+        });
+        return ok != null && ok;
+    }
+
+    private boolean receive(Http.Request request, HttpResponse response, int from, int end, int gen) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        var entity = response.getEntity();
+        if (entity == null || (status != HttpStatus.SC_OK && status != HttpStatus.SC_PARTIAL_CONTENT)) return false;
+
+        long total = entity.getContentLength();
+        int start = 0;
+        if (status == HttpStatus.SC_PARTIAL_CONTENT) {
+            // bytes <first>-<last>/<total>
+            var header = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+            if (header == null) return false;
+            String value = header.getValue();
+            int dash = value.indexOf('-'), slash = value.indexOf('/');
+            if (dash < 0 || slash < 0) return false;
+            try {
+                start = Integer.parseInt(value.substring(value.indexOf(' ') + 1, dash).trim());
+                total = value.endsWith("*") ? -1 : Long.parseLong(value.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        try (InputStream in = entity.getContent()) {
+            if (!prepare(total)) return readWhole(in, gen);
+
+            // a server ignoring the range sends everything from the start
+            if (start < from) in.skipNBytes(from - start);
+            int pos = Math.max(start, from);
+
+            byte[] chunk = new byte[READ_CHUNK];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                synchronized (this) {
+                    if (gen != generation || closed) {
+                        // closing the body would read the rest of it
+                        request.abort();
+                        return true;
+                    }
+                    int count = Math.min(read, length - pos);
+                    data.put(pos, chunk, 0, count);
+                    mark(pos, pos + count);
+                    pos += count;
+                    cursor = pos;
+                    lastProgress = System.currentTimeMillis();
+                    notifyAll();
+                    // the rest of the gap arrived already
+                    if (pos >= length) return true;
+                    if (presentEnd(pos) > pos) {
+                        request.abort();
+                        return true;
+                    }
+                }
+            }
+            return end > 0 && pos >= end;
+        }
+    }
+
+    /**
+     * Allocates the buffer once the length is known.
+     *
+     * @return false if the length is unknown
+     */
+    private synchronized boolean prepare(long total) {
+        if (length >= 0) return true;
+        if (total <= 0 || total > Integer.MAX_VALUE - 8) return false;
+        data = ByteBuffer.allocate((int) total);
+        length = (int) total;
+        notifyAll();
+        return true;
+    }
+
+    private boolean readWhole(InputStream in, int gen) throws IOException {
+        var out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        synchronized (this) {
+            if (gen != generation || closed) return true;
+            data = ByteBuffer.wrap(out.toByteArray());
+            length = data.limit();
+            ranges.clear();
+            mark(0, length);
+            cursor = length;
+            lastProgress = System.currentTimeMillis();
+            notifyAll();
+        }
+        return true;
+    }
+
+    private void mark(int from, int to) {
+        int i = 0;
+        while (i < ranges.size() && ranges.getInt(i + 1) < from) i += 2;
+        if (i < ranges.size() && ranges.getInt(i) <= to) {
+            // overlaps or touches, merge with it and everything after it that the new range reaches
+            int start = Math.min(ranges.getInt(i), from), end = Math.max(ranges.getInt(i + 1), to);
+            while (i + 2 < ranges.size() && ranges.getInt(i + 2) <= end) {
+                end = Math.max(end, ranges.getInt(i + 3));
+                ranges.removeElements(i + 2, i + 4);
+            }
+            ranges.set(i, start);
+            ranges.set(i + 1, end);
+        } else {
+            ranges.add(i, from);
+            ranges.add(i + 1, to);
+        }
+    }
+
+    /**
+     * @return end of the bytes present from position on, position if it has not arrived
+     */
+    private int presentEnd(int position) {
+        if (length < 0) return position;
+        if (position >= length) return length;
+        for (int i = 0; i < ranges.size(); i += 2) {
+            if (ranges.getInt(i) <= position && position < ranges.getInt(i + 1)) return ranges.getInt(i + 1);
+        }
+        return position;
+    }
+
+    /**
+     * @return start of the first range after position, the length if there is none
+     */
+    private int nextStart(int position) {
+        for (int i = 0; i < ranges.size(); i += 2) {
+            if (ranges.getInt(i) > position) return ranges.getInt(i);
+        }
+        return length;
+    }
+
+    /**
+     * @return the first missing byte from position on, wrapping to the start, -1 once the track is complete
+     */
+    private int gap(int position) {
+        int missing = presentEnd(position);
+        if (missing < length) return missing;
+        missing = presentEnd(0);
+        return missing < length ? missing : -1;
+    }
+}
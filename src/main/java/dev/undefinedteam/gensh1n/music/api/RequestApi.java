@@ -40,7 +40,6 @@ import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 // Object api
@@ -503,44 +502,37 @@ public class RequestApi {
         if (method.equals(Http.Method.POST))
             http.bodyForm(encryptData);
 
-        Supplier<T> supplier = () -> {
-            return (T) http.sendResponse(response -> {
-                if (response.getStatusLine().getStatusCode() == 502) {
-                    throw new RuntimeException("你毁了，网易云音乐死了");
-                }
+        // the shared client retries what is safe to repeat, a failed POST is not sent again
+        return (T) http.sendResponse(response -> {
+            if (response.getStatusLine().getStatusCode() == 502) {
+                throw new RuntimeException("你毁了，网易云音乐死了");
+            }
 
-                byte[] bytes;
-                try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                    byte[] buffer = new byte[8192];
-                    int read;
-                    while ((read = response.getEntity().getContent().read(buffer)) > 0) out.write(buffer, 0, read);
-                    bytes = out.toByteArray();
-                } catch (IOException e) {
-                    bytes = null;
-                }
-                if (bytes == null) return null;
-
-                if (response.containsHeader("Set-Cookie")) {
-                    var cookieHeaders = response.getHeaders("Set-Cookie");
-                    for (Header cHeader : cookieHeaders) {
-                        for (HeaderElement element : cHeader.getElements()) {
-                            cookies.put(element.getName(), element.getValue());
-                            break;
-                        }
+            byte[] bytes;
+            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = response.getEntity().getContent().read(buffer)) > 0) out.write(buffer, 0, read);
+                bytes = out.toByteArray();
+            } catch (IOException e) {
+                bytes = null;
+            }
+            if (bytes == null) return null;
+
+            if (response.containsHeader("Set-Cookie")) {
+                var cookieHeaders = response.getHeaders("Set-Cookie");
+                for (Header cHeader : cookieHeaders) {
+                    for (HeaderElement element : cHeader.getElements()) {
+                        cookies.put(element.getName(), element.getValue());
+                        break;
                     }
-                    save();
                 }
+                save();
+            }
 
-                var res = new String(bytes, StandardCharsets.UTF_8);
-                return base.parse(res);
-            });
-        };
-
-        try {
-            return supplier.get();
-        } catch (Exception e) {
-            return supplier.get();
-        }
+            var res = new String(bytes, StandardCharsets.UTF_8);
+            return base.parse(res);
+        });
     }
 
     @NativeObfuscation.Inline
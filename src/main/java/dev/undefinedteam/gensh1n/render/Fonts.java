@@ -14,8 +14,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 
-import static dev.undefinedteam.gensh1n.Client.mc;
-
 public class Fonts {
     public static final File FOLDER = new File(Client.FOLDER, "fonts");
 
@@ -56,15 +54,21 @@ public class Fonts {
         return Typeface.createTypeface(FontFamily.createFamily(stream, false));
     }
 
-    private static void unpack() throws IOException {
-        if (mc == null) return;
+    /**
+     * Copies the builtin fonts to {@link #FOLDER}, already unpacked ones are skipped. Only reads the mod jar, so it
+     * runs before the game is up.
+     */
+    public static void unpack() throws IOException {
+        if (!FOLDER.exists()) FOLDER.mkdirs();
 
         for (String builtinFont : BUILTIN_FONTS) {
-            Identifier location = ResLocation.of("fonts/" + builtinFont);
-            InputStream stream = Fonts.class.getResourceAsStream("/assets/gensh1n/fonts/"+builtinFont);
             File dest = new File(FOLDER, builtinFont);
-            if (!dest.exists()) {
-                Files.copy(stream, dest.toPath());
+            if (dest.exists()) continue;
+
+            try (InputStream stream = Fonts.class.getResourceAsStream("/assets/gensh1n/fonts/"+builtinFont)) {
+                if (stream != null) {
+                    Files.copy(stream, dest.toPath());
+                }
             }
         }
     }
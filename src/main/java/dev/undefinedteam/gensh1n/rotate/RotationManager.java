@@ -3,6 +3,7 @@ package dev.undefinedteam.gensh1n.rotate;
 import dev.undefinedteam.gensh1n.Client;
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.player.RotationApplyEvent;
 import dev.undefinedteam.gensh1n.utils.Utils;
 import meteordevelopment.orbit.EventHandler;
@@ -288,7 +289,7 @@ public class RotationManager {
         }
     }
 
-    @EventHandler(priority = -999)
+    @PacketHandler(value = PlayerMoveC2SPacket.class, priority = -999)
     private void onPacket(PacketEvent e) {
         if (e.packet instanceof PlayerMoveC2SPacket packet) {
             serverRotation.setYaw(packet.yaw);
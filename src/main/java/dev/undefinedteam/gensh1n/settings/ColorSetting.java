@@ -113,6 +113,7 @@ public class ColorSetting extends Setting<SettingColor> {
                     }
 
                     boxExpanded = !boxExpanded;
+                    markDirty();
 
                     if (boxExpanded) {
                         if (arrow_o2f_Animator.isRunning()) {
@@ -179,6 +180,8 @@ public class ColorSetting extends Setting<SettingColor> {
                         case 2 -> this.get().b = v;
                         case 3 -> this.get().a = v;
                     }
+                    // changed in place, set() is never called
+                    onChanged();
 
                     preview_draw.setColor(get().getPacked());
                 });
@@ -114,6 +114,7 @@ public class FolderFileSetting extends Setting<File> {
                 }
 
                 sectionExpand = !sectionExpand;
+                markDirty();
 
                 if (sectionExpand) {
                     if (arrow_o2f_Animator.isRunning()) {
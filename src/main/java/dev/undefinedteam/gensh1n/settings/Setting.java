@@ -36,6 +36,7 @@ public abstract class Setting<T> implements IGetter<T>, ISerializable<T> {
 
     public final Consumer<Setting<T>> onModuleActivated;
     private Consumer<T> onChanged;
+    Runnable onDirty;
 
     public Module module;
 
@@ -207,9 +208,17 @@ public abstract class Setting<T> implements IGetter<T>, ISerializable<T> {
     }
 
     public void onChanged() {
+        markDirty();
         if (onChanged != null) onChanged.accept(value);
     }
 
+    /**
+     * Tells the owner the value has to be saved again, for values changed in place without {@link #set}.
+     */
+    public void markDirty() {
+        if (onDirty != null) onDirty.run();
+    }
+
     public void onActivated() {
         if (onModuleActivated != null) onModuleActivated.accept(this);
     }
@@ -69,6 +69,17 @@ public class Settings implements ISerializable<Settings>, Iterable<SettingGroup>
         return createGroup(name, true);
     }
 
+    /**
+     * @param listener run whenever one of the settings changes, marks the owner for saving
+     */
+    public void onDirty(Runnable listener) {
+        for (SettingGroup group : groups) {
+            for (Setting<?> setting : group) {
+                setting.onDirty = listener;
+            }
+        }
+    }
+
     public void registerColorSettings(Module module) {
         for (SettingGroup group : this) {
             for (Setting<?> setting : group) {
@@ -102,6 +102,7 @@ public class StringListSetting extends Setting<List<String>> {
                     }
 
                     boxExpanded = !boxExpanded;
+                    markDirty();
 
                     if (boxExpanded) {
                         if (arrow_o2f_Animator.isRunning()) {
@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system;
 
 import com.google.gson.JsonObject;
 import dev.undefinedteam.gclient.GCClient;
+import dev.undefinedteam.gclient.assets.AssetDownloader;
 import dev.undefinedteam.gclient.packets.c2s.play.ChatMessageC2S;
 import dev.undefinedteam.gensh1n.Client;
 import dev.undefinedteam.gensh1n.events.game.GameJoinedEvent;
@@ -11,6 +12,7 @@ import dev.undefinedteam.gensh1n.settings.SettingGroup;
 import dev.undefinedteam.gensh1n.settings.Settings;
 import dev.undefinedteam.gensh1n.utils.chat.ChatUtils;
 import dev.undefinedteam.gensh1n.utils.render.color.SettingColor;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
 import meteordevelopment.orbit.EventHandler;
 
 import static dev.undefinedteam.gensh1n.Client.mc;
@@ -23,6 +25,7 @@ public class ClientConfig extends System<ClientConfig> implements SettingAdapter
     private final SettingGroup sgCommand = settings.createGroup("Command");
     private final SettingGroup sgIRC = settings.createGroup("GIRC");
     private final SettingGroup sgPathFinder = settings.createGroup("PathFinder");
+    private final SettingGroup sgSystem = settings.createGroup("System");
 
     public Setting<Boolean> msaa = bool(sgUI, "msaa-framebuffer", "USE MSAA SAMPLES: )", true);
     public Setting<Double> rainbowSpeed = doubleN(sgUI, "rainbow-speed", 10, 0, 10);
@@ -38,13 +41,18 @@ public class ClientConfig extends System<ClientConfig> implements SettingAdapter
 
     public final Setting<String> prefix = text(sgIRC, "chat-irc-prefix", "@");
     public final Setting<Integer> reconnectDelay = intN(sgIRC, "reconnect-irc-delay", 5000, 3000, 30000);
+    public final Setting<Integer> assetDownloads = intN(sgIRC, "asset-downloads", "Assets downloaded in parallel.", AssetDownloader.DEFAULT_PARALLEL, 1, 16);
 
     public Setting<Boolean> fastAStar = bool(sgPathFinder, "fast-astar", true);
 
+    public final Setting<Integer> asyncWorkers = intN(sgSystem, "async-workers", "Threads used for background work (GChat, Music).", PriorityExecutor.defaultWorkers(), 1, 8)
+        .onChange(PriorityExecutor.SHARED::setWorkers);
+
 //    public final FernFlowerConfig fernFlower = new FernFlowerConfig(this.settings);
 
     public ClientConfig() {
         super("config");
+        settings.onDirty(this::markDirty);
     }
 
     public static ClientConfig get() {
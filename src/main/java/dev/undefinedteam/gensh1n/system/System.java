@@ -3,6 +3,7 @@ package dev.undefinedteam.gensh1n.system;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
 import dev.undefinedteam.gensh1n.Client;
 import dev.undefinedteam.gensh1n.Genshin;
 import dev.undefinedteam.gensh1n.utils.StreamUtils;
@@ -12,15 +13,30 @@ import net.minecraft.util.crash.CrashException;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class System<T> implements ISerializable<T> {
     @Getter private final String name;
     @Getter private File file;
 
+    private final AtomicLong changes = new AtomicLong();
+    private volatile long savedChanges;
+
     protected boolean isFirstInit;
+    /**
+     * Files parsed ahead of {@link #load(File)} during startup, by absolute path
+     */
+    private static final Map<String, JsonObject> PRELOADED = new ConcurrentHashMap<>();
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss", Locale.ROOT);
 
     public System(String name) {
@@ -39,23 +55,17 @@ public abstract class System<T> implements ISerializable<T> {
         File file = getFile();
         if (file == null) return;
 
+        long version = changes.get();
         JsonObject tag = toTag();
         if (tag == null) return;
 
-        try {
-            File tempFile = File.createTempFile(Client.NAME, file.getName());
-
-            final PrintWriter printWriter = new PrintWriter(new FileWriter(tempFile));
-            printWriter.println(Client.GSON.toJson(tag));
-            printWriter.close();
-
-            if (folder != null) file = new File(folder, file.getName());
+        if (folder != null) file = new File(folder, file.getName());
 
-            file.getParentFile().mkdirs();
-            StreamUtils.copy(tempFile, file);
-            tempFile.delete();
+        try {
+            write(tag, file);
+            if (folder == null) saved(version);
         } catch (IOException e) {
-            e.printStackTrace();
+            Genshin.LOG.error("Failed to save {}", this.name, e);
         }
     }
 
@@ -66,18 +76,72 @@ public abstract class System<T> implements ISerializable<T> {
         if (tag == null) return;
 
         try {
-            File tempFile = File.createTempFile(Client.NAME, file.getName());
-            final PrintWriter printWriter = new PrintWriter(new FileWriter(tempFile));
-            printWriter.println(Client.GSON.toJson(tag));
-            printWriter.close();
-            file.getParentFile().mkdirs();
-            StreamUtils.copy(tempFile, file);
-            tempFile.delete();
+            write(tag, file);
         } catch (IOException e) {
-            e.printStackTrace();
+            Genshin.LOG.error("Failed to save {} to '{}'", this.name, file, e);
         }
     }
 
+    /**
+     * Streams the tag into a temp file next to the target and moves it over the target, so a crash
+     * mid-write never leaves a truncated file behind.
+     */
+    static void write(JsonElement tag, File file) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path folder = target.getParent();
+        Files.createDirectories(folder);
+
+        Path temp = Files.createTempFile(folder, file.getName(), ".tmp");
+        try {
+            try (JsonWriter writer = Client.GSON.newJsonWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+                Client.GSON.toJson(tag, writer);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Flags the system for the next background save, see {@link SystemSaver}.
+     */
+    public void markDirty() {
+        changes.incrementAndGet();
+        SystemSaver.INSTANCE.request();
+    }
+
+    public boolean isDirty() {
+        return changes.get() != savedChanges;
+    }
+
+    /**
+     * Serializes the current state on the calling thread, null if there is nothing to write.
+     */
+    SystemSaver.Snapshot snapshot() {
+        File file = getFile();
+        if (file == null) return null;
+
+        long version = changes.get();
+        JsonObject tag = toTag();
+        return tag == null ? null : new SystemSaver.Snapshot(this, version, tag, file);
+    }
+
+    void saved(long version) {
+        // changes made while the snapshot was written keep the system dirty
+        if (version > savedChanges) savedChanges = version;
+    }
+
+    /**
+     * Drops whatever {@link #toTag()} reuses between saves, the next one serializes everything again.
+     */
+    public void clearCache() {
+    }
+
     public void save() {
         save(null);
     }
@@ -91,8 +155,11 @@ public abstract class System<T> implements ISerializable<T> {
 
             if (file.exists()) {
                 try {
-                    final JsonElement jsonElement = new JsonParser().parse(new BufferedReader(new FileReader(file)));
-                    fromTag(jsonElement.getAsJsonObject());
+                    JsonObject tag = PRELOADED.remove(file.getAbsolutePath());
+                    if (tag == null) tag = new JsonParser().parse(new BufferedReader(new FileReader(file))).getAsJsonObject();
+                    fromTag(tag);
+                    // the file already holds what was just loaded
+                    if (folder == null) saved(changes.get());
                 } catch (CrashException e) {
                     String backupName = FilenameUtils.removeExtension(file.getName()) + "-" + ZonedDateTime.now().format(DATE_TIME_FORMATTER) + ".backup.json";
                     File backup = new File(file.getParentFile(), backupName);
@@ -107,6 +174,27 @@ public abstract class System<T> implements ISerializable<T> {
         }
     }
 
+    /**
+     * Parses the json files of a folder so {@link #load(File)} can skip reading them, safe to call off thread.
+     * Files that fail to parse are left to the regular load and its backup handling.
+     */
+    static void preload(File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) return;
+
+        for (File file : files) {
+            try (var reader = new BufferedReader(new FileReader(file))) {
+                JsonElement element = JsonParser.parseReader(reader);
+                if (element.isJsonObject()) PRELOADED.put(file.getAbsolutePath(), element.getAsJsonObject());
+            } catch (IOException | RuntimeException ignored) {
+            }
+        }
+    }
+
+    static void clearPreloaded() {
+        PRELOADED.clear();
+    }
+
     public void loadByFile(File file) {
         if (file == null) return;
 
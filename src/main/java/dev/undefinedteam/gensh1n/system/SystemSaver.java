@@ -0,0 +1,116 @@
+package dev.undefinedteam.gensh1n.system;
+
+import com.google.gson.JsonObject;
+import dev.undefinedteam.gensh1n.Genshin;
+import dev.undefinedteam.gensh1n.system.modules.TickScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background persistence for {@link System}s. Changes only flag a system dirty, once they stop arriving for
+ * {@link #DEBOUNCE_MS} (or {@link #MAX_DELAY_MS} after the first one) the dirty systems are serialized on the
+ * client thread and written out by a single writer thread. A system whose previous snapshot is still queued
+ * only gets its newest snapshot written.
+ */
+public class SystemSaver {
+    public static final SystemSaver INSTANCE = new SystemSaver();
+    public static final long DEBOUNCE_MS = 1500;
+    public static final long MAX_DELAY_MS = 10_000;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "Genshin-Saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<System<?>, Snapshot> queued = new ConcurrentHashMap<>();
+
+    private volatile long firstRequest, lastRequest;
+
+    record Snapshot(System<?> system, long version, JsonObject tag, File file) {
+    }
+
+    private SystemSaver() {
+    }
+
+    void init() {
+        TickScheduler.INSTANCE.schedule("system_save", TickScheduler.Rate.every(5), TickScheduler.DEFAULT_BUDGET, this::due, job -> {
+            saveDirty();
+            return true;
+        });
+    }
+
+    /**
+     * Called for every change, restarts the debounce window.
+     */
+    public void request() {
+        long now = now();
+        if (firstRequest == 0) firstRequest = now;
+        lastRequest = now;
+    }
+
+    private boolean due() {
+        long first = firstRequest;
+        if (first == 0) return false;
+        long now = now();
+        return now - lastRequest >= DEBOUNCE_MS || now - first >= MAX_DELAY_MS;
+    }
+
+    /**
+     * Snapshots the dirty systems on the calling thread and queues them for writing.
+     */
+    public void saveDirty() {
+        firstRequest = 0;
+        for (System<?> system : Systems.all()) {
+            if (system.isDirty()) submit(system.snapshot());
+        }
+    }
+
+    /**
+     * Snapshots every system, also state that is not tracked as a change.
+     */
+    public void saveAll() {
+        firstRequest = 0;
+        for (System<?> system : Systems.all()) {
+            submit(system.snapshot());
+        }
+    }
+
+    private void submit(Snapshot snapshot) {
+        if (snapshot == null) return;
+        if (queued.put(snapshot.system, snapshot) == null) {
+            writer.execute(() -> write(queued.remove(snapshot.system)));
+        }
+    }
+
+    private void write(Snapshot snapshot) {
+        if (snapshot == null) return;
+        try {
+            System.write(snapshot.tag, snapshot.file);
+            snapshot.system.saved(snapshot.version);
+        } catch (IOException e) {
+            Genshin.LOG.error("Failed to save {}", snapshot.system.getName(), e);
+        }
+    }
+
+    /**
+     * Waits for the queued writes, used before the synchronous save on shutdown.
+     */
+    public void drain() {
+        try {
+            writer.submit(() -> {
+            }).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Genshin.LOG.warn("Pending saves did not finish", e);
+        }
+    }
+
+    private static long now() {
+        return java.lang.System.currentTimeMillis();
+    }
+}
@@ -16,6 +16,7 @@ import tech.skidonion.obfuscator.annotations.StringEncryption;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -52,10 +53,20 @@ public class Systems {
         }
 
         load(tasks);
+        System.clearPreloaded();
+        SystemSaver.INSTANCE.init();
         Client.EVENT_BUS.subscribe(Systems.class);
         tasks.pop();
     }
 
+    /**
+     * Parses the system files on the calling thread ahead of {@link #init}, used by the startup graph.
+     */
+    public static void preload() {
+        System.preload(Client.FOLDER);
+        System.preload(Configs.FOLDER);
+    }
+
     private static System<?> add(System<?> system) {
         systems.put(system.getClass(), system);
         Client.EVENT_BUS.subscribe(system);
@@ -68,7 +79,7 @@ public class Systems {
 
     @EventHandler
     private static void onGameLeft(GameLeftEvent event) {
-        save(null);
+        SystemSaver.INSTANCE.saveAll();
     }
 
     public static void save(Tasks task, File folder) {
@@ -81,6 +92,9 @@ public class Systems {
 
     public static void save(Tasks task) {
         if (task != null) task.push("system_save");
+        SystemSaver.INSTANCE.drain();
+        // the last save does not trust values changed in place to have been reported
+        for (System<?> system : systems.values()) system.clearCache();
         save(task, null);
         if (task != null) task.pop();
     }
@@ -98,6 +112,10 @@ public class Systems {
         load(task, null);
     }
 
+    static Collection<System<?>> all() {
+        return systems.values();
+    }
+
     @SuppressWarnings("unchecked")
     public static <T extends System<?>> T get(Class<T> klass) {
         return (T) systems.getOrDefault(klass, null);
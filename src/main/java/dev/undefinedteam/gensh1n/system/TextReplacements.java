@@ -5,15 +5,13 @@ import dev.undefinedteam.gclient.GCClient;
 import dev.undefinedteam.gclient.data.NameColor;
 import dev.undefinedteam.gclient.data.UserList;
 import dev.undefinedteam.gensh1n.Genshin;
-import dev.undefinedteam.gensh1n.events.client.TickEvent;
-import dev.undefinedteam.gensh1n.events.render.Render2DEvent;
 import dev.undefinedteam.gensh1n.system.modules.Modules;
+import dev.undefinedteam.gensh1n.system.modules.TickScheduler;
 import dev.undefinedteam.gensh1n.system.modules.misc.Protocol;
 import dev.undefinedteam.gensh1n.system.modules.render.NameProtect;
 import dev.undefinedteam.gensh1n.system.modules.render.ServerProtect;
 import dev.undefinedteam.gensh1n.utils.heypixel.VIPList;
 import dev.undefinedteam.gensh1n.utils.render.color.Color;
-import meteordevelopment.orbit.EventHandler;
 import net.minecraft.text.CharacterVisitor;
 import net.minecraft.text.OrderedText;
 import net.minecraft.text.Style;
@@ -38,11 +36,25 @@ public class TextReplacements {
                                      List<Pair<int[], Integer>> colors) {
     }
 
-    private static final List<ReplacementMapping> replacements = new ArrayList<>();
+    /**
+     * Rebuilt off to the side and swapped in whole, renderers never see a half built list
+     */
+    private static volatile List<ReplacementMapping> replacements = List.of();
+    private static TickScheduler.Job job;
 
-    @EventHandler(priority = -9999)
-    private static void onRender(TickEvent.Post e) {
-        replacements.clear();
+    public static void init() {
+        job = TickScheduler.INSTANCE.schedule("TextReplacements", TickScheduler.Rate.every(10), TextReplacements::rebuild);
+    }
+
+    /**
+     * Rebuilds on the next tick instead of waiting for the next periodic refresh.
+     */
+    public static void refresh() {
+        if (job != null) job.markDirty();
+    }
+
+    private static boolean rebuild(TickScheduler.Job job) {
+        var replacements = new ArrayList<ReplacementMapping>();
 
         if (NameProtect.get() != null) {
             ServerProtect serverProtect = Modules.get().get(ServerProtect.class);
@@ -145,6 +157,9 @@ public class TextReplacements {
 
             replacements.sort(Comparator.comparingInt(a -> a.originalName.length()));
         }
+
+        TextReplacements.replacements = replacements;
+        return true;
     }
 
     public static boolean shouldReplace() {
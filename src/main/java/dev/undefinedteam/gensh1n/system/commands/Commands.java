@@ -57,6 +57,9 @@ public class Commands extends System<Commands> {
         add(new TppCommand());
         add(new CenterCommand());
         add(new ConfigCommand());
+        add(new GChatCommand());
+        add(new ProfilerCommand());
+        add(new MusicCommand());
 
         // 主播太esu了
         add(new rip());
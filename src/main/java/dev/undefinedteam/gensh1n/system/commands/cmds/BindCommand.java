@@ -37,6 +37,7 @@ public class BindCommand extends Command {
                 module.keybind.set(true, -1);
             }
             module.keybind.set(true, InputUtil.fromTranslationKey("key.keyboard." + bind.toLowerCase(Locale.ROOT)).getCode());
+            module.markDirty();
             module.info("Bound module '" + module.title + "' to " + bind.toUpperCase());
             return SUCCESS;
         })));
@@ -17,8 +17,9 @@ public class ConfigCommand extends Command {
     public void build(LiteralArgumentBuilder<CommandSource> builder) {
         builder.then(literal("load").then(argument("config", ConfigsArgumentType.create()).executes(context -> {
             var cfg = ConfigsArgumentType.get(context);
-            cfg.load();
-            info("Loaded config '" + cfg.name + "'");
+            int changed = cfg.load();
+            if (changed < 0) error("Failed to load config '" + cfg.name + "'");
+            else info("Loaded config '" + cfg.name + "' (" + changed + " changes)");
             return SUCCESS;
         })));
 
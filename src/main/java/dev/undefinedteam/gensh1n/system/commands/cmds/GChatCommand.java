@@ -0,0 +1,154 @@
+package dev.undefinedteam.gensh1n.system.commands.cmds;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import dev.undefinedteam.gclient.GCClient;
+import dev.undefinedteam.gclient.GCConnection;
+import dev.undefinedteam.gclient.GCUser;
+import dev.undefinedteam.gclient.PacketMetrics;
+import dev.undefinedteam.gclient.codec.CodecBenchmark;
+import dev.undefinedteam.gclient.server.EmbeddedServer;
+import dev.undefinedteam.gclient.server.LoadBenchmark;
+import dev.undefinedteam.gensh1n.system.commands.Command;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
+import net.minecraft.command.CommandSource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static dev.undefinedteam.gensh1n.Client.mc;
+
+public class GChatCommand extends Command {
+    public GChatCommand() {
+        super("gchat", "GChat link diagnostics", "gc");
+    }
+
+    @Override
+    public void build(LiteralArgumentBuilder<CommandSource> builder) {
+        builder.then(literal("status").executes(context -> status()));
+        builder.then(literal("reconnect").executes(context -> {
+            GCClient.get().connection.reconnect();
+            info("Reconnecting GChat...");
+            return SUCCESS;
+        }));
+        builder.then(literal("stats")
+            .executes(context -> stats(10))
+            .then(argument("count", IntegerArgumentType.integer(1, 100)).executes(context ->
+                stats(IntegerArgumentType.getInteger(context, "count"))
+            ))
+            .then(literal("reset").executes(context -> {
+                PacketMetrics.GLOBAL.reset();
+                PriorityExecutor.SHARED.resetStats();
+                info("GChat metrics reset.");
+                return SUCCESS;
+            }))
+        );
+        builder.then(literal("server")
+            .then(literal("start").executes(context -> startServer()))
+            .then(literal("stop").executes(context -> stopServer()))
+        );
+        builder.then(literal("bench")
+            .then(literal("codec")
+                .executes(context -> benchCodec(2000))
+                .then(argument("iterations", IntegerArgumentType.integer(1, 100000)).executes(context ->
+                    benchCodec(IntegerArgumentType.getInteger(context, "iterations"))
+                ))
+            )
+            .then(literal("load")
+                .executes(context -> benchLoad(50000))
+                .then(argument("packets", IntegerArgumentType.integer(1, 10000000)).executes(context ->
+                    benchLoad(IntegerArgumentType.getInteger(context, "packets"))
+                ))
+            )
+        );
+    }
+
+    private int status() {
+        var s = GCClient.get().connection.stats();
+        info("%s via %s, retry in %dms (%d consecutive failures)", s.state(), s.transport(), s.retryInMillis(), s.consecutiveFailures());
+        info("attempts=%d connects=%d failed=%d disconnects=%d", s.attempts(), s.connects(), s.failed(), s.disconnects());
+        info("connect time last=%dms avg=%dms, uptime=%ds", s.lastConnectMillis(), s.avgConnectMillis(), s.uptimeMillis() / 1000);
+        return SUCCESS;
+    }
+
+    private int stats(int count) {
+        var snapshots = PacketMetrics.GLOBAL.snapshot();
+        info("Packets over %ds, busiest %d of %d:", PacketMetrics.GLOBAL.uptimeNanos() / 1_000_000_000L, Math.min(count, snapshots.size()), snapshots.size());
+        for (int i = 0; i < count && i < snapshots.size(); i++) {
+            info(snapshots.get(i).toString());
+        }
+
+        var pool = PriorityExecutor.SHARED.stats();
+        var handlers = GCUser.handlers();
+        info("handlers pending: worker=%d client=%d", handlers.pendingWorker(), handlers.pendingClient());
+        info("executor: queued=%d active=%d/%d wait avg=%.1fms max=%.1fms run avg=%.1fms max=%.1fms",
+            pool.queued(), pool.active(), pool.workers(),
+            pool.avgWaitNanos() / 1e6, pool.maxWaitNanos() / 1e6, pool.avgRunNanos() / 1e6, pool.maxRunNanos() / 1e6);
+        return SUCCESS;
+    }
+
+    private int startServer() {
+        CompletableFuture.supplyAsync(EmbeddedServer::local, worker())
+            .whenCompleteAsync((server, ex) -> {
+                if (ex != null) {
+                    error("Embedded server failed to start: %s", ex.getMessage());
+                    return;
+                }
+                info("Embedded server on %s:%d, GChat now connects there.", EmbeddedServer.HOST, server.port());
+            }, mc);
+        return SUCCESS;
+    }
+
+    private int stopServer() {
+        var server = EmbeddedServer.running();
+        if (server == null) {
+            error("Embedded server is not running.");
+            return SUCCESS;
+        }
+
+        var connection = GCClient.get().connection;
+        connection.address(GCConnection.HOST, GCConnection.PORT);
+        connection.stop();
+        server.stop();
+        info("Embedded server stopped, use '.gchat reconnect' for the real server.");
+        return SUCCESS;
+    }
+
+    private int benchLoad(int packets) {
+        info("Running load benchmark (%d packets)...", packets);
+        CompletableFuture.supplyAsync(() -> {
+                try {
+                    return LoadBenchmark.run(EmbeddedServer.local(), packets);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, LoadBenchmark.EXECUTOR)
+            .whenCompleteAsync((result, ex) -> {
+                if (ex != null) {
+                    var cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    error("Load benchmark failed: %s", cause.getMessage());
+                    return;
+                }
+                info(result.toString());
+            }, mc);
+        return SUCCESS;
+    }
+
+    private static Executor worker() {
+        return PriorityExecutor.SHARED.executor(PriorityExecutor.Priority.NORMAL);
+    }
+
+    private int benchCodec(int iterations) {
+        info("Running codec benchmark (%d packets per path)...", iterations);
+        CompletableFuture.supplyAsync(() -> CodecBenchmark.run(iterations), worker())
+            .whenCompleteAsync((results, ex) -> {
+                if (ex != null) {
+                    error("Codec benchmark failed: %s", ex.getMessage());
+                    return;
+                }
+                results.forEach(r -> info(r.toString()));
+            }, mc);
+        return SUCCESS;
+    }
+}
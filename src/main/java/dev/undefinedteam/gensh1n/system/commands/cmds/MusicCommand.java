@@ -0,0 +1,43 @@
+package dev.undefinedteam.gensh1n.system.commands.cmds;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import dev.undefinedteam.gensh1n.codec.FlacBenchmark;
+import dev.undefinedteam.gensh1n.system.commands.Command;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
+import net.minecraft.command.CommandSource;
+
+import java.util.concurrent.CompletableFuture;
+
+import static dev.undefinedteam.gensh1n.Client.mc;
+
+public class MusicCommand extends Command {
+    public MusicCommand() {
+        super("music", "Music player diagnostics");
+    }
+
+    @Override
+    public void build(LiteralArgumentBuilder<CommandSource> builder) {
+        builder.then(literal("bench")
+            .then(literal("flac")
+                .executes(context -> benchFlac(20))
+                .then(argument("iterations", IntegerArgumentType.integer(1, 1000)).executes(context ->
+                    benchFlac(IntegerArgumentType.getInteger(context, "iterations"))
+                ))
+            )
+        );
+    }
+
+    private int benchFlac(int iterations) {
+        info("Running FLAC benchmark (%d passes per case)...", iterations);
+        CompletableFuture.supplyAsync(() -> FlacBenchmark.run(iterations), PriorityExecutor.SHARED.executor(PriorityExecutor.Priority.NORMAL))
+            .whenCompleteAsync((results, ex) -> {
+                if (ex != null) {
+                    error("FLAC benchmark failed: %s", ex.getMessage());
+                    return;
+                }
+                results.forEach(r -> info(r.toString()));
+            }, mc);
+        return SUCCESS;
+    }
+}
@@ -0,0 +1,83 @@
+package dev.undefinedteam.gensh1n.system.commands.cmds;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import dev.undefinedteam.gensh1n.events.EventProfiler;
+import dev.undefinedteam.gensh1n.system.commands.Command;
+import dev.undefinedteam.gensh1n.system.modules.TickScheduler;
+import net.minecraft.command.CommandSource;
+
+import java.io.IOException;
+
+public class ProfilerCommand extends Command {
+    private final EventProfiler profiler = EventProfiler.INSTANCE;
+
+    public ProfilerCommand() {
+        super("profiler", "Per listener event bus timings", "prof");
+    }
+
+    @Override
+    public void build(LiteralArgumentBuilder<CommandSource> builder) {
+        builder.then(literal("start")
+            .executes(context -> start(profiler.sampleEvery()))
+            .then(argument("sample-every", IntegerArgumentType.integer(1, 10000)).executes(context ->
+                start(IntegerArgumentType.getInteger(context, "sample-every"))
+            ))
+        );
+        builder.then(literal("stop").executes(context -> {
+            profiler.stop();
+            info("Event profiler stopped after %.1fs.", profiler.profiledNanos() / 1e9);
+            return SUCCESS;
+        }));
+        builder.then(literal("reset").executes(context -> {
+            profiler.reset();
+            info("Event profiler reset.");
+            return SUCCESS;
+        }));
+        builder.then(literal("show")
+            .executes(context -> show(10))
+            .then(argument("count", IntegerArgumentType.integer(1, 100)).executes(context ->
+                show(IntegerArgumentType.getInteger(context, "count"))
+            ))
+        );
+        builder.then(literal("ticks")
+            .executes(context -> {
+                var jobs = TickScheduler.INSTANCE.stats();
+                info("Scheduled tick jobs (%d), tick budget %.1fms:", jobs.size(), TickScheduler.TICK_BUDGET / 1e6);
+                jobs.forEach(s -> info(s.toString()));
+                return SUCCESS;
+            })
+            .then(literal("reset").executes(context -> {
+                TickScheduler.INSTANCE.resetStats();
+                info("Tick job stats reset.");
+                return SUCCESS;
+            }))
+        );
+        builder.then(literal("dump").executes(context -> {
+            try {
+                info("Wrote %s", profiler.dump().getPath());
+            } catch (IOException e) {
+                error("Dump failed: %s", e.getMessage());
+            }
+            return SUCCESS;
+        }));
+    }
+
+    private int start(int sampleEvery) {
+        profiler.start(sampleEvery);
+        info("Event profiler running, sampling 1/%d posts per event type.", profiler.sampleEvery());
+        return SUCCESS;
+    }
+
+    private int show(int count) {
+        var snapshots = profiler.snapshot();
+        double window = profiler.profiledNanos();
+        info("Listeners over %.1fs (%s), costliest %d of %d:", window / 1e9,
+            profiler.isEnabled() ? "running" : "stopped", Math.min(count, snapshots.size()), snapshots.size());
+        for (int i = 0; i < count && i < snapshots.size(); i++) {
+            var s = snapshots.get(i);
+            info("%.2f%% %s", window == 0 ? 0 : s.totalNanos() * 100 / window, s.toString());
+        }
+        return SUCCESS;
+    }
+}
@@ -13,11 +13,18 @@ public class Config {
         this.name = name;
     }
 
-    public void load() {
-        Modules.get().loadByFile(getFile());
+    /**
+     * Switches to this profile, only changing what differs from the current state.
+     *
+     * @return number of changed values, -1 if the file could not be loaded
+     */
+    public int load() {
+        var snapshot = Configs.get().snapshot(this);
+        return snapshot == null ? -1 : snapshot.apply();
     }
 
     public void delete() {
+        Configs.get().invalidate(this);
         try {
             FileUtils.deleteDirectory(getFile());
         } catch (IOException e) {
@@ -25,11 +32,12 @@ public class Config {
         }
     }
 
-    private File getFile() {
+    File getFile() {
         return new File(Configs.FOLDER, name + ".cfg");
     }
 
     public void save() {
         Modules.get().saveToFile(getFile());
+        Configs.get().invalidate(this);
     }
 }
@@ -0,0 +1,217 @@
+package dev.undefinedteam.gensh1n.system.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dev.undefinedteam.gensh1n.Genshin;
+import dev.undefinedteam.gensh1n.settings.Setting;
+import dev.undefinedteam.gensh1n.settings.SettingGroup;
+import dev.undefinedteam.gensh1n.system.modules.Module;
+import dev.undefinedteam.gensh1n.system.modules.Modules;
+import dev.undefinedteam.gensh1n.utils.input.Keybind;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A {@code .cfg} file parsed and resolved against the registered modules. Applying it compares every value
+ * with the current one and only touches what differs, so switching between similar profiles fires a handful
+ * of {@code onChanged} callbacks instead of resetting and reloading every setting.
+ */
+public class ConfigSnapshot {
+    public final File file;
+    public final long modified, length;
+    private final List<ModuleState> modules;
+
+    private ConfigSnapshot(File file, long modified, long length, List<ModuleState> modules) {
+        this.file = file;
+        this.modified = modified;
+        this.length = length;
+        this.modules = modules;
+    }
+
+    /**
+     * Unset fields (null) are left as they are, like the regular loader that only reads what is there.
+     */
+    private record ModuleState(Module module, JsonObject keybind, Boolean toggleOnRelease, Boolean toggleMessage,
+                               Boolean toggleToast, Boolean favorite, boolean active, List<GroupState> groups,
+                               List<SettingState> settings) {
+        int apply() {
+            int changed = 0;
+            if (keybind != null && !keybind.equals(module.keybind.toTag())) {
+                module.keybind.fromTag(keybind);
+                changed++;
+            }
+            if (toggleOnRelease != null && module.toggleOnBindRelease != toggleOnRelease) {
+                module.toggleOnBindRelease = toggleOnRelease;
+                changed++;
+            }
+
+            for (GroupState group : groups) {
+                if (group.group.sectionExpanded != group.expanded) {
+                    group.group.sectionExpanded = group.expanded;
+                    changed++;
+                }
+            }
+            for (SettingState setting : settings) {
+                if (setting.apply()) changed++;
+            }
+
+            if (toggleMessage != null && module.isMessageEnabled() != toggleMessage) {
+                module.setToggleMessage(toggleMessage);
+                changed++;
+            }
+            if (toggleToast != null && module.isToastEnabled() != toggleToast) {
+                module.setToggleToast(toggleToast);
+                changed++;
+            }
+            if (favorite != null && module.favorite != favorite) {
+                module.favorite = favorite;
+                changed++;
+            }
+            if (active != module.isActive()) {
+                module.toggle();
+                changed++;
+            }
+
+            if (changed > 0) module.markDirty();
+            return changed;
+        }
+    }
+
+    private record GroupState(SettingGroup group, boolean expanded) {
+    }
+
+    /**
+     * @param tag saved value, null when the profile keeps the default
+     */
+    private record SettingState(Setting<?> setting, JsonObject tag) {
+        boolean apply() {
+            try {
+                if (tag == null) {
+                    if (!setting.wasChanged()) return false;
+                    setting.reset();
+                    return true;
+                }
+
+                if (tag.equals(setting.toTag())) return false;
+                setting.fromTag(tag);
+                return true;
+            } catch (RuntimeException e) {
+                Genshin.LOG.error("Failed to apply setting '{}'", setting.name, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return the parsed file, null if it does not exist or is not a config
+     */
+    public static ConfigSnapshot compile(File file) {
+        long modified = file.lastModified(), length = file.length();
+        if (modified == 0) return null;
+
+        JsonObject root;
+        try (var reader = new BufferedReader(new FileReader(file))) {
+            root = JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (IOException | RuntimeException e) {
+            Genshin.LOG.error("Failed to read config '{}'", file.getName(), e);
+            return null;
+        }
+        if (!root.has("modules") || !root.get("modules").isJsonArray()) {
+            Genshin.LOG.error("Config '{}' has no modules", file.getName());
+            return null;
+        }
+
+        var modules = new ArrayList<ModuleState>(Modules.get().getAll().size());
+        try {
+            var tags = new HashMap<Module, JsonObject>();
+            for (JsonElement element : root.getAsJsonArray("modules")) {
+                if (!element.isJsonObject()) continue;
+                var tag = element.getAsJsonObject();
+                if (!tag.has("name")) continue;
+                var module = Modules.get().get(tag.get("name").getAsString());
+                if (module != null) tags.put(module, tag);
+            }
+
+            // modules missing from the file end up disabled with default settings, same as a full load
+            for (Module module : Modules.get().getAll()) {
+                modules.add(module(module, tags.get(module)));
+            }
+        } catch (RuntimeException e) {
+            Genshin.LOG.error("Config '{}' is malformed", file.getName(), e);
+            return null;
+        }
+        return new ConfigSnapshot(file, modified, length, modules);
+    }
+
+    private static ModuleState module(Module module, JsonObject tag) {
+        // identity, settings compare by name only
+        var values = new IdentityHashMap<Setting<?>, JsonObject>();
+        var groups = new ArrayList<GroupState>();
+
+        if (tag != null && tag.has("settings")) {
+            var settingsTag = tag.getAsJsonObject("settings");
+            if (settingsTag.has("groups")) {
+                for (JsonElement g : settingsTag.getAsJsonArray("groups")) {
+                    var groupTag = g.getAsJsonObject();
+                    var group = module.settings.getGroup(groupTag.get("name").getAsString());
+                    if (group == null) continue;
+
+                    if (groupTag.has("sectionExpanded")) {
+                        groups.add(new GroupState(group, groupTag.get("sectionExpanded").getAsBoolean()));
+                    }
+                    for (JsonElement s : groupTag.getAsJsonArray("settings")) {
+                        var settingTag = s.getAsJsonObject();
+                        var setting = group.get(settingTag.get("name").getAsString());
+                        if (setting != null) values.put(setting, settingTag);
+                    }
+                }
+            }
+        }
+
+        var settings = new ArrayList<SettingState>();
+        for (SettingGroup group : module.settings) {
+            for (Setting<?> setting : group) {
+                settings.add(new SettingState(setting, values.get(setting)));
+            }
+        }
+
+        if (tag == null) {
+            return new ModuleState(module, null, null, null, null, null, false, groups, settings);
+        }
+
+        JsonObject keybind = null;
+        if (tag.has("key")) keybind = Keybind.fromKey(tag.get("key").getAsInt()).toTag();
+        else if (tag.has("keybind")) keybind = tag.getAsJsonObject("keybind");
+
+        return new ModuleState(module, keybind, bool(tag, "toggleOnKeyRelease"), bool(tag, "toggleMessage"),
+            bool(tag, "toggleToast"), bool(tag, "favorite"), tag.has("active") && tag.get("active").getAsBoolean(),
+            groups, settings);
+    }
+
+    private static Boolean bool(JsonObject tag, String key) {
+        return tag.has(key) ? tag.get(key).getAsBoolean() : null;
+    }
+
+    public boolean isCurrent() {
+        return file.lastModified() == modified && file.length() == length;
+    }
+
+    /**
+     * @return number of values that differed and were changed
+     */
+    public int apply() {
+        int changed = 0;
+        for (ModuleState module : modules) {
+            changed += module.apply();
+        }
+        return changed;
+    }
+}
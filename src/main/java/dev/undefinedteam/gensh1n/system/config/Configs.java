@@ -12,8 +12,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class Configs extends System<Configs> implements Iterable<Config> {
     public static final File FOLDER = new File(Client.FOLDER, "configs");
@@ -23,6 +25,10 @@ public class Configs extends System<Configs> implements Iterable<Config> {
     }
 
     private final List<Config> configs = new ArrayList<>();
+    /**
+     * Parsed profiles by file name, dropped when the file changes on disk
+     */
+    private final Map<String, ConfigSnapshot> snapshots = new HashMap<>();
 
     public static Configs get() {
         return Systems.get(Configs.class);
@@ -69,6 +75,24 @@ public class Configs extends System<Configs> implements Iterable<Config> {
         save();
     }
 
+    /**
+     * @return the parsed profile, re-read only if the file was modified since the last call
+     */
+    public synchronized ConfigSnapshot snapshot(Config cfg) {
+        var file = cfg.getFile();
+        var snapshot = snapshots.get(file.getName());
+        if (snapshot == null || !snapshot.isCurrent()) {
+            snapshot = ConfigSnapshot.compile(file);
+            if (snapshot == null) snapshots.remove(file.getName());
+            else snapshots.put(file.getName(), snapshot);
+        }
+        return snapshot;
+    }
+
+    public synchronized void invalidate(Config cfg) {
+        snapshots.remove(cfg.getFile().getName());
+    }
+
     public Config get(String name) {
         for (Config profile : this) {
             if (profile.name.equalsIgnoreCase(name)) {
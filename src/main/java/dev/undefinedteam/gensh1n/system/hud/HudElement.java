@@ -40,6 +40,12 @@ public class HudElement implements ISerializable<HudElement>, Snapper.Element, S
     public void tick() {
     }
 
+    /**
+     * Called once the element is taken off the HUD, release scheduled work here.
+     */
+    public void onRemoved() {
+    }
+
     public void toggle() {
         active = !active;
     }
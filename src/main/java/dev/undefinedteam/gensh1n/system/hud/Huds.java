@@ -77,6 +77,7 @@ public class Huds extends System<Huds> implements Snapper.Container {
         registerElement(MusicLyricHud.INFO);
         registerElement(TargetHud.INFO);
         registerElement(Watermark.INFO);
+        registerElement(GChatStats.INFO);
     }
 
     public boolean inEditMode, active = true, canDrag;
@@ -187,6 +188,9 @@ public class Huds extends System<Huds> implements Snapper.Container {
                 this.hudInstances.put(element, elements);
             } else elements.add(instance);
 
+            instance.settings.onDirty(this::markDirty);
+            markDirty();
+
             return instance;
         } catch (NoSuchMethodException | InstantiationException | IllegalAccessException |
                  InvocationTargetException e) {
@@ -198,8 +202,9 @@ public class Huds extends System<Huds> implements Snapper.Container {
     public ElementInfo removeElement(HudElement element) {
         var elementInfo = element.mElementInfo;
         List<HudElement> elements = this.hudInstances.getOrDefault(elementInfo, null);
-        if (elements != null) {
-            elements.remove(element);
+        if (elements != null && elements.remove(element)) {
+            element.onRemoved();
+            markDirty();
         }
 
         return elementInfo;
@@ -296,10 +301,14 @@ public class Huds extends System<Huds> implements Snapper.Container {
 
         if (moved) {
             if (button == GLFW.GLFW_MOUSE_BUTTON_LEFT && !dragging) fillSelection(mouseX, mouseY);
+            if (dragging) markDirty();
         } else {
             if (button == GLFW.GLFW_MOUSE_BUTTON_LEFT) {
                 HudElement hovered = getHovered(mouseX, mouseY);
-                if (hovered != null) hovered.toggle();
+                if (hovered != null) {
+                    hovered.toggle();
+                    markDirty();
+                }
             } else if (button == GLFW.GLFW_MOUSE_BUTTON_RIGHT) {
                 HudElement hovered = getHovered(mouseX, mouseY);
 
@@ -318,7 +327,10 @@ public class Huds extends System<Huds> implements Snapper.Container {
         if (!pressed) {
             if (keyCode == GLFW.GLFW_KEY_ENTER || keyCode == GLFW.GLFW_KEY_KP_ENTER) {
                 HudElement hovered = getHovered(lastMouseX, lastMouseY);
-                if (hovered != null) hovered.toggle();
+                if (hovered != null) {
+                    hovered.toggle();
+                    markDirty();
+                }
             } else if (keyCode == GLFW.GLFW_KEY_DELETE) {
                 HudElement hovered = getHovered(lastMouseX, lastMouseY);
 
@@ -10,10 +10,12 @@ import dev.undefinedteam.gensh1n.system.hud.ElementInfo;
 import dev.undefinedteam.gensh1n.system.hud.HudElement;
 import dev.undefinedteam.gensh1n.system.modules.Module;
 import dev.undefinedteam.gensh1n.system.modules.Modules;
+import dev.undefinedteam.gensh1n.system.modules.TickScheduler;
 import dev.undefinedteam.gensh1n.utils.render.ColorUtils;
 import dev.undefinedteam.gensh1n.utils.render.Palette;
 import dev.undefinedteam.gensh1n.utils.render.color.Color;
 import dev.undefinedteam.gensh1n.utils.render.color.SettingColor;
+import it.unimi.dsi.fastutil.objects.Reference2DoubleOpenHashMap;
 import net.minecraft.client.gui.DrawContext;
 
 import java.util.ArrayList;
@@ -41,6 +43,15 @@ public class ActiveMods extends HudElement {
     private final Setting<SettingColor> additionalInfoColor = color(sgGeneral, "additional-info-color", new SettingColor(169, 169, 169, 255));
 
     private final List<Module> modules = new ArrayList<>();
+    private final Reference2DoubleOpenHashMap<Module> widths = new Reference2DoubleOpenHashMap<>();
+    /**
+     * Text widths of the info strings drift, so the list is re-laid out periodically and right away when the active set changes
+     */
+    private final TickScheduler.Job layout = TickScheduler.INSTANCE.schedule("ActiveMods", TickScheduler.Rate.every(10),
+        TickScheduler.DEFAULT_BUDGET, () -> active, job -> {
+            layout();
+            return true;
+        });
 
     public enum RenderMode {
         Rainbow,
@@ -52,6 +63,16 @@ public class ActiveMods extends HudElement {
 
     @Override
     public void tick() {
+        var current = Modules.get().getActive();
+        if (current.size() != modules.size() || !modules.containsAll(current)) layout.markDirty();
+    }
+
+    @Override
+    public void onRemoved() {
+        layout.cancel();
+    }
+
+    private void layout() {
         var font = NText.regular16;
 
         modules.clear();
@@ -65,10 +86,16 @@ public class ActiveMods extends HudElement {
             return;
         }
 
+        // measure once, the comparator used to measure every module on every comparison
+        widths.clear();
+        for (Module module : modules) {
+            widths.put(module, getModuleWidth(font, module));
+        }
+
         modules.sort((e1, e2) -> switch (sort.get()) {
             case Alphabetical -> e1.title.compareTo(e2.title);
-            case Biggest -> Double.compare(getModuleWidth(font, e2), getModuleWidth(font, e1));
-            case Smallest -> Double.compare(getModuleWidth(font, e1), getModuleWidth(font, e2));
+            case Biggest -> Double.compare(widths.getDouble(e2), widths.getDouble(e1));
+            case Smallest -> Double.compare(widths.getDouble(e1), widths.getDouble(e2));
         });
 
         double width = 0;
@@ -77,7 +104,7 @@ public class ActiveMods extends HudElement {
         for (int i = 0; i < modules.size(); i++) {
             Module module = modules.get(i);
 
-            width = Math.max(width, getModuleWidth(font, module));
+            width = Math.max(width, widths.getDouble(module));
             height += font.getHeight(module.title, true);
             if (i > 0) height += 2;
         }
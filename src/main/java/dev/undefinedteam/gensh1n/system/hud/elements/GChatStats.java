@@ -0,0 +1,104 @@
+package dev.undefinedteam.gensh1n.system.hud.elements;
+
+import dev.undefinedteam.gclient.GCClient;
+import dev.undefinedteam.gclient.GCUser;
+import dev.undefinedteam.gclient.PacketMetrics;
+import dev.undefinedteam.gensh1n.render.Renderer;
+import dev.undefinedteam.gensh1n.render._new.NText;
+import dev.undefinedteam.gensh1n.settings.Setting;
+import dev.undefinedteam.gensh1n.settings.SettingGroup;
+import dev.undefinedteam.gensh1n.system.hud.ElementInfo;
+import dev.undefinedteam.gensh1n.system.hud.HudElement;
+import dev.undefinedteam.gensh1n.utils.render.color.Color;
+import dev.undefinedteam.gensh1n.utils.task.PriorityExecutor;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GChatStats extends HudElement {
+    public static final ElementInfo INFO = new ElementInfo("GChatStats", "GChat link traffic and queues", GChatStats.class);
+
+    public GChatStats() {
+        super(INFO);
+    }
+
+    private final SettingGroup sgGeneral = settings.getDefaultGroup();
+    private final Setting<Integer> interval = intN(sgGeneral, "interval", "Ticks between samples.", 20, 5, 100);
+    private final Setting<Boolean> background = bool(sgGeneral, "background", true);
+
+    private final List<String> lines = new ArrayList<>();
+    private int ticks;
+    private long lastSample, lastInCount, lastInBytes, lastOutCount, lastOutBytes;
+
+    @Override
+    public void tick() {
+        if (++ticks < interval.get() && !lines.isEmpty()) return;
+        ticks = 0;
+
+        long inCount = 0, inBytes = 0, outCount = 0, outBytes = 0;
+        PacketMetrics.Snapshot slowest = null;
+        for (var s : PacketMetrics.GLOBAL.snapshot()) {
+            inCount += s.inCount();
+            inBytes += s.inWire();
+            outCount += s.outCount();
+            outBytes += s.outWire();
+            if (slowest == null || s.maxHandlerNanos() > slowest.maxHandlerNanos()) slowest = s;
+        }
+
+        long now = System.nanoTime();
+        double seconds = lastSample == 0 ? 0 : (now - lastSample) / 1e9;
+        lines.clear();
+
+        var session = GCClient.get().session();
+        lines.add(String.format("GChat %s %dms", GCClient.get().connection.state(), session == null ? 0 : session.getPing()));
+        if (seconds > 0) {
+            lines.add(String.format("in %.0f/s %.1fKB/s", (inCount - lastInCount) / seconds, (inBytes - lastInBytes) / seconds / 1024));
+            lines.add(String.format("out %.0f/s %.1fKB/s", (outCount - lastOutCount) / seconds, (outBytes - lastOutBytes) / seconds / 1024));
+        }
+
+        var handlers = GCUser.handlers();
+        lines.add(String.format("queue worker %d client %d pool %d", handlers.pendingWorker(), handlers.pendingClient(), PriorityExecutor.SHARED.queueDepth()));
+        if (slowest != null && slowest.maxHandlerNanos() > 0) {
+            lines.add(String.format("slowest %s %.2fms", slowest.name(), slowest.maxHandlerNanos() / 1e6));
+        }
+
+        lastSample = now;
+        lastInCount = inCount;
+        lastInBytes = inBytes;
+        lastOutCount = outCount;
+        lastOutBytes = outBytes;
+    }
+
+    @Override
+    public void render(DrawContext context, float delta) {
+        var font = NText.regular20;
+        var x = getElementX();
+        var y = getElementY();
+
+        float width = 0, height = 0;
+        for (String line : lines) {
+            width = Math.max(width, font.getWidth(line));
+            height += font.getHeight(line) + 2;
+        }
+        width += 10;
+        height += 8;
+
+        if (background.get()) {
+            var renderer = Renderer.MAIN;
+            var paint = renderer._paint();
+            paint.setRGBA(0, 0, 0, 80);
+            paint.setSmoothWidth(5);
+            renderer._renderer().drawRoundRect((float) x, (float) y, (float) (x + width), (float) (y + height), 7, paint);
+        }
+
+        float lineY = (float) y + 5;
+        for (String line : lines) {
+            font.draw(line, x + 5, lineY, Color.WHITE.getPacked());
+            lineY += font.getHeight(line) + 2;
+        }
+
+        setElementSize(MathHelper.floor(width), MathHelper.floor(height));
+    }
+}
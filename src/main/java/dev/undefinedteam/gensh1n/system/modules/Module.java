@@ -43,6 +43,7 @@ public class Module extends ChatAdapter implements ISerializable<Module>, Compar
     public final Settings settings = new Settings();
 
     private boolean active;
+    private volatile int changes;
     private boolean toggleMessage = true;
     private boolean toggleToast = false;
     public boolean serialize = true;
@@ -79,6 +80,13 @@ public class Module extends ChatAdapter implements ISerializable<Module>, Compar
     public void onSubscribe() {
     }
 
+    /**
+     * Runs the task at the given rate while this module is active, see {@link TickScheduler}.
+     */
+    protected TickScheduler.Job schedule(TickScheduler.Rate rate, long budgetNanos, TickScheduler.Task task) {
+        return TickScheduler.INSTANCE.schedule(name, rate, budgetNanos, this::isActive, task);
+    }
+
     public void onUnSubscribe() {
     }
 
@@ -217,6 +225,7 @@ public class Module extends ChatAdapter implements ISerializable<Module>, Compar
 
     public void setToggleMessage(boolean toggleMessage) {
         this.toggleMessage = toggleMessage;
+        markDirty();
     }
 
     public boolean isMessageEnabled() {
@@ -225,6 +234,7 @@ public class Module extends ChatAdapter implements ISerializable<Module>, Compar
 
     public void setToggleToast(boolean toggleToast) {
         this.toggleToast = toggleToast;
+        markDirty();
     }
 
     public boolean isToastEnabled() {
@@ -235,6 +245,19 @@ public class Module extends ChatAdapter implements ISerializable<Module>, Compar
         return active;
     }
 
+    /**
+     * Invalidates the cached tag of this module and schedules a save of {@link Modules}.
+     */
+    public void markDirty() {
+        changes++;
+        var modules = Modules.get();
+        if (modules != null) modules.markDirty();
+    }
+
+    int changes() {
+        return changes;
+    }
+
     public String getInfoString() {
         return null;
     }
@@ -0,0 +1,276 @@
+package dev.undefinedteam.gensh1n.system.modules;
+
+import dev.undefinedteam.gensh1n.settings.Setting;
+import dev.undefinedteam.gensh1n.settings.SettingGroup;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Trigram index over module names, titles, descriptions and setting titles. Built lazily after modules are
+ * registered, queried on the GUI thread. While the user keeps typing, a query refines the previous one: a longer
+ * query has every trigram of its prefix, so only the posting lists of the new trigrams are added to the counts kept
+ * from the previous keystroke. Queries too short for trigrams only match substrings and rescore what the previous
+ * one matched.
+ */
+public class ModuleSearchIndex {
+    public static final int DEFAULT_LIMIT = 32;
+
+    public enum Scope {
+        MODULES,
+        SETTINGS
+    }
+
+    private enum Field {
+        NAME(Scope.MODULES, 1.0),
+        TITLE(Scope.MODULES, 1.0),
+        DESCRIPTION(Scope.MODULES, 0.4),
+        SETTING(Scope.SETTINGS, 1.0);
+
+        final Scope scope;
+        final double weight;
+
+        Field(Scope scope, double weight) {
+            this.scope = scope;
+            this.weight = weight;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    private static final int PREFIX = 1000, WORD = 800, SUBSTRING = 600, FUZZY = 400;
+    /**
+     * Share of the query trigrams a text needs to count as a fuzzy match
+     */
+    private static final double MIN_OVERLAP = 0.5;
+
+    private final Collection<Module> source;
+    private boolean stale = true;
+
+    private Module[] docs = new Module[0];
+    /**
+     * Normalized texts per document and field
+     */
+    private String[][][] texts = new String[0][][];
+    /**
+     * Distinct padded trigrams of each text in {@link #texts}
+     */
+    private long[][][][] grams = new long[0][][][];
+    private final List<Long2ObjectOpenHashMap<int[]>> postings = new ArrayList<>();
+    private final Refinement[] last = new Refinement[Scope.values().length];
+
+    /**
+     * State of the previous query, the base for the next keystroke: with trigrams how many of them every document
+     * has, without the full (untruncated) match set.
+     */
+    private record Refinement(String query, LongOpenHashSet grams, int[] counts, int[] docs) {
+    }
+
+    private record Hit(int doc, double score) {
+    }
+
+    public ModuleSearchIndex(Collection<Module> source) {
+        this.source = source;
+    }
+
+    /**
+     * Marks the index for a rebuild before the next query.
+     */
+    public synchronized void invalidate() {
+        stale = true;
+    }
+
+    public synchronized Set<Module> search(Scope scope, String text, int limit) {
+        if (stale) rebuild();
+
+        var query = normalize(text);
+        var result = new LinkedHashSet<Module>();
+        if (query.isEmpty() || limit <= 0) return result;
+
+        // unpadded, so a query from the middle of a word still shares all its grams with the text
+        var grams = trigrams(query, false);
+        var previous = last[scope.ordinal()];
+        boolean refine = previous != null && query.startsWith(previous.query);
+        int[] candidates, counts = null;
+        if (grams.isEmpty()) {
+            // substring matches only, a longer query matches a subset of what its prefix matched
+            candidates = refine ? previous.docs : all();
+        } else if (refine && previous.counts != null) {
+            // the overlap is not monotone, a longer query can fuzzily match what its prefix did not, so the
+            // counts are carried over instead of the matches; they are updated in place, the previous state is done
+            counts = previous.counts;
+            candidates = candidates(scope, grams, previous.grams, counts);
+        } else {
+            counts = new int[docs.length];
+            candidates = candidates(scope, grams, null, counts);
+        }
+
+        var matched = new IntArrayList(candidates.length);
+        var top = new PriorityQueue<Hit>(limit + 1, (a, b) -> Double.compare(a.score, b.score));
+        for (int doc : candidates) {
+            double score = score(scope, doc, query, grams);
+            if (score <= 0) continue;
+
+            matched.add(doc);
+            top.add(new Hit(doc, score));
+            if (top.size() > limit) top.poll();
+        }
+        last[scope.ordinal()] = new Refinement(query, grams, counts, grams.isEmpty() ? matched.toIntArray() : null);
+
+        var hits = top.toArray(new Hit[0]);
+        Arrays.sort(hits, (a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : docs[a.doc].title.compareTo(docs[b.doc].title));
+        for (Hit hit : hits) {
+            result.add(docs[hit.doc]);
+        }
+        return result;
+    }
+
+    private void rebuild() {
+        docs = source.toArray(new Module[0]);
+        texts = new String[docs.length][][];
+        grams = new long[docs.length][][][];
+        postings.clear();
+        var building = new ArrayList<Long2ObjectOpenHashMap<IntArrayList>>();
+        for (int i = 0; i < Scope.values().length; i++) {
+            building.add(new Long2ObjectOpenHashMap<>());
+        }
+
+        for (int doc = 0; doc < docs.length; doc++) {
+            var module = docs[doc];
+            var fields = new String[FIELDS.length][];
+            fields[Field.NAME.ordinal()] = new String[]{normalize(module.name)};
+            fields[Field.TITLE.ordinal()] = new String[]{normalize(module.title)};
+            fields[Field.DESCRIPTION.ordinal()] = new String[]{normalize(module.description)};
+
+            var settings = new ArrayList<String>();
+            for (SettingGroup group : module.settings) {
+                for (Setting<?> setting : group) {
+                    settings.add(normalize(setting.title));
+                }
+            }
+            fields[Field.SETTING.ordinal()] = settings.toArray(new String[0]);
+            texts[doc] = fields;
+            grams[doc] = new long[FIELDS.length][][];
+
+            for (Field field : FIELDS) {
+                var scopePostings = building.get(field.scope.ordinal());
+                var values = fields[field.ordinal()];
+                var valueGrams = grams[doc][field.ordinal()] = new long[values.length][];
+                for (int i = 0; i < values.length; i++) {
+                    valueGrams[i] = trigrams(values[i], true).toLongArray();
+                    for (long gram : valueGrams[i]) {
+                        var list = scopePostings.computeIfAbsent(gram, k -> new IntArrayList(4));
+                        // documents are added in order, so a duplicate can only be the last entry
+                        if (list.isEmpty() || list.getInt(list.size() - 1) != doc) list.add(doc);
+                    }
+                }
+            }
+        }
+
+        for (var scopePostings : building) {
+            var frozen = new Long2ObjectOpenHashMap<int[]>(scopePostings.size());
+            scopePostings.long2ObjectEntrySet().fastForEach(e -> frozen.put(e.getLongKey(), e.getValue().toIntArray()));
+            postings.add(frozen);
+        }
+        Arrays.fill(last, null);
+        stale = false;
+    }
+
+    private int[] all() {
+        var ids = new int[docs.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = i;
+        return ids;
+    }
+
+    /**
+     * Documents sharing enough trigrams with the query.
+     *
+     * @param known  grams already counted in counts, null if none
+     * @param counts query grams per document, updated with the grams not known yet
+     */
+    private int[] candidates(Scope scope, LongOpenHashSet grams, LongOpenHashSet known, int[] counts) {
+        var scopePostings = postings.get(scope.ordinal());
+        for (long gram : grams) {
+            if (known != null && known.contains(gram)) continue;
+            var list = scopePostings.get(gram);
+            if (list == null) continue;
+            for (int doc : list) counts[doc]++;
+        }
+
+        int need = Math.max(1, (int) Math.ceil(grams.size() * MIN_OVERLAP));
+        var out = new IntArrayList();
+        for (int doc = 0; doc < counts.length; doc++) {
+            if (counts[doc] >= need) out.add(doc);
+        }
+        return out.toIntArray();
+    }
+
+    private double score(Scope scope, int doc, String query, LongOpenHashSet grams) {
+        double best = 0;
+        for (Field field : FIELDS) {
+            if (field.scope != scope) continue;
+            var values = texts[doc][field.ordinal()];
+            var valueGrams = this.grams[doc][field.ordinal()];
+            for (int i = 0; i < values.length; i++) {
+                double score = score(values[i], valueGrams[i], query, grams) * field.weight;
+                if (score > best) best = score;
+            }
+        }
+        return best;
+    }
+
+    private static double score(String value, long[] valueGrams, String query, LongOpenHashSet grams) {
+        int index = value.indexOf(query);
+        if (index == 0) return PREFIX - value.length();
+        if (index > 0) return value.charAt(index - 1) == ' ' ? WORD - index : SUBSTRING - index;
+        if (grams.isEmpty()) return 0;
+
+        int shared = 0;
+        for (long gram : valueGrams) {
+            if (grams.contains(gram)) shared++;
+        }
+        double overlap = (double) shared / grams.size();
+        return overlap >= MIN_OVERLAP ? FUZZY * overlap : 0;
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        var sb = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == '-' || c == '_' || Character.isWhitespace(c)) {
+                if (!space) sb.append(' ');
+                space = true;
+            } else {
+                sb.append(c);
+                space = false;
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') sb.setLength(end - 1);
+        return sb.toString();
+    }
+
+    /**
+     * @param pad surround the text with spaces, so word starts and ends get their own grams
+     * @return distinct trigrams, empty when fewer than three characters remain
+     */
+    static LongOpenHashSet trigrams(String text, boolean pad) {
+        var grams = new LongOpenHashSet();
+        var padded = pad ? " " + text + " " : text;
+        if (padded.length() < 3) return grams;
+
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+        return grams;
+    }
+}
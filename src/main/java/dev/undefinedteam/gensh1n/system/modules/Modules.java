@@ -1,6 +1,5 @@
 package dev.undefinedteam.gensh1n.system.modules;
 
-import com.google.common.collect.Ordering;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -26,7 +25,6 @@ import dev.undefinedteam.gensh1n.utils.Utils;
 import dev.undefinedteam.gensh1n.utils.input.Input;
 import dev.undefinedteam.gensh1n.utils.input.KeyAction;
 import dev.undefinedteam.gensh1n.utils.input.Keybind;
-import dev.undefinedteam.gensh1n.utils.misc.ValueComparableMap;
 import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
 import meteordevelopment.orbit.EventHandler;
 import meteordevelopment.orbit.EventPriority;
@@ -63,6 +61,14 @@ public class Modules extends System<Modules> {
     public final List<Module> modules = new ArrayList<>();
     private final Map<Class<? extends Module>, Module> moduleInstances = new Reference2ReferenceOpenHashMap<>();
     private final Map<Category, List<Module>> groups = new Reference2ReferenceOpenHashMap<>();
+    private final ModuleSearchIndex searchIndex = new ModuleSearchIndex(moduleInstances.values());
+    /**
+     * Last serialized tag per module, reused by {@link #toTag()} while the module is unchanged
+     */
+    private final Map<Module, ModuleTag> tags = new Reference2ReferenceOpenHashMap<>();
+
+    private record ModuleTag(int changes, JsonObject tag) {
+    }
 
     private final List<Module> active = new ArrayList<>();
     private Module moduleToBind;
@@ -254,38 +260,33 @@ public class Modules extends System<Modules> {
         }
     }
 
+    /**
+     * Best matching modules by name, title and description, best first.
+     */
     public Set<Module> searchTitles(String text) {
-        Map<Module, Integer> modules = new ValueComparableMap<>(Ordering.natural());
-
-        for (Module module : this.moduleInstances.values()) {
-            int score = Utils.searchLevenshteinDefault(module.title, text, false);
-            modules.put(module, modules.getOrDefault(module, 0) + score);
-        }
+        return searchTitles(text, ModuleSearchIndex.DEFAULT_LIMIT);
+    }
 
-        return modules.keySet();
+    public Set<Module> searchTitles(String text, int limit) {
+        return searchIndex.search(ModuleSearchIndex.Scope.MODULES, text, limit);
     }
 
+    /**
+     * Modules with the best matching setting titles, best first.
+     */
     public Set<Module> searchSettingTitles(String text) {
-        Map<Module, Integer> modules = new ValueComparableMap<>(Ordering.natural());
-
-        for (Module module : this.moduleInstances.values()) {
-            int lowest = Integer.MAX_VALUE;
-            for (SettingGroup sg : module.settings) {
-                for (Setting<?> setting : sg) {
-                    int score = Utils.searchLevenshteinDefault(setting.title, text, false);
-                    if (score < lowest) lowest = score;
-                }
-            }
-            modules.put(module, modules.getOrDefault(module, 0) + lowest);
-        }
+        return searchSettingTitles(text, ModuleSearchIndex.DEFAULT_LIMIT);
+    }
 
-        return modules.keySet();
+    public Set<Module> searchSettingTitles(String text, int limit) {
+        return searchIndex.search(ModuleSearchIndex.Scope.SETTINGS, text, limit);
     }
 
     void addActive(Module module) {
         synchronized (active) {
             if (!active.contains(module)) {
                 active.add(module);
+                module.markDirty();
                 Client.EVENT_BUS.post(ActiveModulesChangedEvent.INSTANCE);
             }
         }
@@ -294,6 +295,7 @@ public class Modules extends System<Modules> {
     void removeActive(Module module) {
         synchronized (active) {
             if (active.remove(module)) {
+                module.markDirty();
                 Client.EVENT_BUS.post(ActiveModulesChangedEvent.INSTANCE);
             }
         }
@@ -330,6 +332,7 @@ public class Modules extends System<Modules> {
             moduleToBind.info("Removed bind.");
         } else return false;
 
+        moduleToBind.markDirty();
         Client.EVENT_BUS.post(new ModuleBindChangedEvent(moduleToBind));
         moduleToBind = null;
 
@@ -439,15 +442,30 @@ public class Modules extends System<Modules> {
         JsonObject tag = new JsonObject();
 
         JsonArray modulesTag = new JsonArray();
-        for (Module module : getAll()) {
-            JsonObject moduleTag = module.toTag();
-            if (moduleTag != null) modulesTag.add(moduleTag);
+        synchronized (tags) {
+            for (Module module : getAll()) {
+                // only modules changed since their last serialization are written again
+                int changes = module.changes();
+                var cached = tags.get(module);
+                if (cached == null || cached.changes != changes) {
+                    cached = new ModuleTag(changes, module.toTag());
+                    tags.put(module, cached);
+                }
+                if (cached.tag != null) modulesTag.add(cached.tag);
+            }
         }
         tag.add("modules", modulesTag);
 
         return tag;
     }
 
+    @Override
+    public void clearCache() {
+        synchronized (tags) {
+            tags.clear();
+        }
+    }
+
     @Override
     public Modules fromTag(JsonObject tag) {
         disableAll();
@@ -476,6 +494,9 @@ public class Modules extends System<Modules> {
             if (module1.name.equals(module.name)) {
                 removedModule.set(module1);
                 module1.settings.unregisterColorSettings();
+                synchronized (tags) {
+                    tags.remove(module1);
+                }
 
                 return true;
             }
@@ -492,6 +513,8 @@ public class Modules extends System<Modules> {
 
         // Register color settings for the module
         module.settings.registerColorSettings(module);
+        module.settings.onDirty(module::markDirty);
+        searchIndex.invalidate();
     }
 
 
@@ -0,0 +1,211 @@
+package dev.undefinedteam.gensh1n.system.modules;
+
+import dev.undefinedteam.gensh1n.Client;
+import dev.undefinedteam.gensh1n.Genshin;
+import dev.undefinedteam.gensh1n.events.client.TickEvent;
+import meteordevelopment.orbit.EventHandler;
+import meteordevelopment.orbit.EventPriority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs periodic client work at a declared {@link Rate} instead of on every tick, on the client thread
+ * after {@link TickEvent.Post}. Each job has a time budget: a {@link Task} checks {@link Job#exhausted()}
+ * and returns false to be resumed on the next tick, and the whole pass stops starting new jobs once
+ * {@link #TICK_BUDGET} is spent, leaving them for the next tick in round robin order.
+ */
+public class TickScheduler {
+    public static final TickScheduler INSTANCE = new TickScheduler();
+    public static final long DEFAULT_BUDGET = 250_000L;
+    /**
+     * Time all jobs together may take per tick before the rest are postponed
+     */
+    public static final long TICK_BUDGET = 2_000_000L;
+
+    private final List<Job> jobs = new CopyOnWriteArrayList<>();
+    private long ticks;
+    private int cursor;
+
+    /**
+     * @param interval ticks between runs, 1 runs every tick
+     * @param onChange only run after {@link Job#markDirty()}, interval then acts as a minimum spacing
+     */
+    public record Rate(int interval, boolean onChange) {
+        public static final Rate EVERY_TICK = new Rate(1, false);
+        public static final Rate ON_CHANGE = new Rate(1, true);
+
+        public static Rate every(int ticks) {
+            return new Rate(Math.max(1, ticks), false);
+        }
+
+        public static Rate onChange(int minTicks) {
+            return new Rate(Math.max(1, minTicks), true);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * @return true when the work is done, false to continue it on the next tick
+         */
+        boolean run(Job job);
+    }
+
+    public record Stats(String name, Rate rate, long budgetNanos, long runs, long resumed, long overruns,
+                        long postponed, long avgNanos, long maxNanos) {
+        @Override
+        public String toString() {
+            return String.format("%s every=%d%s runs=%d resumed=%d avg=%.1fus max=%.1fus budget=%.1fus over=%d postponed=%d",
+                name, rate.interval, rate.onChange ? " on-change" : "", runs, resumed,
+                avgNanos / 1000.0, maxNanos / 1000.0, budgetNanos / 1000.0, overruns, postponed);
+        }
+    }
+
+    public static class Job {
+        public final String name;
+        public final Rate rate;
+        public final long budgetNanos;
+        private final Task task;
+        private final BooleanSupplier condition;
+
+        private boolean dirty = true;
+        private boolean pending;
+        private boolean cancelled;
+        private long lastRun;
+        private long started;
+
+        private long runs, resumed, overruns, postponed, totalNanos, maxNanos;
+
+        Job(String name, Rate rate, long budgetNanos, BooleanSupplier condition, Task task) {
+            this.name = name;
+            this.rate = rate;
+            this.budgetNanos = budgetNanos;
+            this.condition = condition;
+            this.task = task;
+        }
+
+        /**
+         * Requests a run of an on-change job, also makes a periodic job run as soon as possible.
+         */
+        public void markDirty() {
+            dirty = true;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isPending() {
+            return pending;
+        }
+
+        public long remainingNanos() {
+            return budgetNanos - (System.nanoTime() - started);
+        }
+
+        public boolean exhausted() {
+            return System.nanoTime() - started >= budgetNanos;
+        }
+
+        private boolean due(long tick) {
+            if (pending) return true;
+            boolean elapsed = tick - lastRun >= rate.interval;
+            boolean ready = rate.onChange ? dirty && elapsed : dirty || elapsed;
+            return ready && (condition == null || condition.getAsBoolean());
+        }
+
+        private void run(long tick) {
+            if (!pending) {
+                // a change arriving while this run is going on gets its own run
+                dirty = false;
+                lastRun = tick;
+            } else {
+                resumed++;
+            }
+
+            started = System.nanoTime();
+            boolean done;
+            try {
+                done = task.run(this);
+            } catch (Throwable t) {
+                Genshin.LOG.error("Scheduled job '{}' failed", name, t);
+                done = true;
+            }
+
+            long nanos = System.nanoTime() - started;
+            pending = !done;
+            runs++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) maxNanos = nanos;
+            if (nanos > budgetNanos) overruns++;
+        }
+
+        public Stats stats() {
+            return new Stats(name, rate, budgetNanos, runs, resumed, overruns, postponed,
+                runs == 0 ? 0 : totalNanos / runs, maxNanos);
+        }
+
+        void reset() {
+            runs = resumed = overruns = postponed = totalNanos = maxNanos = 0;
+        }
+    }
+
+    public static void init() {
+        Client.EVENT_BUS.subscribe(INSTANCE);
+    }
+
+    public Job schedule(String name, Rate rate, Task task) {
+        return schedule(name, rate, DEFAULT_BUDGET, null, task);
+    }
+
+    /**
+     * @param condition checked before a fresh run, e.g. {@code module::isActive}, null to always run
+     */
+    public Job schedule(String name, Rate rate, long budgetNanos, BooleanSupplier condition, Task task) {
+        var job = new Job(name, rate, budgetNanos, condition, task);
+        // spread jobs with the same interval over different ticks
+        job.lastRun = ticks - Math.floorMod(name.hashCode(), rate.interval);
+        jobs.add(job);
+        return job;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    private void onTick(TickEvent.Post event) {
+        long tick = ++ticks;
+        int size = jobs.size();
+        if (size == 0) return;
+
+        long start = System.nanoTime();
+        boolean ranAny = false;
+        int first = cursor % size;
+        for (int i = 0; i < size; i++) {
+            var job = jobs.get((first + i) % size);
+            if (job.cancelled || !job.due(tick)) continue;
+
+            if (ranAny && System.nanoTime() - start >= TICK_BUDGET) {
+                job.postponed++;
+                continue;
+            }
+            job.run(tick);
+            ranAny = true;
+        }
+        cursor = first + 1;
+
+        jobs.removeIf(job -> job.cancelled);
+    }
+
+    public List<Stats> stats() {
+        var list = new ArrayList<Stats>(jobs.size());
+        for (Job job : jobs) {
+            list.add(job.stats());
+        }
+        return list;
+    }
+
+    public void resetStats() {
+        jobs.forEach(Job::reset);
+    }
+}
@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.combat;
 
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.render.Render3DEvent;
 import dev.undefinedteam.gensh1n.render.ShapeMode;
 import dev.undefinedteam.gensh1n.render.world.Renderer3D;
@@ -206,7 +207,7 @@ public class KillAura extends Module {
     }
 
 
-    @EventHandler
+    @PacketHandler(value = PlayerInteractItemC2SPacket.class, origin = PacketEvent.TransferOrigin.SEND)
     public void onPacket(PacketEvent event) {
         if (autoBlock.get() && mc.player.isUsingItem()) {
             Object packet = event.packet;
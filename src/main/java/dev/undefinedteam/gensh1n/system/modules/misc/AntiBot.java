@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.misc;
 
 import dev.undefinedteam.gensh1n.events.game.GameJoinedEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.settings.SettingGroup;
 import dev.undefinedteam.gensh1n.system.modules.Categories;
@@ -43,7 +44,7 @@ public class AntiBot extends Module {
         matrixBot.clear();
     }
 
-    @EventHandler
+    @PacketHandler(PlayerListS2CPacket.class)
     public void onPacket(PacketEvent event) {
         if (event.packet instanceof PlayerListS2CPacket packet) {
             for (PlayerListS2CPacket.Entry entry : packet.getEntries()) {
@@ -1,12 +1,12 @@
 package dev.undefinedteam.gensh1n.system.modules.misc;
 
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.settings.SettingGroup;
 import dev.undefinedteam.gensh1n.system.modules.Categories;
 import dev.undefinedteam.gensh1n.system.modules.Module;
 import dev.undefinedteam.gensh1n.utils.chat.ChatUtils;
-import meteordevelopment.orbit.EventHandler;
 import net.minecraft.network.packet.s2c.play.PlayerListS2CPacket;
 import tech.skidonion.obfuscator.annotations.ControlFlowObfuscation;
 import tech.skidonion.obfuscator.annotations.NativeObfuscation;
@@ -66,7 +66,7 @@ public class AntiStaff extends Module {
         super(Categories.Misc, "anti-staff", "Anti Staff");
     }
 
-    @EventHandler
+    @PacketHandler(PlayerListS2CPacket.class)
     public void onPacket(PacketEvent event) {
         if (event.packet instanceof PlayerListS2CPacket packet) {
             for (PlayerListS2CPacket.Entry entry : packet.getEntries()) {
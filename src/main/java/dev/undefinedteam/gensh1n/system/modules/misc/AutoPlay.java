@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.misc;
 
 import dev.undefinedteam.gensh1n.Genshin;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.settings.SettingGroup;
 import dev.undefinedteam.gensh1n.system.modules.Categories;
@@ -63,7 +64,7 @@ public class AutoPlay extends Module {
     }
 
 
-    @EventHandler
+    @PacketHandler(value = TitleS2CPacket.class, origin = PacketEvent.TransferOrigin.RECEIVE)
     @SuppressWarnings("unused")
     public void onChatPacketReceive(PacketEvent event) {
         if (mc.world == null) return;
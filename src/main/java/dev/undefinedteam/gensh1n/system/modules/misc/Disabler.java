@@ -1,6 +1,7 @@
 package dev.undefinedteam.gensh1n.system.modules.misc;
 
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.world.WorldChangeEvent;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.settings.SettingGroup;
@@ -39,7 +40,7 @@ public class Disabler extends Module {
         lastLoadWorldTime = System.currentTimeMillis();
     }
 
-    @EventHandler
+    @PacketHandler(PlayerMoveC2SPacket.class)
     public void onPacket(PacketEvent event){
         if (duplicate.get() && event.packet instanceof PlayerMoveC2SPacket pk) {
             if(Modules.get().get(Scaffold.class).isActive()){
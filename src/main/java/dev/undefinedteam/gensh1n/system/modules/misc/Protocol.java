@@ -4,6 +4,7 @@ import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.game.GameJoinedEvent;
 import dev.undefinedteam.gensh1n.events.game.ReceiveMessageEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.world.EntityJoinWorldEvent;
 import dev.undefinedteam.gensh1n.events.world.WorldChangeEvent;
 import dev.undefinedteam.gensh1n.protocol.IProtocol;
@@ -68,7 +69,7 @@ public class Protocol extends Module {
         mode.get().protocol.onWorldChanged(e);
     }
 
-    @EventHandler
+    @PacketHandler
 
     private void onPacket(PacketEvent e) {
         var cancel = mode.get().protocol.onPacket(e.packet);
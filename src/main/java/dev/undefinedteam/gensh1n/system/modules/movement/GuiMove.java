@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.movement;
 
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.player.ClickSlotEvent;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.settings.SettingGroup;
@@ -93,7 +94,7 @@ public class GuiMove extends Module {
             e.cancel();
     }
 
-    @EventHandler
+    @PacketHandler(value = {ClickSlotC2SPacket.class, CloseHandledScreenC2SPacket.class}, origin = PacketEvent.TransferOrigin.SEND)
     public void onPacketSend(PacketEvent e) {
         if (e.origin == PacketEvent.TransferOrigin.SEND) {
             if (!PlayerUtils.isMoving() || !mc.options.jumpKey.isPressed() || pause.get()) return;
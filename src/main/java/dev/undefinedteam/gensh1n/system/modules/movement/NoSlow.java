@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.movement;
 
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.player.OffhandChangedEvent;
 import dev.undefinedteam.gensh1n.events.player.SlowdownEvent;
 import dev.undefinedteam.gensh1n.settings.Setting;
@@ -83,7 +84,7 @@ public class NoSlow extends Module {
         Packet packet;
     }
 
-    @EventHandler
+    @PacketHandler(origin = PacketEvent.TransferOrigin.SEND)
     public void onPacket(PacketEvent event) {
         if (mode.get().equals(Mode.HeypixelTest)) {
             if (event.origin == PacketEvent.TransferOrigin.RECEIVE) return;
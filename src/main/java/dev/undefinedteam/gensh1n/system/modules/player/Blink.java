@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.player;
 
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.fakeplayer.FakePlayerEntity;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.settings.SettingGroup;
@@ -63,7 +64,7 @@ public class Blink extends Module {
 
     }
 
-    @EventHandler
+    @PacketHandler(origin = PacketEvent.TransferOrigin.SEND)
     public void onPacket(PacketEvent event) {
         if (event.origin == PacketEvent.TransferOrigin.RECEIVE) return;
         if (event.packet instanceof ChatMessageC2SPacket) return;
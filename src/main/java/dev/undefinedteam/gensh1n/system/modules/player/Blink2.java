@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.player;
 
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.render.Render2DEvent;
 import dev.undefinedteam.gensh1n.events.world.WorldChangeEvent;
 import dev.undefinedteam.gensh1n.fakeplayer.FakePlayerEntity;
@@ -116,7 +117,7 @@ public class Blink2 extends Module {
         Modules.get().get(Blink2.class).toggle();
     }
 
-    @EventHandler
+    @PacketHandler
     public void onPacket(PacketEvent event) {
         if (sendingPackets) return;
 
@@ -2,6 +2,7 @@ package dev.undefinedteam.gensh1n.system.modules.player;
 
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.settings.SettingGroup;
 import dev.undefinedteam.gensh1n.system.modules.Categories;
@@ -118,7 +119,7 @@ public class NoFall extends Module {
         return b.up();
     }
 
-    @EventHandler
+    @PacketHandler(value = PlayerMoveC2SPacket.class, origin = PacketEvent.TransferOrigin.SEND)
     public void onPacket(PacketEvent event) {
         if(mode.get() != Mode.Vanilla) return;
         if(event.origin == PacketEvent.TransferOrigin.SEND) {
@@ -3,6 +3,7 @@ package dev.undefinedteam.gensh1n.system.modules.world;
 import dev.undefinedteam.gensh1n.events.client.MouseButtonEvent;
 import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.events.render.Render3DEvent;
 import dev.undefinedteam.gensh1n.settings.*;
 import dev.undefinedteam.gensh1n.system.modules.Categories;
@@ -232,7 +233,7 @@ public class PistonBreaker extends Module {
         return mc.player.getMainHandStack().getItem() instanceof SwordItem i && i.getMaterial().equals(ToolMaterials.WOOD);
     }
 
-    @EventHandler
+    @PacketHandler(PlayerMoveC2SPacket.class)
     private void onPacket(PacketEvent e) {
         if (e.packet instanceof PlayerMoveC2SPacket p) {
             p.yaw = onModifyLookYaw(p.yaw);
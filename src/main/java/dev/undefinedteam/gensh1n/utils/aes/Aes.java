@@ -4,23 +4,31 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
+/**
+ * Ciphers are created and initialized once per thread and reused, doFinal puts them back
+ * into their initialized state. Changing Key, IV, mode or padding re-initializes them on next use.
+ */
 public class Aes {
     public PaddingMode paddingMode;
     public AesMode mode;
     private final String algorithm = "AES";
 
-    private Cipher cipher;
     public byte[] Key;
     public byte[] IV;
 
+    private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
     private Aes() {
         this.paddingMode = PaddingMode.None;
         this.mode = AesMode.ECB;
@@ -35,28 +43,21 @@ public class Aes {
     }
 
     public byte[] encrypt(byte[] bytes, int offset) throws InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException, IOException {
-        return this.encrypt(bytes, offset, bytes.length);
+        return this.encrypt(bytes, offset, bytes.length - offset);
     }
 
     public byte[] encrypt(byte[] bytes, int offset, int len) throws InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException, IOException {
-        initCipher(Cipher.ENCRYPT_MODE);
-        byte[] result;
-        {
-            ByteArrayOutputStream pad = new ByteArrayOutputStream();
-            pad.write(bytes,offset,len);
-            if (this.paddingMode.equals(PaddingMode.Zero)) {
-                try {
-                    int zeroSize = 16 - (pad.size() % 16);
-                    if (zeroSize != 16) {
-                        pad.write(new byte[zeroSize]);
-                    }
-                } catch (IOException e) {
-                    throw new BadPaddingException("Zero padding error" + e);
-                }
+        var cipher = cipher(Cipher.ENCRYPT_MODE);
+        try {
+            if (this.paddingMode.equals(PaddingMode.Zero) && len % 16 != 0) {
+                // copyOfRange zero fills past the end of the input
+                return cipher.doFinal(Arrays.copyOfRange(bytes, offset, offset + len + 16 - len % 16));
             }
-            result = this.cipher.doFinal(pad.toByteArray());
+            return cipher.doFinal(bytes, offset, len);
+        } catch (IllegalBlockSizeException | BadPaddingException e) {
+            contexts.get().drop(Cipher.ENCRYPT_MODE);
+            throw e;
         }
-        return result;
     }
 
     public byte[] decrypt(byte[] bytes) throws InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException, IOException {
@@ -64,38 +65,99 @@ public class Aes {
     }
 
     public byte[] decrypt(byte[] bytes, int offset) throws InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException, IOException {
-        return this.decrypt(bytes, offset, bytes.length);
+        return this.decrypt(bytes, offset, bytes.length - offset);
     }
 
     public byte[] decrypt(byte[] bytes, int offset, int len) throws InvalidAlgorithmParameterException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidKeyException, IllegalBlockSizeException, BadPaddingException, IOException {
-        initCipher(Cipher.DECRYPT_MODE);
-        byte[] result;
-        {
-            ByteArrayOutputStream pad = new ByteArrayOutputStream();
-            pad.write(bytes);
-            if (this.paddingMode.equals(PaddingMode.Zero)) {
-                try {
-                    int zeroSize = 16 - (pad.size() % 16);
-                    if (zeroSize != 16) {
-                        pad.write(new byte[zeroSize]);
-                    }
-                } catch (IOException e) {
-                    throw new BadPaddingException("Zero padding error" + e);
-                }
+        var cipher = cipher(Cipher.DECRYPT_MODE);
+        try {
+            return cipher.doFinal(bytes, offset, len);
+        } catch (IllegalBlockSizeException | BadPaddingException e) {
+            contexts.get().drop(Cipher.DECRYPT_MODE);
+            throw e;
+        }
+    }
+
+    /**
+     * Decrypts into {@code out} starting at {@code outOffset}, which needs room for {@code len} bytes.
+     *
+     * @return the number of plain bytes written
+     */
+    public int decrypt(byte[] bytes, int offset, int len, byte[] out, int outOffset) throws GeneralSecurityException {
+        var cipher = cipher(Cipher.DECRYPT_MODE);
+        try {
+            return cipher.doFinal(bytes, offset, len, out, outOffset);
+        } catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e) {
+            contexts.get().drop(Cipher.DECRYPT_MODE);
+            throw e;
+        }
+    }
+
+    /**
+     * Decrypts the remaining bytes of {@code in} into {@code out}, both positions advance.
+     *
+     * @return the number of plain bytes written
+     */
+    public int decrypt(ByteBuffer in, ByteBuffer out) throws GeneralSecurityException {
+        var cipher = cipher(Cipher.DECRYPT_MODE);
+        try {
+            return cipher.doFinal(in, out);
+        } catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e) {
+            contexts.get().drop(Cipher.DECRYPT_MODE);
+            throw e;
+        }
+    }
+
+    private Cipher cipher(int mode) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException {
+        var context = contexts.get();
+        if (context.key != this.Key || context.iv != this.IV || context.mode != this.mode || context.padding != this.paddingMode) {
+            context.encrypt = null;
+            context.decrypt = null;
+            context.key = this.Key;
+            context.iv = this.IV;
+            context.mode = this.mode;
+            context.padding = this.paddingMode;
+        }
+
+        var cipher = mode == Cipher.ENCRYPT_MODE ? context.encrypt : context.decrypt;
+        if (cipher == null) {
+            cipher = initCipher(mode);
+            if (mode == Cipher.ENCRYPT_MODE) {
+                context.encrypt = cipher;
+            } else {
+                context.decrypt = cipher;
             }
-            result = this.cipher.doFinal(pad.toByteArray(), offset, len);
         }
-        return result;
+        return cipher;
     }
 
-    private void initCipher(int mode) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException {
-        this.cipher = Cipher.getInstance(this.algorithm + "/" + this.mode.name + "/" + (this.paddingMode.equals(PaddingMode.Zero) ? "NoPadding" : this.paddingMode.name));
+    private Cipher initCipher(int mode) throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException, InvalidKeyException {
+        var cipher = Cipher.getInstance(this.algorithm + "/" + this.mode.name + "/" + (this.paddingMode.equals(PaddingMode.Zero) ? "NoPadding" : this.paddingMode.name));
         if (this.Key != null && this.IV != null) {
-            this.cipher.init(mode, new SecretKeySpec(this.Key, this.algorithm), new IvParameterSpec(this.IV));
+            cipher.init(mode, new SecretKeySpec(this.Key, this.algorithm), new IvParameterSpec(this.IV));
         } else if (this.Key != null) {
-            this.cipher.init(mode, new SecretKeySpec(this.Key, this.algorithm));
+            cipher.init(mode, new SecretKeySpec(this.Key, this.algorithm));
         } else {
             throw new NoSuchAlgorithmException("Key can't be null");
         }
+        return cipher;
+    }
+
+    private static class Context {
+        Cipher encrypt, decrypt;
+        byte[] key, iv;
+        AesMode mode;
+        PaddingMode padding;
+
+        /**
+         * A cipher that threw may be left half way through an operation
+         */
+        void drop(int mode) {
+            if (mode == Cipher.ENCRYPT_MODE) {
+                encrypt = null;
+            } else {
+                decrypt = null;
+            }
+        }
     }
 }
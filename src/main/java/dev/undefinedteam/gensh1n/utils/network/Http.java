@@ -13,6 +13,8 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.*;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
@@ -20,15 +22,26 @@ import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 
+import javax.net.ssl.SSLException;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Type;
 import java.net.URLEncoder;
+import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -40,6 +53,41 @@ public class Http {
             .registerTypeAdapter(Date.class, new JsonDateDeserializer())
             .create();
 
+    public static final int CONNECT_TIMEOUT = 10_000, SOCKET_TIMEOUT = 30_000, POOL_TIMEOUT = 10_000;
+    private static final int MAX_CONNECTIONS = 64, MAX_PER_ROUTE = 16;
+    private static final long IDLE_SECONDS = 30;
+    private static final int DEFAULT_RETRIES = 2;
+    private static final long BACKOFF_MILLIS = 250, MAX_BACKOFF_MILLIS = 4_000;
+
+    private static final Executor ASYNC = Executors.newCachedThreadPool(r -> {
+        var thread = new Thread(r, "Http");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * One client for every request, so connections and TLS sessions are reused. Cookies stay per request, each
+     * executes with its own context.
+     */
+    private static final class Shared {
+        private static final CloseableHttpClient CLIENT;
+
+        static {
+            var connections = new PoolingHttpClientConnectionManager(IDLE_SECONDS * 2, TimeUnit.SECONDS);
+            connections.setMaxTotal(MAX_CONNECTIONS);
+            connections.setDefaultMaxPerRoute(MAX_PER_ROUTE);
+            connections.setValidateAfterInactivity(2_000);
+
+            // gzip and deflate are requested and decoded by the default interceptors
+            CLIENT = HttpClientBuilder.create()
+                .setConnectionManager(connections)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_SECONDS, TimeUnit.SECONDS)
+                .disableAutomaticRetries()
+                .build();
+        }
+    }
+
     public enum Method {
         GET,
         POST
@@ -61,8 +109,12 @@ public class Http {
         public final HttpClientContext context = HttpClientContext.create();
         public final CookieStore cookieStore = new BasicCookieStore();
         private final HttpRequestBase httpClient;
-        private final RequestConfig.Builder configBuilder = RequestConfig.custom();
+        private final RequestConfig.Builder configBuilder = RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT)
+            .setSocketTimeout(SOCKET_TIMEOUT)
+            .setConnectionRequestTimeout(POOL_TIMEOUT);
         private boolean keepAlive = true;
+        private int retries = DEFAULT_RETRIES;
 
         public Request(Method method, String url) {
             this.httpClient = method.equals(Method.GET) ? new HttpGet(url) : new HttpPost(url);
@@ -76,6 +128,31 @@ public class Http {
             return this;
         }
 
+        public Request timeout(int connectMillis, int socketMillis) {
+            this.configBuilder.setConnectTimeout(connectMillis).setSocketTimeout(socketMillis);
+            return this;
+        }
+
+        /**
+         * Attempts after the first one. GET requests are retried on transport errors and 502, 503 and 504, others
+         * only when they failed before being sent.
+         */
+        public Request retries(int retries) {
+            this.retries = Math.max(0, retries);
+            return this;
+        }
+
+        /**
+         * Cancels the request from any thread, the connection is closed instead of drained for reuse.
+         */
+        public void abort() {
+            this.httpClient.abort();
+        }
+
+        public boolean isAborted() {
+            return this.httpClient.isAborted();
+        }
+
         public Request userAgent(String agent) {
             this.httpClient.setHeader(HttpHeaders.USER_AGENT, agent);
             return this;
@@ -168,47 +245,102 @@ public class Http {
         }
 
         private <T> T _send(HttpResponseHandler<T> responseHandler) {
-            try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
-                if (!this.keepAlive) {
-                    this.httpClient.setHeader(HttpHeaders.CONNECTION, "close");
-                }
-                this.httpClient.setConfig(this.configBuilder.build());
-                CloseableHttpResponse response = client.execute(this.httpClient,context);
-                return responseHandler.handle(response.getEntity());
-            } catch (IOException e) {
-                e.printStackTrace();
-                return null;
-            }
+            return execute(response -> responseHandler.handle(response.getEntity()));
         }
 
         public <T> T sendResponse(ResponseHandler<T> responseHandler) {
-            try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
-                if (!this.keepAlive) {
-                    this.httpClient.setHeader(HttpHeaders.CONNECTION, "close");
-                }
-                this.httpClient.setConfig(this.configBuilder.build());
-                CloseableHttpResponse response = client.execute(this.httpClient);
-                return responseHandler.handle(response);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return null;
-            }
+            return execute(responseHandler);
         }
 
         public <T> T sendCtxResponse(CtxResponseHandler<T> responseHandler) {
-            try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
-                if (!this.keepAlive) {
-                    this.httpClient.setHeader(HttpHeaders.CONNECTION, "close");
+            return execute(response -> responseHandler.handle(context, response));
+        }
+
+        /**
+         * Runs the request on the shared client. The response is closed once the handler returns, which hands the
+         * connection back to the pool if the handler read the body to its end.
+         */
+        private <T> T execute(ResponseHandler<T> responseHandler) {
+            if (!this.keepAlive) {
+                this.httpClient.setHeader(HttpHeaders.CONNECTION, "close");
+            }
+            this.httpClient.setConfig(this.configBuilder.build());
+            boolean idempotent = this.httpClient instanceof HttpGet;
+
+            for (int attempt = 0; ; attempt++) {
+                CloseableHttpResponse response;
+                try {
+                    response = Shared.CLIENT.execute(this.httpClient, context);
+                } catch (IOException e) {
+                    if (attempt < retries && retriable(e) && (idempotent || !context.isRequestSent()) && backoff(attempt)) {
+                        continue;
+                    }
+                    e.printStackTrace();
+                    return null;
+                }
+
+                try {
+                    int status = response.getStatusLine().getStatusCode();
+                    if (idempotent && attempt < retries && status >= 502 && status <= 504) {
+                        EntityUtils.consumeQuietly(response.getEntity());
+                        if (backoff(attempt)) continue;
+                        return null;
+                    }
+                    return responseHandler.handle(response);
+                } finally {
+                    try {
+                        response.close();
+                    } catch (IOException ignored) {
+                    }
                 }
-                this.httpClient.setConfig(this.configBuilder.build());
-                CloseableHttpResponse response = client.execute(this.httpClient);
-                return responseHandler.handle(context,response);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return null;
             }
         }
 
+        private boolean retriable(IOException e) {
+            if (this.httpClient.isAborted()) return false;
+            if (e instanceof UnknownHostException || e instanceof SSLException) return false;
+            return !(e instanceof InterruptedIOException) || e instanceof ConnectTimeoutException;
+        }
+
+        /**
+         * Sleeps before the next attempt, doubling with every attempt and jittered so bursts do not retry together.
+         *
+         * @return false if interrupted
+         */
+        private static boolean backoff(int attempt) {
+            long delay = Math.min(MAX_BACKOFF_MILLIS, BACKOFF_MILLIS << attempt);
+            try {
+                Thread.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /**
+         * Runs one of the send methods off thread, e.g. {@code Http.get(url).async(Request::sendBytes)}.
+         */
+        public <T> CompletableFuture<T> async(Function<Request, T> send) {
+            return async(send, ASYNC);
+        }
+
+        public <T> CompletableFuture<T> async(Function<Request, T> send, Executor executor) {
+            return CompletableFuture.supplyAsync(() -> send.apply(this), executor);
+        }
+
+        public CompletableFuture<byte[]> sendBytesAsync() {
+            return async(Request::sendBytes);
+        }
+
+        public CompletableFuture<String> sendStringAsync() {
+            return async(Request::sendString);
+        }
+
+        public <T> CompletableFuture<T> sendJsonAsync(Type type) {
+            return async(request -> request.sendJson(type));
+        }
+
         public void send() {
             _send(response -> null);
         }
@@ -225,7 +357,14 @@ public class Http {
         }
 
         public HttpEntity sendHttpEntity() {
-            return _send(entity -> entity);
+            // buffered, the connection goes back to the pool before this returns
+            return _send(entity -> {
+                try {
+                    return entity == null ? null : new BufferedHttpEntity(entity);
+                } catch (IOException e) {
+                    return null;
+                }
+            });
         }
 
         public Stream<String> sendLines() {
@@ -238,13 +377,8 @@ public class Http {
         }
 
         public InputStream sendInputStream() {
-            return _send(entity -> {
-                try {
-                    return entity.getContent();
-                } catch (IOException e) {
-                    return null;
-                }
-            });
+            byte[] bytes = sendBytes();
+            return bytes == null ? null : new ByteArrayInputStream(bytes);
         }
 
         public <T> T sendCryptJson(Function<byte[], String> function, Type type) {
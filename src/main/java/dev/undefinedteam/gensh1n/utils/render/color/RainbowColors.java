@@ -1,11 +1,9 @@
 package dev.undefinedteam.gensh1n.utils.render.color;
 
-import dev.undefinedteam.gensh1n.Client;
-import dev.undefinedteam.gensh1n.events.client.TickEvent;
 import dev.undefinedteam.gensh1n.settings.Setting;
 import dev.undefinedteam.gensh1n.system.ClientConfig;
+import dev.undefinedteam.gensh1n.system.modules.TickScheduler;
 import dev.undefinedteam.gensh1n.utils.misc.UnorderedArrayList;
-import meteordevelopment.orbit.EventHandler;
 
 import java.util.List;
 
@@ -19,8 +17,14 @@ public class RainbowColors {
 
     public static final RainbowColor GLOBAL = new RainbowColor();
 
+    /**
+     * Updates are resumed where the budget ran out, a pass over many color settings may span a few ticks
+     */
+    private static final int CHECK_EVERY = 16;
+    private static int phase, index;
+
     public static void init() {
-        Client.EVENT_BUS.subscribe(RainbowColors.class);
+        TickScheduler.INSTANCE.schedule("RainbowColors", TickScheduler.Rate.EVERY_TICK, RainbowColors::update);
     }
 
     public static void addSetting(Setting<SettingColor> setting) {
@@ -47,25 +51,46 @@ public class RainbowColors {
         listeners.add(runnable);
     }
 
-    @EventHandler
-    private static void onTick(TickEvent.Post event) {
-        GLOBAL.setSpeed(ClientConfig.get().rainbowSpeed.get() / 100);
-        GLOBAL.getNext();
-
-        for (Setting<SettingColor> setting : colorSettings) {
-            if (setting.module == null || setting.module.isActive()) setting.get().update();
+    private static boolean update(TickScheduler.Job job) {
+        if (!job.isPending()) {
+            GLOBAL.setSpeed(ClientConfig.get().rainbowSpeed.get() / 100);
+            GLOBAL.getNext();
+            phase = 0;
+            index = 0;
         }
 
-        for (Setting<List<SettingColor>> setting : colorListSettings) {
-            if (setting.module == null || setting.module.isActive()) {
-                for (SettingColor color : setting.get()) color.update();
+        int work = 0;
+        while (phase < 4) {
+            int size = switch (phase) {
+                case 0 -> colorSettings.size();
+                case 1 -> colorListSettings.size();
+                case 2 -> colors.size();
+                default -> listeners.size();
+            };
+            if (index >= size) {
+                phase++;
+                index = 0;
+                continue;
             }
-        }
 
-        for (SettingColor color : colors) {
-            color.update();
-        }
+            switch (phase) {
+                case 0 -> {
+                    var setting = colorSettings.get(index);
+                    if (setting.module == null || setting.module.isActive()) setting.get().update();
+                }
+                case 1 -> {
+                    var setting = colorListSettings.get(index);
+                    if (setting.module == null || setting.module.isActive()) {
+                        for (SettingColor color : setting.get()) color.update();
+                    }
+                }
+                case 2 -> colors.get(index).update();
+                default -> listeners.get(index).run();
+            }
+            index++;
 
-        for (Runnable listener : listeners) listener.run();
+            if (++work % CHECK_EVERY == 0 && job.exhausted()) return false;
+        }
+        return true;
     }
 }
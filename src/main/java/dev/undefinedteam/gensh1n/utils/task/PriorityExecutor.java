@@ -0,0 +1,298 @@
+package dev.undefinedteam.gensh1n.utils.task;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded priority executor shared by the background workers (GChat, GMusic).
+ * Workers block on the queue instead of polling, jobs of the same priority run in submission order.
+ */
+@Log4j2
+public class PriorityExecutor implements Executor {
+    public static final PriorityExecutor SHARED = new PriorityExecutor("AsyncWorker", defaultWorkers(), 1024);
+
+    public enum Priority {
+        /**
+         * Work the user is waiting on (clicks, search, playback)
+         */
+        UI,
+        NORMAL,
+        /**
+         * Speculative work (covers, assets), rejected instead of blocking when the queue is full
+         */
+        PREFETCH
+    }
+
+    private final String name;
+    private final int capacity;
+    private final PriorityQueue<Job<?>> queue = new PriorityQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final List<Thread> workers = new ArrayList<>();
+    private final Executor[] views = new Executor[Priority.values().length];
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private int targetWorkers;
+    private long sequence;
+    private boolean shutdown;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+
+    public PriorityExecutor(String name, int workers, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        for (Priority priority : Priority.values()) {
+            views[priority.ordinal()] = r -> submit(r, priority);
+        }
+        setWorkers(workers);
+    }
+
+    public static int defaultWorkers() {
+        return Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public Executor executor(Priority priority) {
+        return views[priority.ordinal()];
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submit(command, Priority.NORMAL);
+    }
+
+    public Job<?> submit(Runnable task, Priority priority) {
+        return submit(Executors.callable(task), priority);
+    }
+
+    public <V> Job<V> submit(Callable<V> task, Priority priority) {
+        var job = new Job<>(task, priority);
+        if (!enqueue(job)) {
+            // a worker feeding a full queue would wait on itself
+            job.run();
+        }
+        return job;
+    }
+
+    private boolean enqueue(Job<?> job) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                rejected.increment();
+                throw new RejectedExecutionException(name + " is shut down");
+            }
+
+            while (queue.size() >= capacity) {
+                if (job.priority == Priority.PREFETCH) {
+                    rejected.increment();
+                    throw new RejectedExecutionException(name + " queue is full");
+                }
+                if (workers.contains(Thread.currentThread())) {
+                    submitted.increment();
+                    job.enqueuedAt = System.nanoTime();
+                    return false;
+                }
+                notFull.awaitUninterruptibly();
+            }
+
+            job.sequence = sequence++;
+            job.enqueuedAt = System.nanoTime();
+            queue.add(job);
+            submitted.increment();
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean remove(Job<?> job) {
+        lock.lock();
+        try {
+            if (queue.remove(job)) {
+                notFull.signal();
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setWorkers(int count) {
+        lock.lock();
+        try {
+            targetWorkers = Math.max(1, count);
+            while (workers.size() < targetWorkers) {
+                var thread = new Thread(this::work, name + "-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                workers.add(thread);
+                thread.start();
+            }
+            // surplus workers retire once they wake up
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        var self = Thread.currentThread();
+        while (true) {
+            Job<?> job;
+            lock.lock();
+            try {
+                while (true) {
+                    if (workers.size() > targetWorkers || (shutdown && queue.isEmpty())) {
+                        workers.remove(self);
+                        return;
+                    }
+                    job = queue.poll();
+                    if (job != null) {
+                        notFull.signal();
+                        break;
+                    }
+                    notEmpty.await();
+                }
+            } catch (InterruptedException e) {
+                workers.remove(self);
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            active.incrementAndGet();
+            try {
+                job.run();
+            } catch (Throwable t) {
+                log.error("Uncaught exception in {}", self.getName(), t);
+            } finally {
+                active.decrementAndGet();
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private void record(long wait, long run) {
+        completed.increment();
+        waitNanos.add(wait);
+        runNanos.add(run);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+        maxRunNanos.accumulateAndGet(run, Math::max);
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        int queued, workerCount;
+        lock.lock();
+        try {
+            queued = queue.size();
+            workerCount = workers.size();
+        } finally {
+            lock.unlock();
+        }
+
+        long done = completed.sum();
+        return new Stats(
+            queued, active.get(), workerCount,
+            submitted.sum(), done, cancelled.sum(), rejected.sum(),
+            done == 0 ? 0 : waitNanos.sum() / done, maxWaitNanos.get(),
+            done == 0 ? 0 : runNanos.sum() / done, maxRunNanos.get()
+        );
+    }
+
+    public void resetStats() {
+        submitted.reset();
+        completed.reset();
+        cancelled.reset();
+        rejected.reset();
+        waitNanos.reset();
+        runNanos.reset();
+        maxWaitNanos.set(0);
+        maxRunNanos.set(0);
+    }
+
+    public record Stats(int queued, int active, int workers,
+                        long submitted, long completed, long cancelled, long rejected,
+                        long avgWaitNanos, long maxWaitNanos, long avgRunNanos, long maxRunNanos) {
+    }
+
+    public class Job<V> extends FutureTask<V> implements Comparable<Job<?>> {
+        public final Priority priority;
+        private long sequence;
+        private long enqueuedAt;
+
+        private Job(Callable<V> callable, Priority priority) {
+            super(callable);
+            this.priority = priority;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) return;
+            long start = System.nanoTime();
+            super.run();
+            record(start - enqueuedAt, System.nanoTime() - start);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning)) return false;
+            remove(this);
+            cancelled.increment();
+            return true;
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            super.setException(t);
+            log.error("Task failed in {}", name, t);
+        }
+
+        @Override
+        public int compareTo(Job<?> o) {
+            int c = priority.compareTo(o.priority);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package dev.undefinedteam.gensh1n.utils.task;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Startup work as a graph of named stages. Each stage declares the stages it needs and where it runs:
+ * {@link Affinity#WORKER} stages start on the pool as soon as their dependencies are done, {@link Affinity#MAIN}
+ * and {@link Affinity#RENDER} stages run in declaration order when the owning thread calls {@link #run},
+ * {@link Affinity#DEFERRED} stages wait for {@link #release()} (the title screen) before going to the pool.
+ * Every stage is a span of the given {@link Tasks} under one root span. The root is a plain span of the thread
+ * calling {@link #start()}, closed when that thread has run its {@link Affinity#MAIN} stages, so it nests with the
+ * spans around it; stages on other threads point to it as their parent.
+ */
+@Log4j2
+public class StartupGraph {
+    public enum Affinity {
+        /**
+         * The thread building the graph (mod initialization)
+         */
+        MAIN(0),
+        WORKER(0),
+        /**
+         * The render thread, once the client has started
+         */
+        RENDER(1),
+        /**
+         * Worker pool, but only after {@link #release()}, for network access
+         */
+        DEFERRED(2);
+
+        final int phase;
+
+        Affinity(int phase) {
+            this.phase = phase;
+        }
+    }
+
+    private final String name;
+    private final Executor executor;
+    private final Tasks tasks;
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final CompletableFuture<Void> gate = new CompletableFuture<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private Task root;
+    private boolean started;
+
+    private static final class Stage {
+        final String name;
+        final Affinity affinity;
+        final Runnable action;
+        final String[] dependsOn;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Stage(String name, Affinity affinity, Runnable action, String[] dependsOn) {
+            this.name = name;
+            this.affinity = affinity;
+            this.action = action;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    public StartupGraph(String name, Tasks tasks, Executor executor) {
+        this.name = name;
+        this.tasks = tasks;
+        this.executor = executor;
+    }
+
+    public StartupGraph stage(String name, Affinity affinity, Runnable action, String... dependsOn) {
+        if (started) throw new IllegalStateException("Startup graph already started");
+        if (stages.containsKey(name)) throw new IllegalArgumentException("Duplicate stage " + name);
+        stages.put(name, new Stage(name, affinity, action, dependsOn));
+        return this;
+    }
+
+    /**
+     * Validates the graph and schedules the pool stages, main thread stages still need {@link #run}.
+     */
+    public void start() {
+        if (started) return;
+        validate();
+        started = true;
+        root = tasks.push(name).current();
+
+        for (Stage stage : stages.values()) {
+            if (stage.affinity != Affinity.WORKER && stage.affinity != Affinity.DEFERRED) continue;
+
+            var ready = dependencies(stage);
+            if (stage.affinity == Affinity.DEFERRED) ready = CompletableFuture.allOf(ready, gate);
+            ready.whenCompleteAsync((v, t) -> {
+                if (t != null) {
+                    log.error("Startup stage '{}' skipped, a dependency failed", stage.name);
+                    stage.done.completeExceptionally(t);
+                } else {
+                    execute(stage, false);
+                }
+            }, executor);
+        }
+
+        CompletableFuture.allOf(stages.values().stream().map(s -> s.done).toArray(CompletableFuture[]::new))
+            .whenComplete((v, t) -> {
+                if (t != null) completion.completeExceptionally(t);
+                else completion.complete(null);
+            });
+    }
+
+    /**
+     * Runs the stages of the given affinity on the calling thread, waiting for their dependencies first.
+     * Failures are rethrown, like the plain calls they replace.
+     */
+    public void run(Affinity affinity) {
+        if (!started) start();
+        try {
+            for (Stage stage : stages.values()) {
+                if (stage.affinity != affinity) continue;
+                try {
+                    dependencies(stage).join();
+                } catch (CompletionException e) {
+                    stage.done.completeExceptionally(e.getCause());
+                    throw e;
+                }
+                execute(stage, true);
+            }
+        } finally {
+            if (affinity == Affinity.MAIN && tasks.current() == root) tasks.pop();
+        }
+    }
+
+    /**
+     * Lets the deferred stages run, later calls are no-ops.
+     */
+    public void release() {
+        gate.complete(null);
+    }
+
+    public boolean isReleased() {
+        return gate.isDone();
+    }
+
+    /**
+     * Completes after the last stage, also when some failed.
+     */
+    public CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    private void execute(Stage stage, boolean rethrow) {
+        tasks.push(stage.name, root);
+        // the span is closed before completing, the last completion runs the callbacks that export the trace
+        try {
+            stage.action.run();
+        } catch (Throwable t) {
+            tasks.pop();
+            stage.done.completeExceptionally(t);
+            if (rethrow) throw t;
+            log.error("Startup stage '{}' failed", stage.name, t);
+            return;
+        }
+        tasks.pop();
+        stage.done.complete(null);
+    }
+
+    private CompletableFuture<Void> dependencies(Stage stage) {
+        if (stage.dependsOn.length == 0) return CompletableFuture.completedFuture(null);
+        var futures = new CompletableFuture[stage.dependsOn.length];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = stages.get(stage.dependsOn[i]).done;
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    private void validate() {
+        for (Stage stage : stages.values()) {
+            for (String dependency : stage.dependsOn) {
+                var other = stages.get(dependency);
+                if (other == null) {
+                    throw new IllegalStateException("Stage " + stage.name + " depends on unknown stage " + dependency);
+                }
+                // a stage can not wait for one that only runs in a later phase
+                if (other.affinity.phase > stage.affinity.phase) {
+                    throw new IllegalStateException("Stage " + stage.name + " (" + stage.affinity + ") can not depend on " + dependency + " (" + other.affinity + ")");
+                }
+            }
+        }
+
+        // main and render stages run in declaration order, so their dependencies on each other must point backwards
+        var seen = new HashSet<String>();
+        for (Stage stage : stages.values()) {
+            if (stage.affinity == Affinity.MAIN || stage.affinity == Affinity.RENDER) {
+                for (String dependency : stage.dependsOn) {
+                    var other = stages.get(dependency);
+                    if (other.affinity == stage.affinity && !seen.contains(dependency)) {
+                        throw new IllegalStateException("Stage " + stage.name + " is declared before its dependency " + dependency);
+                    }
+                }
+            }
+            seen.add(stage.name);
+        }
+
+        var visiting = new HashSet<String>();
+        var visited = new HashSet<String>();
+        for (String stage : stages.keySet()) {
+            checkCycle(stage, visiting, visited, new ArrayList<>());
+        }
+    }
+
+    private void checkCycle(String stage, Set<String> visiting, Set<String> visited, List<String> path) {
+        if (visited.contains(stage)) return;
+        path.add(stage);
+        if (!visiting.add(stage)) throw new IllegalStateException("Startup stages form a cycle: " + String.join(" -> ", path));
+        for (String dependency : stages.get(stage).dependsOn) {
+            checkCycle(dependency, visiting, visited, path);
+        }
+        visiting.remove(stage);
+        visited.add(stage);
+        path.remove(path.size() - 1);
+    }
+}
@@ -2,39 +2,106 @@ package dev.undefinedteam.gensh1n.utils.task;
 
 import org.apache.logging.log4j.Logger;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
+/**
+ * A span of {@link Tasks}: nanosecond start and end, the thread it ran on and the bytes that thread allocated
+ * meanwhile. The parent may live on another thread, e.g. a startup stage running on a worker.
+ */
 public class Task {
+    private static final com.sun.management.ThreadMXBean THREADS;
+
+    static {
+        var bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported()) {
+            sun.setThreadAllocatedMemoryEnabled(true);
+            THREADS = sun;
+        } else {
+            THREADS = null;
+        }
+    }
+
     protected String name;
     protected Tasks main;
 
     public Task(String name, Tasks main) {
         this.name = name;
         this.main = main;
+
+        var thread = Thread.currentThread();
+        this.threadName = thread.getName();
+        this.threadId = thread.getId();
+        this.startAllocated = allocatedBytes();
     }
 
-    protected long createTime = System.currentTimeMillis();
+    protected final String threadName;
+    protected final long threadId;
+    protected long createTime = System.nanoTime();
     protected long endTime = -1L;
     protected long usedTime = -1L;
+    protected long startAllocated, allocated = -1L;
     protected Task parentTask = null;
-    protected List<Task> subTasks = new ArrayList<>();
+    /**
+     * Span that was current on this thread before this one, restored on pop
+     */
+    protected Task previous = null;
+    protected final List<Task> subTasks = new ArrayList<>();
 
     public void pop() {
-        endTime = System.currentTimeMillis();
+        endTime = System.nanoTime();
         usedTime = endTime - createTime;
+        // only meaningful when ended on the thread that started it
+        if (Thread.currentThread().getId() == threadId) allocated = allocatedBytes() - startAllocated;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean isDone() {
+        return endTime != -1L;
     }
 
+    /**
+     * @return duration in milliseconds, -1 while running
+     */
     public long usedTime() {
+        return usedTime < 0 ? -1 : usedTime / 1_000_000L;
+    }
+
+    public long usedNanos() {
         return usedTime;
     }
 
+    /**
+     * @return bytes allocated by the span's thread while it ran, -1 if unknown
+     */
+    public long allocated() {
+        return allocated;
+    }
+
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
     public void show(String tab, Logger log) {
         if (subTasks.isEmpty()) return;
 
-        for (Task subTask : subTasks) {
-            log.info("{}{} use {}ms.",tab, subTask.name, subTask.usedTime());
+        var sorted = new ArrayList<>(subTasks);
+        sorted.sort(Comparator.comparingLong(t -> t.createTime));
+        for (Task subTask : sorted) {
+            log.info("{}{} use {}ms.{}", tab, subTask.name, subTask.usedTime(), subTask.details(threadId));
             subTask.show(tab + "\t", log);
         }
     }
+
+    String details(long parentThread) {
+        var sb = new StringBuilder();
+        if (allocated > 0) sb.append(' ').append(allocated / 1024).append("KB");
+        if (threadId != parentThread) sb.append(" [").append(threadName).append(']');
+        return sb.toString();
+    }
 }
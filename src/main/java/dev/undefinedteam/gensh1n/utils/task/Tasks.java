@@ -1,55 +1,102 @@
 package dev.undefinedteam.gensh1n.utils.task;
 
+import com.google.gson.stream.JsonWriter;
+import dev.undefinedteam.gensh1n.Client;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Span tracer for init, reload and shutdown. {@link #push}/{@link #pop} nest per thread, {@link #push(String, Task)}
+ * hangs a span under a parent from another thread. The result is logged as a tree by {@link #show} and can be
+ * written as Chrome trace events by {@link #exportTrace} for a flame chart viewer (chrome://tracing, Perfetto).
+ */
 public class Tasks {
-    private Task currentTask = null;
+    public static final File TRACE_FOLDER = new File(Client.FOLDER, "traces");
+    /**
+     * Traces kept per name, older ones are deleted on export
+     */
+    public static final int KEEP_TRACES = 10;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final ThreadLocal<Task> currentTask = new ThreadLocal<>();
 
     private final List<Task> tasks = new ArrayList<>();
     private final List<Task> failTasks = new ArrayList<>();
     private final List<Task> successTasks = new ArrayList<>();
 
-    private long startTime = System.currentTimeMillis();
-    private long endTime = System.currentTimeMillis();
-
-    public void reset() {
-        currentTask = null;
+    private long startTime = System.nanoTime();
+    private long endTime = System.nanoTime();
 
-        tasks.clear();
+    /**
+     * Drops the finished spans, call it once they were shown and exported. Spans still open on some thread are
+     * kept so their stack keeps working and they show up in the next report.
+     */
+    public synchronized void reset() {
+        tasks.removeIf(Task::isDone);
         failTasks.clear();
         successTasks.clear();
+        var current = currentTask.get();
+        if (current != null && current.isDone()) currentTask.remove();
 
-        startTime = System.currentTimeMillis();
-        endTime = System.currentTimeMillis();
+        startTime = System.nanoTime();
+        endTime = System.nanoTime();
     }
 
-    public void start() {
-        startTime = System.currentTimeMillis();
+    public synchronized void start() {
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * @return the innermost open span of the calling thread, null if none
+     */
+    public Task current() {
+        return currentTask.get();
     }
 
     public Tasks push(String name) {
+        return push(name, currentTask.get());
+    }
+
+    /**
+     * Opens a span on the calling thread under the given parent, which may belong to another thread.
+     */
+    public Tasks push(String name, Task parent) {
         var task = new Task(name, this);
-        if (currentTask != null) {
-            task.parentTask = currentTask;
-            task.parentTask.subTasks.add(task);
+        task.previous = currentTask.get();
+        synchronized (this) {
+            if (parent != null) {
+                task.parentTask = parent;
+                parent.subTasks.add(task);
+            }
+            tasks.add(task);
         }
-        tasks.add(task);
-        currentTask = task;
+        currentTask.set(task);
         return this;
     }
 
     public Tasks pop() {
-        if (currentTask == null) {
+        var task = currentTask.get();
+        if (task == null) {
             return this;
         }
-        currentTask.pop();
-        successTasks.add(currentTask);
+        task.pop();
+        synchronized (this) {
+            successTasks.add(task);
+        }
 
-        currentTask = currentTask.parentTask;
+        if (task.previous == null) currentTask.remove();
+        else currentTask.set(task.previous);
         return this;
     }
 
@@ -57,19 +104,116 @@ public class Tasks {
         return pop().push(name);
     }
 
-    public void done() {
-        endTime = System.currentTimeMillis();
+    /**
+     * Opens a span that is not current on any thread, for work whose start and end happen on different threads.
+     */
+    public Task begin(String name, Task parent) {
+        var task = new Task(name, this);
+        synchronized (this) {
+            if (parent != null) {
+                task.parentTask = parent;
+                parent.subTasks.add(task);
+            }
+            tasks.add(task);
+        }
+        return task;
+    }
+
+    public void end(Task task) {
+        task.pop();
+        synchronized (this) {
+            successTasks.add(task);
+        }
     }
 
-    public void show(String title, Logger log) {
-        log.info("========{}======== (size: {}, total: {}ms)", title, successTasks.size(), (endTime - startTime));
+    public synchronized void done() {
+        endTime = System.nanoTime();
+    }
+
+    public synchronized void show(String title, Logger log) {
+        log.info("========{}======== (size: {}, total: {}ms)", title, successTasks.size(), (endTime - startTime) / 1_000_000L);
         AtomicInteger index = new AtomicInteger();
-        successTasks.forEach(t -> {
-            if (t.parentTask == null) {
-                log.info("{}. {} use {}ms.", index.get(), t.name, t.usedTime());
-                t.show("\t", log);
-                index.getAndIncrement();
-            }
+        roots().forEach(t -> {
+            log.info("{}. {} use {}ms.{}", index.get(), t.name, t.usedTime(), t.details(t.threadId));
+            t.show("\t", log);
+            index.getAndIncrement();
         });
     }
+
+    private List<Task> roots() {
+        var roots = new ArrayList<Task>();
+        for (Task task : successTasks) {
+            if (task.parentTask == null) roots.add(task);
+        }
+        roots.sort(Comparator.comparingLong(t -> t.createTime));
+        return roots;
+    }
+
+    /**
+     * Writes the finished spans to {@link #TRACE_FOLDER} in the Chrome trace event format.
+     */
+    public File exportTrace(String name) throws IOException {
+        if (!TRACE_FOLDER.exists() && !TRACE_FOLDER.mkdirs()) {
+            throw new IOException("Cannot create " + TRACE_FOLDER);
+        }
+
+        var file = new File(TRACE_FOLDER, name + "-" + LocalDateTime.now().format(FILE_TIME) + ".json");
+        List<Task> spans;
+        long origin;
+        synchronized (this) {
+            spans = new ArrayList<>(successTasks);
+            origin = startTime;
+        }
+
+        try (var writer = new JsonWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("displayTimeUnit").value("ms");
+            writer.name("traceEvents").beginArray();
+
+            var threads = new ArrayList<Long>();
+            for (Task span : spans) {
+                if (!threads.contains(span.threadId)) {
+                    threads.add(span.threadId);
+                    writer.beginObject();
+                    writer.name("name").value("thread_name");
+                    writer.name("ph").value("M");
+                    writer.name("pid").value(1);
+                    writer.name("tid").value(span.threadId);
+                    writer.name("args").beginObject().name("name").value(span.threadName).endObject();
+                    writer.endObject();
+                }
+
+                writer.beginObject();
+                writer.name("name").value(span.name);
+                writer.name("cat").value(name);
+                writer.name("ph").value("X");
+                writer.name("ts").value((span.createTime - origin) / 1000.0);
+                writer.name("dur").value(span.usedNanos() / 1000.0);
+                writer.name("pid").value(1);
+                writer.name("tid").value(span.threadId);
+                writer.name("args").beginObject();
+                if (span.allocated >= 0) writer.name("allocated_bytes").value(span.allocated);
+                if (span.parentTask != null) writer.name("parent").value(span.parentTask.name);
+                writer.endObject();
+                writer.endObject();
+            }
+
+            writer.endArray();
+            writer.endObject();
+        }
+
+        prune(name);
+        return file;
+    }
+
+    private static void prune(String name) {
+        var files = TRACE_FOLDER.listFiles((dir, f) -> f.startsWith(name + "-") && f.endsWith(".json"));
+        if (files == null || files.length <= KEEP_TRACES) return;
+
+        // the timestamp in the name sorts chronologically
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (int i = 0; i < files.length - KEEP_TRACES; i++) {
+            files[i].delete();
+        }
+    }
 }
@@ -3,6 +3,7 @@ package dev.undefinedteam.gensh1n.utils.world;
 import dev.undefinedteam.gensh1n.Client;
 import dev.undefinedteam.gensh1n.events.game.GameJoinedEvent;
 import dev.undefinedteam.gensh1n.events.network.PacketEvent;
+import dev.undefinedteam.gensh1n.events.network.PacketHandler;
 import dev.undefinedteam.gensh1n.utils.Utils;
 import meteordevelopment.orbit.EventHandler;
 import net.minecraft.network.packet.s2c.play.WorldTimeUpdateS2CPacket;
@@ -25,7 +26,7 @@ public class TickRate {
         Client.EVENT_BUS.subscribe(this);
     }
 
-    @EventHandler
+    @PacketHandler(value = WorldTimeUpdateS2CPacket.class, origin = PacketEvent.TransferOrigin.RECEIVE)
     private void onReceivePacket(PacketEvent event) {
         if (event.origin.equals(PacketEvent.TransferOrigin.RECEIVE) && event.packet instanceof WorldTimeUpdateS2CPacket) {
             long now = System.currentTimeMillis();
@@ -156,10 +156,13 @@ public class MusicFragment extends Fragment {
 
                 @Override
                 public void onStopTrackingTouch(SeekBar seekBar) {
-                    mMusicPlayer.seek(seekBar.getProgress() / 10000.0f);
-                    if (mPlaying) {
-                        mMusicPlayer.play();
-                    }
+                    // may wait for a download, resumes once the seek is done
+                    boolean resume = mPlaying;
+                    mMusicPlayer.seekAsync(seekBar.getProgress() / 10000.0f).whenCompleteAsync((done, ex) -> {
+                        if (resume) {
+                            mMusicPlayer.play();
+                        }
+                    }, Core.getUiThreadExecutor());
                 }
             });
         }
@@ -19,9 +19,11 @@
 package dev.undefinedteam.modernui.mc;
 
 import dev.undefinedteam.gensh1n.codec.FlacDecoder;
+import dev.undefinedteam.gensh1n.codec.FlacLookahead;
 import dev.undefinedteam.gensh1n.codec.MP3Decoder;
+import dev.undefinedteam.gensh1n.codec.TrackSource;
 import dev.undefinedteam.gensh1n.music.GMusic;
-import dev.undefinedteam.gensh1n.utils.network.Http;
+import dev.undefinedteam.gensh1n.music.TrackStream;
 import icyllis.modernui.ModernUI;
 import icyllis.modernui.annotation.Nullable;
 import icyllis.modernui.audio.*;
@@ -38,11 +40,21 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 public class MusicPlayer {
 
     private static volatile MusicPlayer sInstance;
+    /**
+     * One seek at a time, in the order they were made
+     */
+    private static final Executor SEEKS = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "MusicSeek");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     private Track mCurrentTrack;
     private FFT mFFT;
@@ -90,15 +102,20 @@ public class MusicPlayer {
     }
 
     public void replaceTrackMp3(String name, ByteBuffer buffer) {
+        replaceTrackMp3(name, buffer != null ? TrackSource.of(buffer) : null);
+    }
+
+    public void replaceTrackMp3(String name, TrackSource source) {
         clearTrack();
         if (trackLoading) {
+            if (source != null) source.close();
             CompletableFuture.runAsync(() -> Toast.makeText(ModernUI.getInstance(),"track 加载中",Toast.LENGTH_SHORT).show(),Core.getUiThreadExecutor());
             return;
         }
         trackLoading = true;
         CompletableFuture.supplyAsync(() -> {
-            if (buffer != null) {
-                SoundSample decoder = new MP3Decoder(buffer);
+            if (source != null) {
+                SoundSample decoder = new MP3Decoder(source);
                 return new Track(decoder);
             } else {
                 ModernUI.LOGGER.error("Failed to open audio file, null buffer");
@@ -128,21 +145,26 @@ public class MusicPlayer {
         }
         trackLoading = true;
         CompletableFuture.supplyAsync(() -> {
-            byte[] data = downloadFile(url);
-            if (data != null) {
-                ByteBuffer nativeEncodedData = ByteBuffer.wrap(data);
-
+            TrackSource source = openStream(url);
+            if (source != null) {
                 SoundSample decoder = null;
 
                 try {
                     if (url.endsWith(".mp3")) {
-                        decoder = new MP3Decoder(nativeEncodedData);
+                        decoder = new MP3Decoder(source);
                     } else if (url.endsWith(".ogg")) {
-                        decoder = new VorbisPullDecoder(nativeEncodedData);
+                        // the vorbis decoder reads the whole buffer up front
+                        var buffer = source.buffer();
+                        if (source.await(0, buffer.limit()) < buffer.limit()) {
+                            source.close();
+                            throw new IOException("Incomplete download " + url);
+                        }
+                        decoder = new VorbisPullDecoder(buffer);
                     } else if (url.endsWith(".flac")) {
-                        decoder = new FlacDecoder(nativeEncodedData);
-                    } else decoder = new MP3Decoder(nativeEncodedData);
+                        decoder = new FlacDecoder(source, FlacLookahead.EXECUTOR);
+                    } else decoder = new MP3Decoder(source);
                 } catch (Exception e) {
+                    source.close();
                     throw new RuntimeException(e);
                 }
 
@@ -167,8 +189,13 @@ public class MusicPlayer {
         }, Core.getUiThreadExecutor());
     }
 
-    private byte[] downloadFile(String str) {
-        return Http.get(str).sendBytes(1048576);
+    private TrackSource openStream(String str) {
+        try {
+            return TrackStream.open(str, GMusic.INSTANCE.preroll.get() * 1024);
+        } catch (IOException e) {
+            ModernUI.LOGGER.error("Failed to download audio file, {}", str, e);
+            return null;
+        }
     }
 
     public void replaceTrack(Path path) {
@@ -259,6 +286,17 @@ public class MusicPlayer {
         return true;
     }
 
+    /**
+     * Seeks on a background thread, a seek into a track that is still downloading waits for the bytes there.
+     */
+    public CompletableFuture<Boolean> seekAsync(float fraction) {
+        var track = mCurrentTrack;
+        if (track == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return CompletableFuture.supplyAsync(() -> track.seekToSeconds(fraction * track.getLength()), SEEKS);
+    }
+
     public void setGain(float gain) {
         if (mGain != gain) {
             mGain = gain;